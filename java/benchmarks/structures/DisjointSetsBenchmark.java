@@ -0,0 +1,88 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Connected components of n vertices over n random edges, followed by n root queries
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisjointSetsBenchmark {
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] a;
+    int[] b;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        a = rnd.ints(n, 0, n).toArray();
+        b = rnd.ints(n, 0, n).toArray();
+    }
+
+    @Benchmark
+    public int disjointSets() {
+        int[] p = DisjointSets.createSets(n);
+        for (int i = 0; i < n; i++) DisjointSets.unite(p, a[i], b[i]);
+        int res = 0;
+        for (int i = 0; i < n; i++) res += DisjointSets.root(p, i);
+        return res;
+    }
+
+    @Benchmark
+    public int disjointSetsConcurrent() {
+        DisjointSets.Concurrent ds = new DisjointSets.Concurrent(n);
+        for (int i = 0; i < n; i++) ds.unite(a[i], b[i]);
+        int res = 0;
+        for (int i = 0; i < n; i++) res += ds.root(i);
+        return res;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Workers {
+        @Param({"1", "2", "4", "8"})
+        int threads;
+
+        ExecutorService pool;
+
+        @Setup
+        public void setup() {
+            pool = Executors.newFixedThreadPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    // the edges are split into one contiguous range per thread, all united into one shared structure
+    @Benchmark
+    public int disjointSetsConcurrentParallel(Workers workers) throws Exception {
+        DisjointSets.Concurrent ds = new DisjointSets.Concurrent(n);
+        int threads = workers.threads;
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int k = 0; k < threads; k++) {
+            int from = (int) ((long) n * k / threads);
+            int to = (int) ((long) n * (k + 1) / threads);
+            tasks.add(Executors.callable(() -> {
+                for (int i = from; i < to; i++) ds.unite(a[i], b[i]);
+            }));
+        }
+        for (Future<Object> f : workers.pool.invokeAll(tasks)) f.get();
+        int res = 0;
+        for (int i = 0; i < n; i++) res += ds.root(i);
+        return res;
+    }
+}
@@ -0,0 +1,112 @@
+package structures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Point add / prefix sum mix for the Fenwick tree variants
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenwickTreeBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    @Param({"10", "50", "90"})
+    int updatePercent;
+
+    int[] pos = new int[OPS];
+    int[] pos2 = new int[OPS];
+    boolean[] update = new boolean[OPS];
+
+    int[] fenwickTree;
+    int[] fenwickTreeExtended1;
+    int[] fenwickTreeExtended2;
+    FenwickTreeConcurrent fenwickTreeConcurrent;
+    FenwickTreeMapped fenwickTreeMapped;
+    File mappedFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Random rnd = new Random(1);
+        for (int i = 0; i < OPS; i++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            pos[i] = Math.min(a, b);
+            pos2[i] = Math.max(a, b);
+            update[i] = rnd.nextInt(100) < updatePercent;
+        }
+        fenwickTree = new int[n];
+        fenwickTreeExtended1 = new int[n];
+        fenwickTreeExtended2 = new int[n];
+        fenwickTreeConcurrent = new FenwickTreeConcurrent(n, 1);
+        mappedFile = File.createTempFile("fenwick", ".bin");
+        fenwickTreeMapped = new FenwickTreeMapped(mappedFile, n);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fenwickTreeMapped.close();
+        mappedFile.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long fenwickTree() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                FenwickTree.add(fenwickTree, pos[i], 1);
+            else
+                res += FenwickTree.sum(fenwickTree, pos[i]);
+        }
+        return res;
+    }
+
+    // range add / range sum with two trees
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long fenwickTreeExtendedRange() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                FenwickTreeExtended.add(fenwickTreeExtended1, fenwickTreeExtended2, pos[i], pos2[i], 1);
+            else
+                res += FenwickTreeExtended.sum(fenwickTreeExtended1, fenwickTreeExtended2, pos2[i]);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long fenwickTreeConcurrent() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                fenwickTreeConcurrent.add(pos[i], 1);
+            else
+                res += fenwickTreeConcurrent.sum(pos[i]);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long fenwickTreeMapped() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                fenwickTreeMapped.add(pos[i], 1);
+            else
+                res += fenwickTreeMapped.sum(pos[i]);
+        }
+        return res;
+    }
+}
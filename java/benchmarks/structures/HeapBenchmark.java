@@ -0,0 +1,161 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Dijkstra-like mix: removeMin, reinsert the removed id with a larger key, and decrease
+// the keys of random ids. Keys never drop below the last removed key, as RadixHeapIndexed requires.
+// BinaryHeap has no decrease-key: it gets a duplicate entry instead, and one stale entry is dropped.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    @Param({"0", "50", "100"})
+    int decreasePercent;
+
+    int[] id = new int[OPS];
+    int[] delta = new int[OPS];
+    boolean[] decrease = new boolean[OPS];
+
+    int[] binaryHeapIndexedKeys;
+    int[] radixHeapIndexedKeys;
+    int binaryHeapLast;
+    int radixHeapLast;
+    int[] daryHeap4Keys;
+    int[] daryHeap8Keys;
+    DaryHeapIndexed daryHeap4;
+    DaryHeapIndexed daryHeap8;
+    BinaryHeap binaryHeap;
+    BinaryHeapIndexed binaryHeapIndexed;
+    RadixHeapIndexed radixHeapIndexed;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < OPS; i++) {
+            id[i] = rnd.nextInt(n);
+            delta[i] = rnd.nextInt(1000);
+            decrease[i] = rnd.nextInt(100) < decreasePercent;
+        }
+        binaryHeapIndexedKeys = new int[n];
+        radixHeapIndexedKeys = new int[n];
+        binaryHeap = new BinaryHeap(n + 2);
+        binaryHeapIndexed = new BinaryHeapIndexed(n);
+        radixHeapIndexed = new RadixHeapIndexed(n);
+        daryHeap4Keys = new int[n];
+        daryHeap8Keys = new int[n];
+        daryHeap4 = new DaryHeapIndexed(n, 4);
+        daryHeap8 = new DaryHeapIndexed(n, 8);
+        for (int i = 0; i < n; i++) {
+            int key = rnd.nextInt(1000);
+            binaryHeapIndexedKeys[i] = key;
+            radixHeapIndexedKeys[i] = key;
+            binaryHeap.add(key);
+            binaryHeapIndexed.add(i, key);
+            radixHeapIndexed.add(i, key);
+            daryHeap4Keys[i] = key;
+            daryHeap8Keys[i] = key;
+            daryHeap4.add(i, key);
+            daryHeap8.add(i, key);
+        }
+        binaryHeapLast = 0;
+        radixHeapLast = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int binaryHeap() {
+        int res = 0;
+        for (int i = 0; i < OPS; i++) {
+            int min = binaryHeap.removeMin();
+            binaryHeap.add(min + delta[i]);
+            if (decrease[i]) {
+                binaryHeap.add(min + delta[i] / 2);
+                binaryHeap.removeMin();
+            }
+            res += min;
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int binaryHeapIndexed() {
+        int[] keys = binaryHeapIndexedKeys;
+        int res = 0;
+        for (int i = 0; i < OPS; i++) {
+            binaryHeapLast = binaryHeapIndexed.heap[0];
+            int u = binaryHeapIndexed.removeMin();
+            keys[u] = binaryHeapLast + delta[i];
+            binaryHeapIndexed.add(u, keys[u]);
+            if (decrease[i]) {
+                int v = id[i];
+                keys[v] = Math.max(binaryHeapLast, keys[v] - delta[i]);
+                binaryHeapIndexed.changeValue(v, keys[v]);
+            }
+            res += u;
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int radixHeapIndexed() {
+        int[] keys = radixHeapIndexedKeys;
+        int res = 0;
+        for (int i = 0; i < OPS; i++) {
+            int u = radixHeapIndexed.removeMin();
+            radixHeapLast = keys[u];
+            keys[u] = radixHeapLast + delta[i];
+            radixHeapIndexed.add(u, keys[u]);
+            if (decrease[i]) {
+                int v = id[i];
+                int key = Math.max(radixHeapLast, keys[v] - delta[i]);
+                if (key < keys[v]) {
+                    keys[v] = key;
+                    radixHeapIndexed.changeValue(v, key);
+                }
+            }
+            res += u;
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int daryHeapIndexed4() {
+        return dary(daryHeap4, daryHeap4Keys);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int daryHeapIndexed8() {
+        return dary(daryHeap8, daryHeap8Keys);
+    }
+
+    int dary(DaryHeapIndexed h, int[] keys) {
+        int res = 0;
+        for (int i = 0; i < OPS; i++) {
+            int last = h.minValue();
+            int u = h.removeMin();
+            keys[u] = last + delta[i];
+            h.add(u, keys[u]);
+            if (decrease[i]) {
+                int v = id[i];
+                keys[v] = Math.max(last, keys[v] - delta[i]);
+                h.changeValue(v, keys[v]);
+            }
+            res += u;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,91 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Nearest neighbour on the static KdTreePointQuery against KdTreeDynamic over the same random points,
+// then the queries and updates only KdTreeDynamic has: 10-NN, radius, and expiring the oldest point
+// for a new one
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KdTreeBenchmark {
+    static final int OPS = 1024;
+    static final int RANGE = 1 << 24;
+
+    @Param({"65536", "1048576"})
+    int n;
+
+    int[] qx = new int[OPS];
+    int[] qy = new int[OPS];
+    int[] out = new int[64];
+
+    KdTreePointQuery kdTreePointQuery;
+    KdTreeDynamic kdTreeDynamic;
+    int[] live;
+    int oldest;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        int[] x = rnd.ints(n, 0, RANGE).toArray();
+        int[] y = rnd.ints(n, 0, RANGE).toArray();
+        kdTreeDynamic = new KdTreeDynamic(n);
+        live = new int[n];
+        for (int i = 0; i < n; i++) live[i] = kdTreeDynamic.insert(x[i], y[i]);
+        oldest = 0;
+        kdTreePointQuery = new KdTreePointQuery(x, y);
+        for (int i = 0; i < OPS; i++) {
+            qx[i] = rnd.nextInt(RANGE);
+            qy[i] = rnd.nextInt(RANGE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long nearestKdTreePointQuery() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += kdTreePointQuery.findNearestNeighbour(qx[i], qy[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long nearestKdTreeDynamic() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += kdTreeDynamic.kNearest(qx[i], qy[i], 1, out);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long tenNearestKdTreeDynamic() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += kdTreeDynamic.kNearest(qx[i], qy[i], 10, out);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long radiusKdTreeDynamic() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += kdTreeDynamic.withinRadius(qx[i], qy[i], 20_000, out);
+        return res;
+    }
+
+    // the oldest point is deleted and a new one inserted, so the size stays n
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int expireInsertKdTreeDynamic() {
+        for (int i = 0; i < OPS; i++) {
+            kdTreeDynamic.delete(live[oldest]);
+            live[oldest] = kdTreeDynamic.insert(qx[i], qy[i]);
+            oldest = oldest + 1 == n ? 0 : oldest + 1;
+        }
+        return kdTreeDynamic.size();
+    }
+}
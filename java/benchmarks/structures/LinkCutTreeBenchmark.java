@@ -0,0 +1,195 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The same random dynamic forest workloads on LinkCutTreeArrays and on the Node-based class it replaces:
+// link/cut/path add/path sum, link/cut/connected, and rooted link/cut/lca
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkCutTreeBenchmark {
+    @Param({"65536", "1048576"})
+    int n;
+
+    static final int OPS = 200_000;
+
+    int[] cmd;
+    int[] u;
+    int[] v;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        cmd = rnd.ints(OPS, 0, 12).toArray();
+        u = rnd.ints(OPS, 0, n).toArray();
+        v = rnd.ints(OPS, 0, n).toArray();
+    }
+
+    // cmd % 4 == 0 cuts a random edge, otherwise u and v are linked if not connected,
+    // else cmd % 4 == 1 adds to their path and the rest query the path sum
+    @Benchmark
+    public long pathSumLinkCutTree() {
+        LinkCutTree.Node[] nodes = new LinkCutTree.Node[n];
+        for (int i = 0; i < n; i++) nodes[i] = new LinkCutTree.Node(0);
+        int[] eu = new int[n];
+        int[] ev = new int[n];
+        int edges = 0;
+        long res = 0;
+        for (int op = 0; op < OPS; op++) {
+            if (cmd[op] % 4 == 0 && edges > 0) {
+                int e = v[op] % edges;
+                LinkCutTree.cut(nodes[eu[e]], nodes[ev[e]]);
+                eu[e] = eu[--edges];
+                ev[e] = ev[edges];
+            } else if (!LinkCutTree.connected(nodes[u[op]], nodes[v[op]])) {
+                LinkCutTree.link(nodes[u[op]], nodes[v[op]]);
+                eu[edges] = u[op];
+                ev[edges++] = v[op];
+            } else if (cmd[op] % 4 == 1) {
+                LinkCutTree.modify(nodes[u[op]], nodes[v[op]], op & 15);
+            } else {
+                res += LinkCutTree.query(nodes[u[op]], nodes[v[op]]);
+            }
+        }
+        return res;
+    }
+
+    long pathSumArrays(int aggregates) {
+        LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, aggregates);
+        int[] eu = new int[n];
+        int[] ev = new int[n];
+        int edges = 0;
+        long res = 0;
+        for (int op = 0; op < OPS; op++) {
+            if (cmd[op] % 4 == 0 && edges > 0) {
+                int e = v[op] % edges;
+                t.cut(eu[e], ev[e]);
+                eu[e] = eu[--edges];
+                ev[e] = ev[edges];
+            } else if (!t.connected(u[op], v[op])) {
+                t.link(u[op], v[op]);
+                eu[edges] = u[op];
+                ev[edges++] = v[op];
+            } else if (cmd[op] % 4 == 1) {
+                t.pathAdd(u[op], v[op], op & 15);
+            } else {
+                res += t.pathSum(u[op], v[op]);
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long pathSumArrays() {
+        return pathSumArrays(LinkCutTreeArrays.PATH_SUM);
+    }
+
+    @Benchmark
+    public long pathSumArraysWithMax() {
+        return pathSumArrays(LinkCutTreeArrays.PATH_SUM_MAX);
+    }
+
+    // cmd % 3 == 0 cuts a random edge, otherwise u and v are linked if not connected
+    @Benchmark
+    public int connectivityLinkCutTree() {
+        LinkCutTreeConnectivity.Node[] nodes = new LinkCutTreeConnectivity.Node[n];
+        for (int i = 0; i < n; i++) nodes[i] = new LinkCutTreeConnectivity.Node();
+        int[] eu = new int[n];
+        int[] ev = new int[n];
+        int edges = 0;
+        int res = 0;
+        for (int op = 0; op < OPS; op++) {
+            if (cmd[op] % 3 == 0 && edges > 0) {
+                int e = v[op] % edges;
+                LinkCutTreeConnectivity.cut(nodes[eu[e]], nodes[ev[e]]);
+                eu[e] = eu[--edges];
+                ev[e] = ev[edges];
+            } else if (LinkCutTreeConnectivity.connected(nodes[u[op]], nodes[v[op]])) {
+                ++res;
+            } else {
+                LinkCutTreeConnectivity.link(nodes[u[op]], nodes[v[op]]);
+                eu[edges] = u[op];
+                ev[edges++] = v[op];
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    public int connectivityArrays() {
+        LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, LinkCutTreeArrays.CONNECTIVITY);
+        int[] eu = new int[n];
+        int[] ev = new int[n];
+        int edges = 0;
+        int res = 0;
+        for (int op = 0; op < OPS; op++) {
+            if (cmd[op] % 3 == 0 && edges > 0) {
+                int e = v[op] % edges;
+                t.cut(eu[e], ev[e]);
+                eu[e] = eu[--edges];
+                ev[e] = ev[edges];
+            } else if (t.connected(u[op], v[op])) {
+                ++res;
+            } else {
+                t.link(u[op], v[op]);
+                eu[edges] = u[op];
+                ev[edges++] = v[op];
+            }
+        }
+        return res;
+    }
+
+    // cmd % 3 == 0 cuts u from its parent, otherwise u and v get their lca if connected,
+    // else cmd % 3 == 2 makes root u a child of v
+    @Benchmark
+    public int lcaLinkCutTree() {
+        LinkCutTreeLca.Node[] nodes = new LinkCutTreeLca.Node[n];
+        for (int i = 0; i < n; i++) nodes[i] = new LinkCutTreeLca.Node();
+        boolean[] hasParent = new boolean[n];
+        int res = 0;
+        for (int op = 0; op < OPS; op++) {
+            LinkCutTreeLca.Node x = nodes[u[op]];
+            LinkCutTreeLca.Node y = nodes[v[op]];
+            if (cmd[op] % 3 == 0) {
+                if (hasParent[u[op]]) {
+                    LinkCutTreeLca.cut(x);
+                    hasParent[u[op]] = false;
+                }
+            } else if (LinkCutTreeLca.findRoot(x) == LinkCutTreeLca.findRoot(y)) {
+                res += LinkCutTreeLca.lca(x, y) == x ? 1 : 0;
+            } else if (cmd[op] % 3 == 2 && !hasParent[u[op]]) {
+                LinkCutTreeLca.link(x, y);
+                hasParent[u[op]] = true;
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    public int lcaArrays() {
+        LinkCutTreeArrays t = new LinkCutTreeArrays(n, true, LinkCutTreeArrays.CONNECTIVITY);
+        boolean[] hasParent = new boolean[n];
+        int res = 0;
+        for (int op = 0; op < OPS; op++) {
+            int x = u[op];
+            int y = v[op];
+            if (cmd[op] % 3 == 0) {
+                if (hasParent[x]) {
+                    t.cutFromParent(x);
+                    hasParent[x] = false;
+                }
+            } else if (t.connected(x, y)) {
+                res += t.lca(x, y) == x ? 1 : 0;
+            } else if (cmd[op] % 3 == 2 && !hasParent[x]) {
+                t.linkToParent(x, y);
+                hasParent[x] = true;
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,75 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Kruskal-style melds: n clusters with 4 candidate weights each, random pairs of clusters
+// are merged and the merged cluster drops its lightest candidate
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeableHeapBenchmark {
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] values;
+    int[] x;
+    int[] y;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        values = rnd.ints(4 * n, 0, 1 << 30).toArray();
+        x = rnd.ints(4 * n, 0, n).toArray();
+        y = rnd.ints(4 * n, 0, n).toArray();
+    }
+
+    @Benchmark
+    public long mergeableHeap() {
+        MergeableHeap.Heap[] heaps = new MergeableHeap.Heap[n];
+        for (int i = 0; i < 4 * n; i++) heaps[i >> 2] = MergeableHeap.add(heaps[i >> 2], values[i]);
+        int[] p = DisjointSets.createSets(n);
+        long res = 0;
+        for (int i = 0; i < 4 * n; i++) {
+            int u = DisjointSets.root(p, x[i]);
+            int v = DisjointSets.root(p, y[i]);
+            if (u == v)
+                continue;
+            DisjointSets.unite(p, u, v);
+            int r = DisjointSets.root(p, u);
+            MergeableHeap.HeapAndResult hr = MergeableHeap.removeMin(MergeableHeap.merge(heaps[u], heaps[v]));
+            heaps[u] = heaps[v] = null;
+            heaps[r] = hr.heap;
+            res += hr.value;
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long pairingHeapArena() {
+        PairingHeapArena arena = new PairingHeapArena(4 * n);
+        int[] roots = new int[n];
+        Arrays.fill(roots, -1);
+        for (int i = 0; i < 4 * n; i++) roots[i >> 2] = arena.add(roots[i >> 2], values[i]);
+        int[] p = DisjointSets.createSets(n);
+        long res = 0;
+        for (int i = 0; i < 4 * n; i++) {
+            int u = DisjointSets.root(p, x[i]);
+            int v = DisjointSets.root(p, y[i]);
+            if (u == v)
+                continue;
+            DisjointSets.unite(p, u, v);
+            int r = DisjointSets.root(p, u);
+            int m = arena.meld(roots[u], roots[v]);
+            roots[u] = roots[v] = -1;
+            res += arena.value(m);
+            roots[r] = arena.removeMin(m);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,94 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Clustered points: building QuadTree against QuadTreeBucketed, and rectangle counts on both
+// and on the Morton-code snapshot
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QuadTreeBenchmark {
+    static final int OPS = 1024;
+    static final int SIDE = 1 << 30;
+
+    @Param({"16384", "262144"})
+    int n;
+
+    int[] x;
+    int[] y;
+    int[] x1 = new int[OPS];
+    int[] y1 = new int[OPS];
+    int[] x2 = new int[OPS];
+    int[] y2 = new int[OPS];
+
+    QuadTree quadTree;
+    QuadTreeBucketed quadTreeBucketed;
+    QuadTreeBucketed.Snapshot snapshot;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        x = new int[n];
+        y = new int[n];
+        for (int i = 0; i < n; i++) {
+            Random c = new Random(rnd.nextInt(100));
+            x[i] = Math.max(0, Math.min(SIDE - 1, c.nextInt(SIDE) + (int) (rnd.nextGaussian() * 10_000)));
+            y[i] = Math.max(0, Math.min(SIDE - 1, c.nextInt(SIDE) + (int) (rnd.nextGaussian() * 10_000)));
+        }
+        quadTree = buildQuadTree();
+        quadTreeBucketed = buildQuadTreeBucketed();
+        snapshot = quadTreeBucketed.snapshot();
+        for (int k = 0; k < OPS; k++) {
+            int i = rnd.nextInt(n);
+            x1[k] = x[i] - 20_000;
+            y1[k] = y[i] - 20_000;
+            x2[k] = x[i] + 20_000;
+            y2[k] = y[i] + 20_000;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuadTree buildQuadTree() {
+        QuadTree t = new QuadTree();
+        for (int i = 0; i < n; i++) t.insert(x[i], y[i]);
+        return t;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuadTreeBucketed buildQuadTreeBucketed() {
+        QuadTreeBucketed t = new QuadTreeBucketed();
+        for (int i = 0; i < n; i++) t.insert(x[i], y[i]);
+        return t;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long countQuadTree() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += quadTree.count(x1[i], y1[i], x2[i], y2[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long countQuadTreeBucketed() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += quadTreeBucketed.count(x1[i], y1[i], x2[i], y2[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long countSnapshot() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += snapshot.count(x1[i], y1[i], x2[i], y2[i]);
+        return res;
+    }
+}
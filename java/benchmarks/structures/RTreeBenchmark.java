@@ -0,0 +1,119 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Nearest segment on the static RTree against the copy-on-write RTreeConcurrent, window queries,
+// and RTreeConcurrent readers running while one writer inserts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RTreeBenchmark {
+    static final int OPS = 1024;
+    static final int RANGE = 1 << 20;
+
+    static RTree.Segment[] segments(int n) {
+        Random rnd = new Random(1);
+        RTree.Segment[] segments = new RTree.Segment[n];
+        for (int i = 0; i < n; i++) {
+            int x1 = rnd.nextInt(RANGE);
+            int y1 = rnd.nextInt(RANGE);
+            segments[i] = new RTree.Segment(x1, y1, x1 + rnd.nextInt(100), y1 + rnd.nextInt(100));
+        }
+        return segments;
+    }
+
+    static int[] queries(int seed) {
+        return new Random(seed).ints(OPS, 0, RANGE).toArray();
+    }
+
+    @State(Scope.Thread)
+    public static class Trees {
+        @Param({"65536", "1048576"})
+        int n;
+
+        int[] qx = queries(2);
+        int[] qy = queries(3);
+        int[] out = new int[1 << 16];
+        RTree rTree;
+        RTreeConcurrent rTreeConcurrent;
+
+        @Setup
+        public void setup() {
+            RTree.Segment[] segments = segments(n);
+            rTreeConcurrent = new RTreeConcurrent(segments);
+            rTree = new RTree(segments);
+        }
+    }
+
+    // one tree shared by the threads of a group, inserts of the previous iteration are dropped
+    @State(Scope.Group)
+    public static class Shared {
+        @Param({"65536", "1048576"})
+        int n;
+
+        int[] qx = queries(2);
+        int[] qy = queries(3);
+        RTree.Segment[] segments;
+        RTreeConcurrent rTreeConcurrent;
+
+        @Setup
+        public void setup() {
+            segments = segments(n);
+        }
+
+        @Setup(Level.Iteration)
+        public void bulkLoad() {
+            rTreeConcurrent = new RTreeConcurrent(segments);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long nearestRTree(Trees t) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += t.rTree.findNearestNeighbour(t.qx[i], t.qy[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long nearestRTreeConcurrent(Trees t) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += t.rTreeConcurrent.findNearestNeighbour(t.qx[i], t.qy[i]);
+        return res;
+    }
+
+    // 4096 x 4096 windows, about 16 segments each at n = 2^20
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long windowRTreeConcurrent(Trees t) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++)
+            res += t.rTreeConcurrent.query(t.qx[i], t.qy[i], t.qx[i] + 4096, t.qy[i] + 4096, t.out);
+        return res;
+    }
+
+    @Benchmark
+    @Group("readWhileInsert")
+    @GroupThreads(3)
+    @OperationsPerInvocation(OPS)
+    public long reader(Shared s) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += s.rTreeConcurrent.findNearestNeighbour(s.qx[i], s.qy[i]);
+        return res;
+    }
+
+    @Benchmark
+    @Group("readWhileInsert")
+    @GroupThreads(1)
+    @OperationsPerInvocation(OPS)
+    public int writer(Shared s) {
+        int res = 0;
+        for (int i = 0; i < OPS; i++) res += s.rTreeConcurrent.insert(s.qx[i], s.qy[i], s.qx[i] + 50, s.qy[i] + 50);
+        return res;
+    }
+}
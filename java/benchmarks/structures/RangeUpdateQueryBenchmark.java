@@ -0,0 +1,143 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Range add / range max mix on the same workload for all segment tree and treap variants.
+// Range max is the query every variant supports, SegmentTreeLazy has no range sum.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeUpdateQueryBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    int n;
+
+    @Param({"10", "50", "90"})
+    int updatePercent;
+
+    int[] l = new int[OPS];
+    int[] r = new int[OPS];
+    int[] delta = new int[OPS];
+    boolean[] update = new boolean[OPS];
+
+    SegmentTree segmentTree;
+    SegmentTreeArrays segmentTreeArrays;
+    SegmentTreeLazy segmentTreeLazy;
+    Treap.Node treap;
+    TreapIndexed.Node treapIndexed;
+    TreapIndexedPool treapIndexedPool;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < OPS; i++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            l[i] = Math.min(a, b);
+            r[i] = Math.max(a, b);
+            delta[i] = rnd.nextInt(11) - 5;
+            update[i] = rnd.nextInt(100) < updatePercent;
+        }
+        segmentTree = new SegmentTree(n);
+        segmentTreeArrays = new SegmentTreeArrays(n, SegmentTreeArrays.MAX_ADD);
+        segmentTreeLazy = new SegmentTreeLazy(n);
+        treap = null;
+        treapIndexed = null;
+        treapIndexedPool = new TreapIndexedPool(n);
+        for (int i = 0; i < n; i++) {
+            treap = Treap.insert(treap, i, 0);
+            treapIndexed = TreapIndexed.insert(treapIndexed, i, 0);
+            treapIndexedPool.insert(i, 0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long segmentTree() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                segmentTree.modify(l[i], r[i], delta[i]);
+            else
+                res += segmentTree.get(l[i], r[i]).mx;
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long segmentTreeArrays() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                segmentTreeArrays.modify(l[i], r[i], delta[i]);
+            else
+                res += segmentTreeArrays.get(l[i], r[i]);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long segmentTreeLazy() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                segmentTreeLazy.inc(l[i], r[i] + 1, delta[i]);
+            else
+                res += segmentTreeLazy.query(l[i], r[i] + 1);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long treap() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i]) {
+                treap = Treap.modify(treap, l[i], r[i], delta[i]);
+            } else {
+                Treap.TreapAndResult tr = Treap.query(treap, l[i], r[i]);
+                treap = tr.treap;
+                res += tr.mx;
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long treapIndexed() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i]) {
+                treapIndexed = TreapIndexed.modify(treapIndexed, l[i], r[i], delta[i]);
+            } else {
+                TreapIndexed.TreapAndResult tr = TreapIndexed.query(treapIndexed, l[i], r[i]);
+                treapIndexed = tr.treap;
+                res += tr.mx;
+            }
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long treapIndexedPool() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            if (update[i])
+                treapIndexedPool.modify(l[i], r[i], delta[i]);
+            else
+                res += treapIndexedPool.max(l[i], r[i]);
+        }
+        return res;
+    }
+}
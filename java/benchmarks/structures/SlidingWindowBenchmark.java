@@ -0,0 +1,100 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Sliding window of w elements over a stream of n random values, one aggregate read per element:
+// window min on every min structure, then min, max and sum together
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlidingWindowBenchmark {
+    @Param({"1000000"})
+    int n;
+
+    @Param({"16", "1000", "100000"})
+    int w;
+
+    int[] a;
+
+    @Setup
+    public void setup() {
+        a = new Random(1).ints(n, 0, 1_000_000).toArray();
+    }
+
+    @Benchmark
+    public long minQueueMin() {
+        QueueMin q = new QueueMin();
+        long res = 0;
+        for (int i = 0; i < n; i++) {
+            q.addLast(a[i]);
+            if (i >= w)
+                q.removeFirst();
+            res += q.min();
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long minSlidingWindowAggregator() {
+        SlidingWindowAggregator q = new SlidingWindowAggregator(Math::min, Long.MAX_VALUE);
+        long res = 0;
+        for (int i = 0; i < n; i++) {
+            q.addLast(a[i]);
+            if (i >= w)
+                q.evict(1);
+            res += q.query();
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long minSlidingWindowMinMax() {
+        SlidingWindowMinMax q = new SlidingWindowMinMax(SlidingWindowMinMax.MIN);
+        long res = 0;
+        for (int i = 0; i < n; i++) {
+            q.addLast(a[i]);
+            if (i >= w)
+                q.evict(1);
+            res += q.min();
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long allSlidingWindowAggregator() {
+        SlidingWindowAggregator min = new SlidingWindowAggregator(Math::min, Long.MAX_VALUE);
+        SlidingWindowAggregator max = new SlidingWindowAggregator(Math::max, Long.MIN_VALUE);
+        SlidingWindowAggregator sum = new SlidingWindowAggregator(Long::sum, 0);
+        long res = 0;
+        for (int i = 0; i < n; i++) {
+            min.addLast(a[i]);
+            max.addLast(a[i]);
+            sum.addLast(a[i]);
+            if (i >= w) {
+                min.evict(1);
+                max.evict(1);
+                sum.evict(1);
+            }
+            res += min.query() ^ max.query() ^ sum.query();
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long allSlidingWindowMinMax() {
+        SlidingWindowMinMax q = new SlidingWindowMinMax();
+        long res = 0;
+        for (int i = 0; i < n; i++) {
+            q.addLast(a[i]);
+            if (i >= w)
+                q.evict(1);
+            res += q.min() ^ q.max() ^ q.sum();
+        }
+        return res;
+    }
+}
@@ -0,0 +1,100 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Random lookups in static arrays sized for L1, L2, L3 and DRAM: lower bound in a sorted int[] and
+// range minimum. n is the number of ints, the RMQ sizes are smaller so that the whole sparse table,
+// about n * log(n) ints, fits the same level.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StaticSearchBenchmark {
+    static final int OPS = 1024;
+
+    @State(Scope.Thread)
+    public static class Search {
+        // 16 KB, 256 KB, 4 MB, 128 MB
+        @Param({"4096", "65536", "1048576", "33554432"})
+        int n;
+
+        int[] a;
+        EytzingerArray eytzinger;
+        int[] x = new int[OPS];
+
+        @Setup
+        public void setup() {
+            Random rnd = new Random(1);
+            a = new int[n];
+            for (int i = 0; i < n; i++) a[i] = i * 32 + rnd.nextInt(32);
+            eytzinger = new EytzingerArray(a);
+            for (int i = 0; i < OPS; i++) x[i] = rnd.nextInt(n * 32);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rmq {
+        // sparse table of about 8 KB, 200 KB, 4 MB, 350 MB
+        @Param({"256", "4096", "65536", "4194304"})
+        int rmqN;
+
+        RmqSparseTable sparseTable;
+        RmqSparseTableBlocks sparseTableBlocks;
+        int[] l = new int[OPS];
+        int[] r = new int[OPS];
+
+        @Setup
+        public void setup() {
+            Random rnd = new Random(1);
+            int[] a = rnd.ints(rmqN).toArray();
+            sparseTable = new RmqSparseTable(a);
+            sparseTableBlocks = new RmqSparseTableBlocks(a);
+            for (int i = 0; i < OPS; i++) {
+                int u = rnd.nextInt(rmqN);
+                int v = rnd.nextInt(rmqN);
+                l[i] = Math.min(u, v);
+                r[i] = Math.max(u, v);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long binarySearch(Search s) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) {
+            int pos = Arrays.binarySearch(s.a, s.x[i]);
+            res += pos >= 0 ? pos : -pos - 1;
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long eytzingerArray(Search s) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += s.eytzinger.lowerBound(s.x[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long rmqSparseTable(Rmq s) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += s.sparseTable.min(s.l[i], s.r[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long rmqSparseTableBlocks(Rmq s) {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += s.sparseTableBlocks.min(s.l[i], s.r[i]);
+        return res;
+    }
+}
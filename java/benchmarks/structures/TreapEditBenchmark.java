@@ -0,0 +1,57 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Rope-like editing: insert and remove at random positions, keeping the size around n
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreapEditBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    int[] pos = new int[OPS];
+
+    TreapIndexed.Node treapIndexed;
+    TreapIndexedPool treapIndexedPool;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < OPS; i++) pos[i] = rnd.nextInt(n);
+        treapIndexed = null;
+        treapIndexedPool = new TreapIndexedPool(n + 1);
+        for (int i = 0; i < n; i++) {
+            treapIndexed = TreapIndexed.insert(treapIndexed, i, i);
+            treapIndexedPool.insert(i, i);
+        }
+    }
+
+    // one insert and one remove per operation
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public TreapIndexed.Node treapIndexed() {
+        for (int i = 0; i < OPS; i++) {
+            treapIndexed = TreapIndexed.insert(treapIndexed, pos[i], i);
+            treapIndexed = TreapIndexed.remove(treapIndexed, pos[OPS - 1 - i]);
+        }
+        return treapIndexed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public int treapIndexedPool() {
+        for (int i = 0; i < OPS; i++) {
+            treapIndexedPool.insert(pos[i], i);
+            treapIndexedPool.remove(pos[OPS - 1 - i]);
+        }
+        return treapIndexedPool.root;
+    }
+}
@@ -0,0 +1,64 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Read-heavy rectangle sums: treap-backed Tree2d against the static merge sort tree
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Tree2dBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"10000", "100000"})
+    int n;
+
+    int[] x1 = new int[OPS];
+    int[] x2 = new int[OPS];
+    int[] y1 = new int[OPS];
+    int[] y2 = new int[OPS];
+
+    Tree2d tree2d;
+    Tree2dStatic tree2dStatic;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        int[] x = rnd.ints(n, 0, n).toArray();
+        int[] y = rnd.ints(n, 0, n).toArray();
+        long[] w = rnd.longs(n, 0, 100).toArray();
+        tree2d = new Tree2d(n);
+        for (int i = 0; i < n; i++) tree2d.insert(x[i], y[i], (int) w[i]);
+        tree2dStatic = new Tree2dStatic(x, y, w);
+        for (int i = 0; i < OPS; i++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            int c = rnd.nextInt(n);
+            int d = rnd.nextInt(n);
+            x1[i] = Math.min(a, b);
+            x2[i] = Math.max(a, b);
+            y1[i] = Math.min(c, d);
+            y2[i] = Math.max(c, d);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long tree2d() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += tree2d.query(x1[i], x2[i], y1[i], y2[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long tree2dStatic() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += tree2dStatic.query(x1[i], x2[i], y1[i], y2[i]);
+        return res;
+    }
+}
@@ -0,0 +1,79 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// kth smallest and rank queries on random ranges: pointer-based WaveletTree against WaveletMatrix
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WaveletBenchmark {
+    static final int OPS = 1024;
+
+    @Param({"65536", "1048576"})
+    int n;
+
+    // values are in [0, sigma)
+    @Param({"256", "1048576"})
+    int sigma;
+
+    int[] from = new int[OPS];
+    int[] to = new int[OPS];
+    int[] k = new int[OPS];
+    int[] value = new int[OPS];
+
+    WaveletTree.Node waveletTree;
+    WaveletMatrix waveletMatrix;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(1);
+        int[] a = rnd.ints(n, 0, sigma).toArray();
+        waveletTree = WaveletTree.createTree(a.clone());
+        waveletMatrix = new WaveletMatrix(a);
+        for (int i = 0; i < OPS; i++) {
+            int u = rnd.nextInt(n) + 1;
+            int v = rnd.nextInt(n) + 1;
+            from[i] = Math.min(u, v);
+            to[i] = Math.max(u, v);
+            k[i] = rnd.nextInt(to[i] - from[i] + 1) + 1;
+            value[i] = rnd.nextInt(sigma);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long kthWaveletTree() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += waveletTree.kth(from[i], to[i], k[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long kthWaveletMatrix() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += waveletMatrix.kth(from[i], to[i], k[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long countLessOrEqWaveletTree() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += waveletTree.countLessOrEq(from[i], to[i], value[i]);
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public long countLessOrEqWaveletMatrix() {
+        long res = 0;
+        for (int i = 0; i < OPS; i++) res += waveletMatrix.countLessOrEq(from[i], to[i], value[i]);
+        return res;
+    }
+}
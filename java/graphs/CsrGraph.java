@@ -0,0 +1,251 @@
+package graphs;
+
+import graphs.dfs.StronglyConnectedComponents;
+import graphs.dfs.TopologicalSort;
+import graphs.flows.MaxFlowDinic;
+import graphs.matchings.MaxBipartiteMatchingHopcroftKarpEsqrtV;
+import graphs.shortestpaths.BellmanFord;
+import graphs.shortestpaths.DijkstraHeap;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Compressed sparse row graph: the arcs of u are target[start[u]..start[u + 1] - 1], with costs in weight[]
+// for weighted graphs. Arc i keeps its index in the arrays, so per-arc data (flows, reverse arcs) can live
+// in parallel arrays. Takes 4 bytes per arc (8 with weights) instead of a boxed Integer or Edge per arc
+// in a List per vertex.
+public class CsrGraph {
+    public final int n;
+    public final int[] start;
+    public final int[] target;
+    // null for unweighted graphs. int like the costs of the List-based algorithms, so results can be checked
+    // against them; distances must fit in int as there, max flow sums in long
+    public final int[] weight;
+
+    public CsrGraph(int n, int[] start, int[] target, int[] weight) {
+        this.n = n;
+        this.start = start;
+        this.target = target;
+        this.weight = weight;
+    }
+
+    // arcs from[i] -> to[i], weight may be null. Arcs of each vertex keep their input order
+    public static CsrGraph fromEdges(int n, int[] from, int[] to, int[] weight) {
+        int m = from.length;
+        int[] start = new int[n + 1];
+        for (int u : from) ++start[u + 1];
+        for (int u = 0; u < n; u++) start[u + 1] += start[u];
+        int[] pos = Arrays.copyOfRange(start, 1, n + 1);
+        int[] target = new int[m];
+        int[] w = weight == null ? null : new int[m];
+        for (int i = m - 1; i >= 0; i--) {
+            int p = --pos[from[i]];
+            target[p] = to[i];
+            if (w != null)
+                w[p] = weight[i];
+        }
+        return new CsrGraph(n, start, target, w);
+    }
+
+    // every edge (u[i], v[i]) becomes two arcs
+    public static CsrGraph fromUndirectedEdges(int n, int[] u, int[] v, int[] weight) {
+        int m = u.length;
+        int[] from = Arrays.copyOf(u, 2 * m);
+        int[] to = Arrays.copyOf(v, 2 * m);
+        System.arraycopy(v, 0, from, m, m);
+        System.arraycopy(u, 0, to, m, m);
+        int[] w = null;
+        if (weight != null) {
+            w = Arrays.copyOf(weight, 2 * m);
+            System.arraycopy(weight, 0, w, m, m);
+        }
+        return fromEdges(n, from, to, w);
+    }
+
+    public static CsrGraph fromLists(List<Integer>[] graph) {
+        int n = graph.length;
+        int[] start = new int[n + 1];
+        for (int u = 0; u < n; u++) start[u + 1] = start[u] + graph[u].size();
+        int[] target = new int[start[n]];
+        for (int u = 0; u < n; u++) {
+            int p = start[u];
+            for (int v : graph[u]) target[p++] = v;
+        }
+        return new CsrGraph(n, start, target, null);
+    }
+
+    // graph with every arc reversed, weights follow their arcs
+    public CsrGraph reverse() {
+        int[] from = new int[target.length];
+        for (int u = 0; u < n; u++)
+            for (int i = start[u]; i < start[u + 1]; i++) from[i] = u;
+        return fromEdges(n, target, from, weight);
+    }
+
+    public int degree(int u) {
+        return start[u + 1] - start[u];
+    }
+
+    public long memoryBytes() {
+        return 4L * start.length + 4L * target.length + (weight == null ? 0 : 4L * weight.length);
+    }
+
+    // (target, weight) pairs of the arcs of u in sorted order
+    static long[] sortedArcs(CsrGraph g, int u) {
+        long[] res = new long[g.degree(u)];
+        for (int i = 0; i < res.length; i++) {
+            int arc = g.start[u] + i;
+            res[i] = (long) g.target[arc] << 32 | (g.weight[arc] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(res);
+        return res;
+    }
+
+    // CSR overloads of graphs.* algorithms against their List versions
+    static void checkAlgorithms(Random rnd, int n, int[] from, int[] to, List<Integer>[] lists) {
+        int m = from.length;
+        int[] w = rnd.ints(m, 0, 10).toArray();
+        CsrGraph g = fromEdges(n, from, to, w);
+        List<DijkstraHeap.Edge>[] dijkstraGraph = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+        List<BellmanFord.Edge>[] bellmanFordGraph = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+        MaxFlowDinic flow = new MaxFlowDinic(n);
+        for (int i = 0; i < m; i++) {
+            dijkstraGraph[from[i]].add(new DijkstraHeap.Edge(to[i], w[i]));
+            bellmanFordGraph[from[i]].add(new BellmanFord.Edge(to[i], w[i] - 2));
+            flow.addEdge(from[i], to[i], w[i]);
+        }
+        int s = rnd.nextInt(n);
+        int[] d1 = new int[n];
+        int[] d2 = new int[n];
+        int[] pred = new int[n];
+        DijkstraHeap.shortestPaths(dijkstraGraph, s, d1, pred);
+        DijkstraHeap.shortestPaths(g, s, d2, pred);
+        if (!Arrays.equals(d1, d2))
+            throw new RuntimeException();
+
+        for (int i = 0; i < m; i++) w[i] -= 2;
+        CsrGraph negative = fromEdges(n, from, to, w);
+        if (BellmanFord.bellmanFord(bellmanFordGraph, s, d1, pred) != BellmanFord.bellmanFord(negative, s, d2, pred)
+            || !Arrays.equals(d1, d2)
+            || (BellmanFord.findNegativeCycle(bellmanFordGraph) == null)
+                != (BellmanFord.findNegativeCycle(negative) == null))
+            throw new RuntimeException();
+
+        int t = rnd.nextInt(n);
+        if (s != t && flow.maxFlow(s, t) != MaxFlowDinic.maxFlow(g, s, t))
+            throw new RuntimeException();
+
+        CsrGraph unweighted = fromLists(lists);
+        List<Integer> order = TopologicalSort.topologicalSort(lists);
+        int[] csrOrder = TopologicalSort.topologicalSort(unweighted);
+        for (int i = 0; i < n; i++)
+            if (order.get(i) != csrOrder[i])
+                throw new RuntimeException();
+        List<List<Integer>> components = StronglyConnectedComponents.scc(lists);
+        int[] comp = StronglyConnectedComponents.scc(unweighted);
+        for (int i = 0; i < components.size(); i++)
+            for (int u : components.get(i))
+                if (comp[u] != i)
+                    throw new RuntimeException();
+        if (MaxBipartiteMatchingHopcroftKarpEsqrtV.maxMatching(lists, n)
+            != MaxBipartiteMatchingHopcroftKarpEsqrtV.maxMatching(unweighted, n))
+            throw new RuntimeException();
+    }
+
+    static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // build time, memory and bfs speed against List<Integer>[]
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(20) + 1;
+            int m = rnd.nextInt(50);
+            int[] from = rnd.ints(m, 0, n).toArray();
+            int[] to = rnd.ints(m, 0, n).toArray();
+            int[] w = rnd.ints(m, -10, 10).toArray();
+            List<Integer>[] lists = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+            for (int i = 0; i < m; i++) lists[from[i]].add(to[i]);
+            CsrGraph g = fromEdges(n, from, to, w);
+            CsrGraph r = g.reverse().reverse();
+            if (!Arrays.equals(g.start, fromLists(lists).start) || !Arrays.equals(g.target, fromLists(lists).target))
+                throw new RuntimeException();
+            for (int u = 0; u < n; u++)
+                if (!Arrays.equals(sortedArcs(g, u), sortedArcs(r, u)))
+                    throw new RuntimeException();
+            checkAlgorithms(rnd, n, from, to, lists);
+        }
+        System.out.println("Test passed");
+
+        int n = 1_000_000;
+        int m = 10_000_000;
+        int[] from = rnd.ints(m, 0, n).toArray();
+        int[] to = rnd.ints(m, 0, n).toArray();
+
+        long memory = usedMemory();
+        long time = System.currentTimeMillis();
+        List<Integer>[] lists = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+        for (int i = 0; i < m; i++) lists[from[i]].add(to[i]);
+        long listTime = System.currentTimeMillis() - time;
+        long listMemory = usedMemory() - memory;
+
+        memory = usedMemory();
+        time = System.currentTimeMillis();
+        CsrGraph g = fromEdges(n, from, to, null);
+        long csrTime = System.currentTimeMillis() - time;
+        long csrMemory = usedMemory() - memory;
+        System.out.println("build: List<Integer>[] " + listTime + " ms, " + listMemory / (1 << 20) + " MB; CSR "
+            + csrTime + " ms, " + csrMemory / (1 << 20) + " MB (" + g.memoryBytes() / (1 << 20) + " MB in arrays)");
+
+        int[] q = new int[n];
+        int[] dist = new int[n];
+        for (int round = 0; round < 3; round++) {
+            time = System.currentTimeMillis();
+            long h1 = 0;
+            Arrays.fill(dist, -1);
+            for (int s = 0; s < n; s++) {
+                if (dist[s] != -1)
+                    continue;
+                dist[s] = 0;
+                q[0] = s;
+                for (int head = 0, tail = 1; head < tail; head++) {
+                    int u = q[head];
+                    for (int v : lists[u]) {
+                        if (dist[v] == -1) {
+                            dist[v] = dist[u] + 1;
+                            q[tail++] = v;
+                            h1 += dist[v];
+                        }
+                    }
+                }
+            }
+            long listBfs = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h2 = 0;
+            Arrays.fill(dist, -1);
+            for (int s = 0; s < n; s++) {
+                if (dist[s] != -1)
+                    continue;
+                dist[s] = 0;
+                q[0] = s;
+                for (int head = 0, tail = 1; head < tail; head++) {
+                    int u = q[head];
+                    for (int i = g.start[u], end = g.start[u + 1]; i < end; i++) {
+                        int v = g.target[i];
+                        if (dist[v] == -1) {
+                            dist[v] = dist[u] + 1;
+                            q[tail++] = v;
+                            h2 += dist[v];
+                        }
+                    }
+                }
+            }
+            long csrBfs = System.currentTimeMillis() - time;
+            if (h1 != h2)
+                throw new RuntimeException();
+            System.out.println("bfs: List<Integer>[] " + listBfs + " ms, CSR " + csrBfs + " ms");
+        }
+    }
+}
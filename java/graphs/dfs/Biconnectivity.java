@@ -1,5 +1,6 @@
 package graphs.dfs;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -30,6 +31,19 @@ public class Biconnectivity {
     List<Integer> cutPoints;
     List<Edge> bridges;
 
+    // results of the CSR overload, numbered in the same dfs order as the lists above
+    // edge-biconnected component of every vertex
+    int[] edgeComponent;
+    int edgeComponents;
+    // arcs of vertex-biconnected component i are componentArcs[componentStart[i]..componentStart[i + 1])
+    int[] componentStart;
+    int[] componentArcs;
+    int vertexComponents;
+    boolean[] isCutPoint;
+    // tree arcs u -> v whose edge is a bridge
+    int[] bridgeArcs;
+    int bridgeCount;
+
     public void biconnectivity(List<Integer>[] graph) {
         int n = graph.length;
         this.graph = graph;
@@ -119,6 +133,99 @@ public class Biconnectivity {
         }
     }
 
+    // the same on an undirected CSR graph without recursion: the dfs stack keeps the next arc of every vertex,
+    // the work done after dfs(v, u) returns runs when v is popped
+    public void biconnectivity(CsrGraph g) {
+        int n = g.n;
+        int m = g.target.length;
+        visited = new boolean[n];
+        tin = new int[n];
+        up = new int[n];
+        time = 0;
+        int[] parent = new int[n];
+        int[] parentArc = new int[n];
+        int[] arc = new int[n];
+        int[] children = new int[n];
+        int[] dfsStack = new int[n];
+        int[] vertexStack = new int[n];
+        int[] arcStack = new int[m];
+        int vertices = 0;
+        int arcs = 0;
+        edgeComponent = new int[n];
+        edgeComponents = 0;
+        componentStart = new int[n + 1];
+        componentArcs = new int[m];
+        vertexComponents = 0;
+        isCutPoint = new boolean[n];
+        bridgeArcs = new int[n];
+        bridgeCount = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (visited[root])
+                continue;
+            visited[root] = true;
+            up[root] = tin[root] = time++;
+            parent[root] = -1;
+            arc[root] = g.start[root];
+            vertexStack[vertices++] = root;
+            dfsStack[0] = root;
+            for (int top = 0; top >= 0;) {
+                int u = dfsStack[top];
+                if (arc[u] < g.start[u + 1]) {
+                    int i = arc[u]++;
+                    int v = g.target[i];
+                    if (v == parent[u])
+                        continue;
+                    if (visited[v]) {
+                        if (tin[u] > tin[v])
+                            arcStack[arcs++] = i;
+                        up[u] = Math.min(up[u], tin[v]);
+                    } else {
+                        arcStack[arcs++] = i;
+                        visited[v] = true;
+                        up[v] = tin[v] = time++;
+                        parent[v] = u;
+                        parentArc[v] = i;
+                        arc[v] = g.start[v];
+                        vertexStack[vertices++] = v;
+                        dfsStack[++top] = v;
+                    }
+                    continue;
+                }
+                --top;
+                int p = parent[u];
+                if (p == -1)
+                    isCutPoint[u] = children[u] >= 2;
+                if (tin[u] == up[u]) {
+                    while (true) {
+                        int x = vertexStack[--vertices];
+                        edgeComponent[x] = edgeComponents;
+                        if (x == u)
+                            break;
+                    }
+                    ++edgeComponents;
+                }
+                if (p == -1)
+                    continue;
+                up[p] = Math.min(up[p], up[u]);
+                if (tin[p] <= up[u]) {
+                    isCutPoint[p] = true;
+                    int from = componentStart[vertexComponents];
+                    while (true) {
+                        int e = arcStack[--arcs];
+                        componentArcs[from++] = e;
+                        if (e == parentArc[u])
+                            break;
+                    }
+                    componentStart[++vertexComponents] = from;
+                }
+                if (tin[p] < up[u])
+                    bridgeArcs[bridgeCount++] = parentArc[u];
+                ++children[p];
+            }
+        }
+    }
+
     // tree of edge-biconnected components
     public static List<Integer>[] ebcTree(List<Integer>[] graph, List<List<Integer>> components) {
         int[] comp = new int[graph.length];
@@ -154,5 +261,65 @@ public class Biconnectivity {
         System.out.println("bridges:" + bc.bridges);
         System.out.println(
             "edge-biconnected condensation tree:" + Arrays.toString(ebcTree(graph, bc.edgeBiconnectedComponents)));
+
+        // random test: the CSR overload gives the same components, cut points and bridges
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            n = rnd.nextInt(20) + 1;
+            int m = rnd.nextInt(30);
+            graph = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+            for (int i = 0; i < m; i++) {
+                int u = rnd.nextInt(n);
+                int v = rnd.nextInt(n);
+                if (u != v) {
+                    graph[u].add(v);
+                    graph[v].add(u);
+                }
+            }
+            CsrGraph g = CsrGraph.fromLists(graph);
+            int[] source = new int[g.target.length];
+            for (int u = 0; u < n; u++)
+                for (int i = g.start[u]; i < g.start[u + 1]; i++) source[i] = u;
+            bc.biconnectivity(graph);
+            Biconnectivity csr = new Biconnectivity();
+            csr.biconnectivity(g);
+            boolean ok = csr.edgeComponents == bc.edgeBiconnectedComponents.size()
+                && csr.vertexComponents == bc.vertexBiconnectedComponents.size()
+                && csr.bridgeCount == bc.bridges.size();
+            for (int i = 0; ok && i < csr.edgeComponents; i++)
+                for (int u : bc.edgeBiconnectedComponents.get(i)) ok &= csr.edgeComponent[u] == i;
+            for (int i = 0; ok && i < csr.vertexComponents; i++) {
+                List<Edge> component = bc.vertexBiconnectedComponents.get(i);
+                ok = csr.componentStart[i + 1] - csr.componentStart[i] == component.size();
+                for (int j = 0; ok && j < component.size(); j++) {
+                    int e = csr.componentArcs[csr.componentStart[i] + j];
+                    ok = source[e] == component.get(j).u && g.target[e] == component.get(j).v;
+                }
+            }
+            for (int i = 0; ok && i < csr.bridgeCount; i++) {
+                int e = csr.bridgeArcs[i];
+                ok = source[e] == bc.bridges.get(i).u && g.target[e] == bc.bridges.get(i).v;
+            }
+            int cutPoints = 0;
+            for (int u = 0; u < n; u++)
+                if (csr.isCutPoint[u])
+                    ++cutPoints;
+            ok &= cutPoints == bc.cutPoints.size();
+            for (int u : bc.cutPoints) ok &= csr.isCutPoint[u];
+            if (!ok)
+                throw new RuntimeException();
+        }
+
+        // a path of 10^6 vertices, deeper than a recursive dfs can go with the default stack
+        n = 1_000_000;
+        int[] u = new int[n - 1];
+        int[] v = new int[n - 1];
+        for (int i = 0; i + 1 < n; i++) {
+            u[i] = i;
+            v[i] = i + 1;
+        }
+        bc = new Biconnectivity();
+        bc.biconnectivity(CsrGraph.fromUndirectedEdges(n, u, v, null));
+        System.out.println(n - 1 == bc.bridgeCount && n == bc.edgeComponents);
     }
 }
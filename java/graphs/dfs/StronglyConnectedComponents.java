@@ -1,5 +1,6 @@
 package graphs.dfs;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -39,6 +40,38 @@ public class StronglyConnectedComponents {
         res.add(u);
     }
 
+    // the same on a CSR graph without recursion: comp[u] is the index of the component of u,
+    // components are numbered in the order scc(List<Integer>[]) returns them
+    public static int[] scc(CsrGraph g) {
+        int n = g.n;
+        int[] order = new int[n];
+        TopologicalSort.postOrder(g, order);
+        CsrGraph reverse = g.reverse();
+        int[] comp = new int[n];
+        Arrays.fill(comp, -1);
+        int[] stack = new int[n];
+        int components = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            int root = order[k];
+            if (comp[root] != -1)
+                continue;
+            comp[root] = components;
+            stack[0] = root;
+            for (int top = 0; top >= 0;) {
+                int u = stack[top--];
+                for (int i = reverse.start[u], end = reverse.start[u + 1]; i < end; i++) {
+                    int v = reverse.target[i];
+                    if (comp[v] == -1) {
+                        comp[v] = components;
+                        stack[++top] = v;
+                    }
+                }
+            }
+            ++components;
+        }
+        return comp;
+    }
+
     // DAG of strongly connected components
     public static List<Integer>[] sccGraph(List<Integer>[] graph, List<List<Integer>> components) {
         int[] comp = new int[graph.length];
@@ -64,5 +97,6 @@ public class StronglyConnectedComponents {
         List<List<Integer>> components = scc(g);
         System.out.println(components);
         System.out.println(Arrays.toString(sccGraph(g, components)));
+        System.out.println(Arrays.toString(scc(CsrGraph.fromLists(g))));
     }
 }
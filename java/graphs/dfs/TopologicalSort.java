@@ -1,5 +1,6 @@
 package graphs.dfs;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -25,6 +26,51 @@ public class TopologicalSort {
         return order;
     }
 
+    // the same on a CSR graph without recursion
+    public static int[] topologicalSort(CsrGraph g) {
+        int n = g.n;
+        int[] order = new int[n];
+        int size = postOrder(g, order);
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    // appends vertices to order when all their descendants are done, returns the number of vertices
+    static int postOrder(CsrGraph g, int[] order) {
+        int n = g.n;
+        // next arc to look at for every vertex on the stack
+        int[] arc = new int[n];
+        int[] stack = new int[n];
+        boolean[] used = new boolean[n];
+        int size = 0;
+        for (int root = 0; root < n; root++) {
+            if (used[root])
+                continue;
+            used[root] = true;
+            arc[root] = g.start[root];
+            stack[0] = root;
+            for (int top = 0; top >= 0;) {
+                int u = stack[top];
+                if (arc[u] < g.start[u + 1]) {
+                    int v = g.target[arc[u]++];
+                    if (!used[v]) {
+                        used[v] = true;
+                        arc[v] = g.start[v];
+                        stack[++top] = v;
+                    }
+                } else {
+                    order[size++] = u;
+                    --top;
+                }
+            }
+        }
+        return size;
+    }
+
     // Usage example
     public static void main(String[] args) {
         List<Integer>[] g = Stream.generate(ArrayList::new).limit(3).toArray(List[] ::new);
@@ -34,5 +80,6 @@ public class TopologicalSort {
 
         List<Integer> order = topologicalSort(g);
         System.out.println(order);
+        System.out.println(Arrays.toString(topologicalSort(CsrGraph.fromLists(g))));
     }
 }
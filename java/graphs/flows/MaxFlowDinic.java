@@ -1,5 +1,6 @@
 package graphs.flows;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -85,6 +86,100 @@ public class MaxFlowDinic {
         return flow;
     }
 
+    // Dinic on a CSR graph with capacities in g.weight. The residual graph is CSR too: arc ids below m are
+    // the input arcs and id + m is the reverse arc of id
+    public static long maxFlow(CsrGraph g, int src, int dest) {
+        int n = g.n;
+        int m = g.target.length;
+        int[] from = new int[2 * m];
+        int[] to = new int[2 * m];
+        int[] id = new int[2 * m];
+        for (int u = 0; u < n; u++) {
+            for (int i = g.start[u]; i < g.start[u + 1]; i++) {
+                from[i] = to[i + m] = u;
+                to[i] = from[i + m] = g.target[i];
+                id[i] = i;
+                id[i + m] = i + m;
+            }
+        }
+        CsrGraph r = CsrGraph.fromEdges(n, from, to, id);
+        int[] pos = new int[2 * m];
+        for (int i = 0; i < 2 * m; i++) pos[r.weight[i]] = i;
+        int[] rev = new int[2 * m];
+        int[] cap = new int[2 * m];
+        for (int i = 0; i < 2 * m; i++) {
+            int e = r.weight[i];
+            rev[i] = pos[e < m ? e + m : e - m];
+            cap[i] = e < m ? g.weight[e] : 0;
+        }
+        int[] dist = new int[n];
+        int[] q = new int[n];
+        int[] ptr = new int[n];
+        int[] path = new int[n];
+        int[] tail = new int[n];
+        long flow = 0;
+        while (true) {
+            Arrays.fill(dist, -1);
+            dist[src] = 0;
+            q[0] = src;
+            for (int head = 0, size = 1; head < size; head++) {
+                int u = q[head];
+                for (int i = r.start[u], end = r.start[u + 1]; i < end; i++) {
+                    int v = r.target[i];
+                    if (dist[v] < 0 && cap[i] > 0) {
+                        dist[v] = dist[u] + 1;
+                        q[size++] = v;
+                    }
+                }
+            }
+            if (dist[dest] < 0)
+                return flow;
+            System.arraycopy(r.start, 0, ptr, 0, n);
+            flow += blockingFlow(r, cap, rev, dist, ptr, path, tail, src, dest);
+        }
+    }
+
+    // Iterative dfs over the level graph: path holds the arcs from src and tail their start vertices.
+    // After an augmentation the search resumes from the first saturated arc instead of src,
+    // a dead end advances ptr of the vertex before it, as the recursive version does
+    static long blockingFlow(CsrGraph r, int[] cap, int[] rev, int[] dist, int[] ptr, int[] path, int[] tail, int src,
+        int dest) {
+        long flow = 0;
+        int depth = 0;
+        int u = src;
+        while (true) {
+            if (u == dest) {
+                int f = Integer.MAX_VALUE;
+                for (int k = 0; k < depth; k++) f = Math.min(f, cap[path[k]]);
+                int saturated = 0;
+                for (int k = depth - 1; k >= 0; k--) {
+                    cap[path[k]] -= f;
+                    cap[rev[path[k]]] += f;
+                    if (cap[path[k]] == 0)
+                        saturated = k;
+                }
+                flow += f;
+                depth = saturated;
+                u = tail[saturated];
+                continue;
+            }
+            int i = ptr[u];
+            int end = r.start[u + 1];
+            while (i < end && (dist[r.target[i]] != dist[u] + 1 || cap[i] == 0)) ++i;
+            ptr[u] = i;
+            if (i < end) {
+                tail[depth] = u;
+                path[depth++] = i;
+                u = r.target[i];
+            } else {
+                if (depth == 0)
+                    return flow;
+                u = tail[--depth];
+                ++ptr[u];
+            }
+        }
+    }
+
     // invoke after maxFlow()
     public boolean[] minCut() {
         boolean[] cut = new boolean[graph.length];
@@ -104,5 +199,8 @@ public class MaxFlowDinic {
         flow.addEdge(0, 2, 2);
         flow.addEdge(1, 2, 2);
         System.out.println(4 == flow.maxFlow(0, 2));
+
+        CsrGraph g = CsrGraph.fromEdges(3, new int[] {0, 0, 1}, new int[] {1, 2, 2}, new int[] {3, 2, 2});
+        System.out.println(4 == maxFlow(g, 0, 2));
     }
 }
@@ -3,6 +3,7 @@ package graphs.flows;
 import java.util.*;
 import java.util.stream.Stream;
 import structures.BinaryHeapIndexed;
+import structures.DaryHeapIndexed;
 import structures.RadixHeapIndexed;
 
 // https://cp-algorithms.com/graph/min_cost_flow.html in O(E * V + min(E * logV * FLOW, V^2 * FLOW))
@@ -61,7 +62,8 @@ public class MinCostFlowDijkstra {
 
     void dijkstraSparse(
         int s, int t, int[] pot, int[] dist, boolean[] finished, int[] curflow, int[] prevnode, int[] prevedge) {
-        BinaryHeapIndexed h = new BinaryHeapIndexed(graph.length);
+        DaryHeapIndexed h = new DaryHeapIndexed(graph.length, 4);
+        // BinaryHeapIndexed h = new BinaryHeapIndexed(graph.length);
         // RadixHeapIndexed h = new RadixHeapIndexed(graph.length);
         h.add(s, 0);
         Arrays.fill(dist, Integer.MAX_VALUE);
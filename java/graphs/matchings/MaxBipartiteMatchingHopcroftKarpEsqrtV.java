@@ -1,5 +1,6 @@
 package graphs.matchings;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -61,6 +62,84 @@ public class MaxBipartiteMatchingHopcroftKarpEsqrtV {
         return false;
     }
 
+    // the same on a CSR graph with arcs from the n1 left vertices to [0, n2)
+    public static int maxMatching(CsrGraph g, int n2) {
+        int n1 = g.n;
+        int[] dist = new int[n1];
+        int[] matching = new int[n2];
+        Arrays.fill(matching, -1);
+        boolean[] used = new boolean[n1];
+        int[] q = new int[n1];
+        boolean[] vis = new boolean[n1];
+        int[] arc = new int[n1];
+        int[] stack = new int[n1];
+        for (int res = 0;;) {
+            Arrays.fill(dist, -1);
+            int sizeQ = 0;
+            for (int u = 0; u < n1; ++u) {
+                if (!used[u]) {
+                    q[sizeQ++] = u;
+                    dist[u] = 0;
+                }
+            }
+            for (int k = 0; k < sizeQ; k++) {
+                int u1 = q[k];
+                for (int i = g.start[u1], end = g.start[u1 + 1]; i < end; i++) {
+                    int u2 = matching[g.target[i]];
+                    if (u2 >= 0 && dist[u2] < 0) {
+                        dist[u2] = dist[u1] + 1;
+                        q[sizeQ++] = u2;
+                    }
+                }
+            }
+            Arrays.fill(vis, false);
+            int f = 0;
+            for (int u = 0; u < n1; ++u)
+                if (!used[u] && dfs(g, vis, used, matching, dist, arc, stack, u))
+                    ++f;
+            if (f == 0)
+                return res;
+            res += f;
+        }
+    }
+
+    // Iterative dfs over the layered graph: stack holds the left vertices of the alternating path and arc[u]
+    // the arc of u being tried, so the path length is not limited by the thread stack
+    static boolean dfs(CsrGraph g, boolean[] vis, boolean[] used, int[] matching, int[] dist, int[] arc, int[] stack,
+        int root) {
+        vis[root] = true;
+        arc[root] = g.start[root];
+        stack[0] = root;
+        for (int top = 0; top >= 0;) {
+            int u1 = stack[top];
+            int i = arc[u1];
+            if (i == g.start[u1 + 1]) {
+                // dead end: the vertex below tries its next arc
+                if (--top >= 0)
+                    ++arc[stack[top]];
+                continue;
+            }
+            int u2 = matching[g.target[i]];
+            if (u2 < 0) {
+                // free right vertex: flip the matching along the path
+                for (int k = top; k >= 0; k--) {
+                    int u = stack[k];
+                    matching[g.target[arc[u]]] = u;
+                    used[u] = true;
+                }
+                return true;
+            }
+            if (!vis[u2] && dist[u2] == dist[u1] + 1) {
+                vis[u2] = true;
+                arc[u2] = g.start[u2];
+                stack[++top] = u2;
+            } else {
+                ++arc[u1];
+            }
+        }
+        return false;
+    }
+
     // Usage example
     public static void main(String[] args) {
         List<Integer>[] graph = Stream.generate(ArrayList::new).limit(2).toArray(List[] ::new);
@@ -68,5 +147,21 @@ public class MaxBipartiteMatchingHopcroftKarpEsqrtV {
         graph[0].add(1);
         graph[1].add(0);
         System.out.println(2 == maxMatching(graph, 2));
+        System.out.println(2 == maxMatching(CsrGraph.fromLists(graph), 2));
+
+        // the second phase augments along one alternating path through all 10^6 left vertices:
+        // left i < n - 1 tries right i + 1 first and then right i, left n - 1 has only right n - 1
+        int n = 1_000_000;
+        int[] from = new int[2 * n - 1];
+        int[] to = new int[2 * n - 1];
+        for (int i = 0; i + 1 < n; i++) {
+            from[2 * i] = i;
+            to[2 * i] = i + 1;
+            from[2 * i + 1] = i;
+            to[2 * i + 1] = i;
+        }
+        from[2 * n - 2] = n - 1;
+        to[2 * n - 2] = n - 1;
+        System.out.println(n == maxMatching(CsrGraph.fromEdges(n, from, to, null), n));
     }
 }
@@ -1,5 +1,6 @@
 package graphs.shortestpaths;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -64,6 +65,65 @@ public class BellmanFord {
             if (last == -1)
                 return null;
         }
+        return cycle(pred, last);
+    }
+
+    // the same on a CSR graph with costs in g.weight
+    public static boolean bellmanFord(CsrGraph g, int s, int[] dist, int[] pred) {
+        Arrays.fill(pred, -1);
+        Arrays.fill(dist, INF);
+        dist[s] = 0;
+        int n = g.n;
+        for (int step = 0; step < n; step++) {
+            boolean updated = false;
+            for (int u = 0; u < n; u++) {
+                if (dist[u] == INF)
+                    continue;
+                for (int i = g.start[u], end = g.start[u + 1]; i < end; i++) {
+                    int v = g.target[i];
+                    if (dist[v] > dist[u] + g.weight[i]) {
+                        dist[v] = Math.max(dist[u] + g.weight[i], -INF);
+                        pred[v] = u;
+                        updated = true;
+                    }
+                }
+            }
+            if (!updated)
+                return true;
+        }
+        // a negative cycle exists
+        return false;
+    }
+
+    public static int[] findNegativeCycle(CsrGraph g) {
+        int n = g.n;
+        int[] pred = new int[n];
+        Arrays.fill(pred, -1);
+        int[] dist = new int[n];
+        int last = -1;
+        for (int step = 0; step < n; step++) {
+            last = -1;
+            for (int u = 0; u < n; u++) {
+                if (dist[u] == INF)
+                    continue;
+                for (int i = g.start[u], end = g.start[u + 1]; i < end; i++) {
+                    int v = g.target[i];
+                    if (dist[v] > dist[u] + g.weight[i]) {
+                        dist[v] = Math.max(dist[u] + g.weight[i], -INF);
+                        pred[v] = u;
+                        last = v;
+                    }
+                }
+            }
+            if (last == -1)
+                return null;
+        }
+        return cycle(pred, last);
+    }
+
+    // last was relaxed in the n-th pass, so n steps back along pred end on the cycle
+    static int[] cycle(int[] pred, int last) {
+        int n = pred.length;
         for (int i = 0; i < n; i++) {
             last = pred[last];
         }
@@ -89,5 +149,9 @@ public class BellmanFord {
         graph[3].add(new Edge(1, 1));
         int[] cycle = findNegativeCycle(graph);
         System.out.println(Arrays.toString(cycle));
+
+        CsrGraph g = CsrGraph.fromEdges(
+            4, new int[] {0, 1, 1, 2, 3}, new int[] {1, 0, 2, 3, 1}, new int[] {1, 1, 1, -10, 1});
+        System.out.println(Arrays.toString(findNegativeCycle(g)));
     }
 }
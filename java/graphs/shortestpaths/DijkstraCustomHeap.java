@@ -2,7 +2,7 @@ package graphs.shortestpaths;
 
 import java.util.*;
 import java.util.stream.Stream;
-import structures.BinaryHeapIndexed;
+import structures.DaryHeapIndexed;
 
 // https://en.wikipedia.org/wiki/Dijkstra's_algorithm
 public class DijkstraCustomHeap {
@@ -11,7 +11,8 @@ public class DijkstraCustomHeap {
         Arrays.fill(pred, -1);
         Arrays.fill(prio, Integer.MAX_VALUE);
         prio[s] = 0;
-        BinaryHeapIndexed h = new BinaryHeapIndexed(graph.length);
+        // 4-ary heap: shallower than BinaryHeapIndexed with all children in one cache line
+        DaryHeapIndexed h = new DaryHeapIndexed(graph.length, 4);
         h.add(s, 0);
         while (h.size != 0) {
             int u = h.removeMin();
@@ -1,7 +1,9 @@
 package graphs.shortestpaths;
 
+import graphs.CsrGraph;
 import java.util.*;
 import java.util.stream.Stream;
+import structures.DaryHeapIndexed;
 
 // https://en.wikipedia.org/wiki/Dijkstra's_algorithm
 public class DijkstraHeap {
@@ -29,6 +31,36 @@ public class DijkstraHeap {
         }
     }
 
+    // the same on a CSR graph with costs in g.weight, with decrease-key on a primitive 4-ary heap instead of
+    // boxed stale entries. A vertex improved after its removal (negative costs) is added again, as above
+    public static void shortestPaths(CsrGraph g, int s, int[] prio, int[] pred) {
+        Arrays.fill(pred, -1);
+        Arrays.fill(prio, Integer.MAX_VALUE);
+        prio[s] = 0;
+        DaryHeapIndexed q = new DaryHeapIndexed(g.n, 4);
+        boolean[] queued = new boolean[g.n];
+        q.add(s, 0);
+        queued[s] = true;
+        while (q.size > 0) {
+            int u = q.removeMin();
+            queued[u] = false;
+            for (int i = g.start[u], end = g.start[u + 1]; i < end; i++) {
+                int v = g.target[i];
+                int nprio = prio[u] + g.weight[i];
+                if (prio[v] > nprio) {
+                    prio[v] = nprio;
+                    pred[v] = u;
+                    if (queued[v]) {
+                        q.changeValue(v, nprio);
+                    } else {
+                        q.add(v, nprio);
+                        queued[v] = true;
+                    }
+                }
+            }
+        }
+    }
+
     public static class Edge {
         int t;
         int cost;
@@ -60,5 +92,9 @@ public class DijkstraHeap {
         System.out.println(-1 == pred[0]);
         System.out.println(0 == pred[1]);
         System.out.println(1 == pred[2]);
+
+        CsrGraph g = CsrGraph.fromEdges(n, new int[] {0, 0, 1}, new int[] {1, 2, 2}, new int[] {3, 2, -2});
+        shortestPaths(g, 0, dist, pred);
+        System.out.println(1 == dist[2] && 1 == pred[2]);
     }
 }
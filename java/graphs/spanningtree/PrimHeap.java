@@ -1,6 +1,8 @@
 package graphs.spanningtree;
 
+import graphs.CsrGraph;
 import java.util.*;
+import structures.DaryHeapIndexed;
 
 // https://en.wikipedia.org/wiki/Prim%27s_algorithm in O(E*log(V))
 public class PrimHeap {
@@ -34,6 +36,38 @@ public class PrimHeap {
         return res;
     }
 
+    // the same on an undirected CSR graph with costs in g.weight, with decrease-key on a primitive 4-ary heap
+    public static long mst(CsrGraph g, int[] pred) {
+        int n = g.n;
+        Arrays.fill(pred, -1);
+        boolean[] used = new boolean[n];
+        int[] prio = new int[n];
+        Arrays.fill(prio, Integer.MAX_VALUE);
+        prio[0] = 0;
+        DaryHeapIndexed q = new DaryHeapIndexed(n, 4);
+        q.add(0, 0);
+        long res = 0;
+
+        while (q.size > 0) {
+            res += q.minValue();
+            int u = q.removeMin();
+            used[u] = true;
+            for (int i = g.start[u], end = g.start[u + 1]; i < end; i++) {
+                int v = g.target[i];
+                if (!used[v] && prio[v] > g.weight[i]) {
+                    // v is in the heap exactly when it is not used and has a finite priority
+                    if (prio[v] == Integer.MAX_VALUE)
+                        q.add(v, g.weight[i]);
+                    else
+                        q.changeValue(v, g.weight[i]);
+                    prio[v] = g.weight[i];
+                    pred[v] = u;
+                }
+            }
+        }
+        return res;
+    }
+
     static class Edge {
         int t, cost;
 
@@ -58,5 +92,27 @@ public class PrimHeap {
         }
         int[] pred = new int[n];
         System.out.println(mst(edges, pred));
+
+        CsrGraph g = CsrGraph.fromUndirectedEdges(n, new int[] {0, 0, 1}, new int[] {1, 2, 2}, new int[] {1, 2, 3});
+        System.out.println(mst(g, pred));
+
+        // random test: both versions give the same weight
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            n = rnd.nextInt(30) + 1;
+            int m = rnd.nextInt(100);
+            int[] u = rnd.ints(m, 0, n).toArray();
+            int[] v = rnd.ints(m, 0, n).toArray();
+            int[] w = rnd.ints(m, 0, 10).toArray();
+            edges = new List[n];
+            for (int i = 0; i < n; i++) edges[i] = new ArrayList<>();
+            for (int i = 0; i < m; i++) {
+                edges[u[i]].add(new Edge(v[i], w[i]));
+                edges[v[i]].add(new Edge(u[i], w[i]));
+            }
+            pred = new int[n];
+            if (mst(edges, pred) != mst(CsrGraph.fromUndirectedEdges(n, u, v, w), pred))
+                throw new RuntimeException();
+        }
     }
 }
@@ -0,0 +1,461 @@
+package structures;
+
+import java.util.*;
+
+// Ordered int -> int map as a B+ tree over pooled arrays. Nodes hold up to B = 16 entries, so the keys
+// of a node fill one 64-byte cache line. Internal nodes keep the entry count of every child for rank.
+// Leaves are linked both ways, so floor/ceiling never walk back up and ranges are scanned in place.
+// Entries are addressed by handles leaf * B + position, which stay valid until the next insert or remove.
+// search, insert, remove, floor, ceiling and rank are O(log(n)).
+public class BTreeMap {
+    static final int B = 16;
+    // a non-root node with fewer entries is merged with or refilled from a sibling
+    static final int MIN = 5;
+
+    // keys[node * B + i]: for a leaf the i-th key, for an internal node a lower bound of child i (i > 0)
+    int[] keys = new int[B * 16];
+    // leaf values
+    int[] values = new int[B * 16];
+    // internal nodes: children and their entry counts
+    int[] child = new int[B * 16];
+    int[] count = new int[B * 16];
+    int[] size = new int[16];
+    int[] next = new int[16];
+    int[] prev = new int[16];
+    int nodes;
+    int[] free = new int[16];
+    int freeCount;
+
+    int root;
+    // leaves are at level 0
+    int height;
+    int entries;
+
+    // scratch space for merging two siblings
+    final int[] bufKeys = new int[2 * B];
+    final int[] bufValues = new int[2 * B];
+    final int[] bufCount = new int[2 * B];
+
+    // set by insert when it replaced the value of an existing key
+    boolean replaced;
+
+    public BTreeMap() {
+        root = newNode();
+    }
+
+    int newNode() {
+        int node;
+        if (freeCount > 0) {
+            node = free[--freeCount];
+        } else {
+            if (nodes == size.length) {
+                int cap = 2 * nodes;
+                keys = Arrays.copyOf(keys, cap * B);
+                values = Arrays.copyOf(values, cap * B);
+                child = Arrays.copyOf(child, cap * B);
+                count = Arrays.copyOf(count, cap * B);
+                size = Arrays.copyOf(size, cap);
+                next = Arrays.copyOf(next, cap);
+                prev = Arrays.copyOf(prev, cap);
+            }
+            node = nodes++;
+        }
+        size[node] = 0;
+        next[node] = -1;
+        prev[node] = -1;
+        return node;
+    }
+
+    void freeNode(int node) {
+        if (freeCount == free.length)
+            free = Arrays.copyOf(free, 2 * freeCount);
+        free[freeCount++] = node;
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    // child of an internal node to descend to: the last child i > 0 with keys[i] <= key, or 0
+    int route(int node, int key) {
+        int base = node * B;
+        int i = 1;
+        int n = size[node];
+        while (i < n && keys[base + i] <= key) ++i;
+        return i - 1;
+    }
+
+    // first position in the leaf with a key >= key
+    int lowerBound(int leaf, int key) {
+        int base = leaf * B;
+        int i = 0;
+        int n = size[leaf];
+        while (i < n && keys[base + i] < key) ++i;
+        return i;
+    }
+
+    int findLeaf(int key) {
+        int node = root;
+        for (int level = height; level > 0; level--) node = child[node * B + route(node, key)];
+        return node;
+    }
+
+    // handle of key, or -1
+    public int search(int key) {
+        int leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        return i < size[leaf] && keys[leaf * B + i] == key ? leaf * B + i : -1;
+    }
+
+    // handle of the smallest key >= key, or -1
+    public int ceiling(int key) {
+        int leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        if (i < size[leaf])
+            return leaf * B + i;
+        // separators on the way down guarantee that the next leaf starts after key
+        return next[leaf] == -1 ? -1 : next[leaf] * B;
+    }
+
+    // handle of the largest key <= key, or -1
+    public int floor(int key) {
+        int leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        if (i < size[leaf] && keys[leaf * B + i] == key)
+            return leaf * B + i;
+        if (i > 0)
+            return leaf * B + i - 1;
+        return prev[leaf] == -1 ? -1 : prev[leaf] * B + size[prev[leaf]] - 1;
+    }
+
+    // number of keys less than key
+    public int rank(int key) {
+        int res = 0;
+        int node = root;
+        for (int level = height; level > 0; level--) {
+            int i = route(node, key);
+            for (int j = 0; j < i; j++) res += count[node * B + j];
+            node = child[node * B + i];
+        }
+        return res + lowerBound(node, key);
+    }
+
+    public int key(int handle) {
+        return keys[handle];
+    }
+
+    public int value(int handle) {
+        return values[handle];
+    }
+
+    // handle of the next key in order, or -1. Iterating a range:
+    // for (int h = map.ceiling(lo); h != -1 && map.key(h) <= hi; h = map.next(h))
+    public int next(int handle) {
+        int leaf = handle / B;
+        if (handle % B + 1 < size[leaf])
+            return handle + 1;
+        return next[leaf] == -1 ? -1 : next[leaf] * B;
+    }
+
+    public int prev(int handle) {
+        int leaf = handle / B;
+        if (handle % B > 0)
+            return handle - 1;
+        return prev[leaf] == -1 ? -1 : prev[leaf] * B + size[prev[leaf]] - 1;
+    }
+
+    // returns true if key was added, false if its value was replaced
+    public boolean insert(int key, int value) {
+        replaced = false;
+        int right = insert(root, height, key, value);
+        if (right != -1) {
+            int newRoot = newNode();
+            int base = newRoot * B;
+            child[base] = root;
+            count[base] = total(root, height);
+            child[base + 1] = right;
+            keys[base + 1] = lowestKey;
+            count[base + 1] = total(right, height);
+            size[newRoot] = 2;
+            root = newRoot;
+            ++height;
+        }
+        if (!replaced)
+            ++entries;
+        return !replaced;
+    }
+
+    // lower bound of the node returned by a split
+    int lowestKey;
+
+    // returns the new right sibling if the node was split, or -1
+    int insert(int node, int level, int key, int value) {
+        int base = node * B;
+        if (level == 0) {
+            int i = lowerBound(node, key);
+            if (i < size[node] && keys[base + i] == key) {
+                values[base + i] = value;
+                replaced = true;
+                return -1;
+            }
+            int right = -1;
+            if (size[node] == B) {
+                right = split(node, level);
+                if (i > B / 2) {
+                    node = right;
+                    base = node * B;
+                    i -= B / 2;
+                }
+            }
+            System.arraycopy(keys, base + i, keys, base + i + 1, size[node] - i);
+            System.arraycopy(values, base + i, values, base + i + 1, size[node] - i);
+            keys[base + i] = key;
+            values[base + i] = value;
+            ++size[node];
+            if (right != -1)
+                lowestKey = keys[right * B];
+            return right;
+        }
+        int i = route(node, key);
+        int c = child[base + i];
+        int split = insert(c, level - 1, key, value);
+        if (!replaced)
+            ++count[base + i];
+        if (split == -1)
+            return -1;
+        int splitKey = lowestKey;
+        int right = -1;
+        if (size[node] == B) {
+            right = split(node, level);
+            if (i >= B / 2) {
+                node = right;
+                base = node * B;
+                i -= B / 2;
+            }
+        }
+        int n = size[node];
+        System.arraycopy(keys, base + i + 1, keys, base + i + 2, n - i - 1);
+        System.arraycopy(child, base + i + 1, child, base + i + 2, n - i - 1);
+        System.arraycopy(count, base + i + 1, count, base + i + 2, n - i - 1);
+        keys[base + i + 1] = splitKey;
+        child[base + i + 1] = split;
+        count[base + i] = total(child[base + i], level - 1);
+        count[base + i + 1] = total(split, level - 1);
+        ++size[node];
+        if (right != -1)
+            lowestKey = keys[right * B];
+        return right;
+    }
+
+    // moves the upper half of a full node to a new right sibling
+    int split(int node, int level) {
+        int right = newNode();
+        int from = node * B + B / 2;
+        int to = right * B;
+        System.arraycopy(keys, from, keys, to, B / 2);
+        if (level == 0) {
+            System.arraycopy(values, from, values, to, B / 2);
+            next[right] = next[node];
+            prev[right] = node;
+            if (next[node] != -1)
+                prev[next[node]] = right;
+            next[node] = right;
+        } else {
+            System.arraycopy(child, from, child, to, B / 2);
+            System.arraycopy(count, from, count, to, B / 2);
+        }
+        size[node] = B / 2;
+        size[right] = B / 2;
+        return right;
+    }
+
+    int total(int node, int level) {
+        if (level == 0)
+            return size[node];
+        int res = 0;
+        for (int i = node * B, end = i + size[node]; i < end; i++) res += count[i];
+        return res;
+    }
+
+    // returns true if key was present
+    public boolean remove(int key) {
+        if (!remove(root, height, key))
+            return false;
+        --entries;
+        if (height > 0 && size[root] == 1) {
+            int old = root;
+            root = child[root * B];
+            freeNode(old);
+            --height;
+        }
+        return true;
+    }
+
+    boolean remove(int node, int level, int key) {
+        int base = node * B;
+        if (level == 0) {
+            int i = lowerBound(node, key);
+            if (i == size[node] || keys[base + i] != key)
+                return false;
+            System.arraycopy(keys, base + i + 1, keys, base + i, size[node] - i - 1);
+            System.arraycopy(values, base + i + 1, values, base + i, size[node] - i - 1);
+            --size[node];
+            return true;
+        }
+        int i = route(node, key);
+        if (!remove(child[base + i], level - 1, key))
+            return false;
+        --count[base + i];
+        if (size[child[base + i]] < MIN)
+            rebalance(node, i == 0 ? 0 : i - 1, level - 1);
+        return true;
+    }
+
+    // merges children i and i + 1 of node, or spreads their entries evenly if they do not fit into one
+    void rebalance(int node, int i, int level) {
+        int base = node * B;
+        int left = child[base + i];
+        int right = child[base + i + 1];
+        int nl = size[left];
+        int nr = size[right];
+        if (level > 0)
+            keys[right * B] = keys[base + i + 1];
+        int n = nl + nr;
+        System.arraycopy(keys, left * B, bufKeys, 0, nl);
+        System.arraycopy(keys, right * B, bufKeys, nl, nr);
+        int[] payload = level == 0 ? values : child;
+        System.arraycopy(payload, left * B, bufValues, 0, nl);
+        System.arraycopy(payload, right * B, bufValues, nl, nr);
+        if (level > 0) {
+            System.arraycopy(count, left * B, bufCount, 0, nl);
+            System.arraycopy(count, right * B, bufCount, nl, nr);
+        }
+        if (n <= B) {
+            copyFromBuffer(left, level, 0, n);
+            if (level == 0) {
+                next[left] = next[right];
+                if (next[right] != -1)
+                    prev[next[right]] = left;
+            }
+            freeNode(right);
+            int m = size[node];
+            System.arraycopy(keys, base + i + 2, keys, base + i + 1, m - i - 2);
+            System.arraycopy(child, base + i + 2, child, base + i + 1, m - i - 2);
+            System.arraycopy(count, base + i + 2, count, base + i + 1, m - i - 2);
+            --size[node];
+            count[base + i] = total(left, level);
+        } else {
+            copyFromBuffer(left, level, 0, n / 2);
+            copyFromBuffer(right, level, n / 2, n - n / 2);
+            keys[base + i + 1] = keys[right * B];
+            count[base + i] = total(left, level);
+            count[base + i + 1] = total(right, level);
+        }
+    }
+
+    void copyFromBuffer(int node, int level, int from, int n) {
+        System.arraycopy(bufKeys, from, keys, node * B, n);
+        System.arraycopy(bufValues, from, level == 0 ? values : child, node * B, n);
+        if (level > 0)
+            System.arraycopy(bufCount, from, count, node * B, n);
+        size[node] = n;
+    }
+
+    // random test and comparison with BinarySearchTree and TreeMap
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            BTreeMap map = new BTreeMap();
+            TreeMap<Integer, Integer> expected = new TreeMap<>();
+            int range = rnd.nextInt(1000) + 1;
+            for (int q = 0; q < 2000; q++) {
+                int key = rnd.nextInt(range);
+                int cmd = rnd.nextInt(3);
+                if (cmd == 0) {
+                    int value = rnd.nextInt();
+                    if (map.insert(key, value) != (expected.put(key, value) == null))
+                        throw new RuntimeException();
+                } else if (cmd == 1) {
+                    if (map.remove(key) != (expected.remove(key) != null))
+                        throw new RuntimeException();
+                }
+                int h = map.search(key);
+                Integer v = expected.get(key);
+                if (h == -1 ? v != null : v == null || map.value(h) != v)
+                    throw new RuntimeException();
+                Integer floor = expected.floorKey(key);
+                Integer ceiling = expected.ceilingKey(key);
+                int f = map.floor(key);
+                int c = map.ceiling(key);
+                if (f == -1 ? floor != null : floor == null || map.key(f) != floor)
+                    throw new RuntimeException();
+                if (c == -1 ? ceiling != null : ceiling == null || map.key(c) != ceiling)
+                    throw new RuntimeException();
+                if (map.rank(key) != expected.headMap(key).size() || map.size() != expected.size())
+                    throw new RuntimeException();
+                if (q % 100 == 0) {
+                    int lo = rnd.nextInt(range);
+                    int hi = lo + rnd.nextInt(range);
+                    Iterator<Map.Entry<Integer, Integer>> it = expected.subMap(lo, true, hi, true).entrySet().iterator();
+                    for (int cur = map.ceiling(lo); cur != -1 && map.key(cur) <= hi; cur = map.next(cur)) {
+                        Map.Entry<Integer, Integer> e = it.next();
+                        if (map.key(cur) != e.getKey() || map.value(cur) != e.getValue())
+                            throw new RuntimeException();
+                    }
+                    if (it.hasNext())
+                        throw new RuntimeException();
+                    int cur = map.floor(hi);
+                    for (int k : expected.headMap(hi, true).descendingKeySet()) {
+                        if (map.key(cur) != k)
+                            throw new RuntimeException();
+                        cur = map.prev(cur);
+                    }
+                    if (cur != -1)
+                        throw new RuntimeException();
+                }
+            }
+        }
+        System.out.println("Test passed");
+
+        // sorted and random streams: n inserts, n searches, n removes
+        for (int n : new int[] {10_000, 1_000_000}) {
+            for (boolean sorted : new boolean[] {true, false}) {
+                int[] a = new int[n];
+                for (int i = 0; i < n; i++) a[i] = sorted ? i : rnd.nextInt();
+                for (int round = 0; round < 2; round++) {
+                    long time = System.currentTimeMillis();
+                    BTreeMap map = new BTreeMap();
+                    long h1 = 0;
+                    for (int x : a) map.insert(x, x);
+                    for (int x : a) h1 += map.value(map.search(x));
+                    for (int x : a) map.remove(x);
+                    long bTreeTime = System.currentTimeMillis() - time;
+                    time = System.currentTimeMillis();
+                    TreeMap<Integer, Integer> treeMap = new TreeMap<>();
+                    long h2 = 0;
+                    for (int x : a) treeMap.put(x, x);
+                    for (int x : a) h2 += treeMap.get(x);
+                    for (int x : a) treeMap.remove(x);
+                    long treeMapTime = System.currentTimeMillis() - time;
+                    String bst = "skipped";
+                    // the unbalanced tree recurses to depth n on sorted keys
+                    if (!sorted || n <= 10_000) {
+                        time = System.currentTimeMillis();
+                        BinarySearchTree tree = new BinarySearchTree();
+                        long h3 = 0;
+                        for (int x : a) tree.insert(x, x);
+                        for (int x : a) h3 += tree.search(x).value;
+                        for (int x : a) tree.remove(x);
+                        bst = (System.currentTimeMillis() - time) + " ms";
+                        if (h1 != h3)
+                            throw new RuntimeException();
+                    }
+                    if (h1 != h2)
+                        throw new RuntimeException();
+                    System.out.println(n + (sorted ? " sorted" : " random") + " keys: BTreeMap " + bTreeTime
+                        + " ms, TreeMap " + treeMapTime + " ms, BinarySearchTree " + bst);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package structures;
 
+// Unbalanced: sorted inserts degrade to a linked list. BTreeMap is the balanced ordered map
 public class BinarySearchTree {
     Node root;
 
@@ -4,54 +4,234 @@ import java.util.*;
 import java.util.stream.Stream;
 
 // https://sai16vicky.wordpress.com/2014/11/01/divide-and-conquer-on-trees-centroid-decomposition/
+//
+// The decomposition is built iteratively on a CSR adjacency and kept for queries: the centroid
+// parent of every vertex, distances from every vertex to its centroid ancestors stored level by level,
+// and for every centroid prefix counts of the distances inside its component.
+// Build is O(n*log(n)), each query walks the O(log(n)) centroid ancestors of a vertex.
 public class CentroidDecomposition {
-    static void calcSizes(List<Integer>[] tree, int[] size, boolean[] deleted, int u, int p) {
-        size[u] = 1;
-        for (int v : tree[u]) {
-            if (v == p || deleted[v])
-                continue;
-            calcSizes(tree, size, deleted, v, u);
-            size[u] += size[v];
+    final int n;
+    // neighbours of u are adj[start[u]..start[u + 1] - 1]
+    final int[] start;
+    final int[] adj;
+    public final int[] centroidParent;
+    // depth in the centroid tree, the root centroid has level 0
+    public final int[] level;
+    // dist[k * n + v] = distance from v to its centroid ancestor of level k
+    final int[] dist;
+    // counts[countFrom[c] + t] = number of vertices of the component of c at distance <= t from c,
+    // for t < countLen[c]
+    int[] counts;
+    final int[] countFrom;
+    final int[] countLen;
+    // the same for distances from the component of c to centroidParent[c]
+    int[] parentCounts;
+    final int[] parentCountFrom;
+    final int[] parentCountLen;
+    // best[c] = distance from c to the nearest marked vertex of its component
+    final int[] best;
+
+    // tree with edges (from[i], to[i])
+    public CentroidDecomposition(int n, int[] from, int[] to) {
+        this.n = n;
+        start = new int[n + 1];
+        for (int i = 0; i < from.length; i++) {
+            ++start[from[i]];
+            ++start[to[i]];
         }
+        for (int u = 0; u < n; u++) start[u + 1] += start[u];
+        adj = new int[2 * from.length];
+        for (int i = 0; i < from.length; i++) {
+            adj[--start[from[i]]] = to[i];
+            adj[--start[to[i]]] = from[i];
+        }
+        centroidParent = new int[n];
+        level = new int[n];
+        int levels = 32 - Integer.numberOfLeadingZeros(n);
+        dist = new int[levels * n];
+        counts = new int[2 * n];
+        countFrom = new int[n];
+        countLen = new int[n];
+        parentCounts = new int[2 * n];
+        parentCountFrom = new int[n];
+        parentCountLen = new int[n];
+        best = new int[n];
+        Arrays.fill(best, Integer.MAX_VALUE);
+        if (n > 0)
+            build();
     }
 
-    static int findTreeCentroid(List<Integer>[] tree, int[] size, boolean[] deleted, int u, int p, int vertices) {
-        for (int v : tree[u]) {
-            if (v == p || deleted[v])
-                continue;
-            if (size[v] > vertices / 2) {
-                return findTreeCentroid(tree, size, deleted, v, u, vertices);
+    void build() {
+        boolean[] removed = new boolean[n];
+        int[] size = new int[n];
+        int[] bfsParent = new int[n];
+        int[] order = new int[n];
+        int[] hist = new int[n + 1];
+        // components waiting for their centroid: any vertex of the component and the centroid above it
+        int[] pendingVertex = new int[n];
+        int[] pendingParent = new int[n];
+        int pending = 0;
+        pendingVertex[pending] = 0;
+        pendingParent[pending++] = -1;
+        int countSize = 0;
+        int parentCountSize = 0;
+        while (pending > 0) {
+            --pending;
+            int root = pendingVertex[pending];
+            int pc = pendingParent[pending];
+
+            // subtree sizes of the component rooted at root, from the bfs order reversed
+            int total = bfs(root, removed, bfsParent, order, null);
+            for (int i = total - 1; i >= 0; i--) {
+                int u = order[i];
+                size[u] = 1;
+                for (int j = start[u]; j < start[u + 1]; j++) {
+                    int v = adj[j];
+                    if (v != bfsParent[u] && !removed[v])
+                        size[u] += size[v];
+                }
+            }
+            int c = root;
+            for (boolean moved = true; moved; ) {
+                moved = false;
+                for (int j = start[c]; j < start[c + 1]; j++) {
+                    int v = adj[j];
+                    if (v != bfsParent[c] && !removed[v] && size[v] > total / 2) {
+                        c = v;
+                        moved = true;
+                        break;
+                    }
+                }
+            }
+
+            int k = pc == -1 ? 0 : level[pc] + 1;
+            centroidParent[c] = pc;
+            level[c] = k;
+            // bfs from the centroid visits vertices by non-decreasing distance
+            bfs(c, removed, bfsParent, order, dist);
+            int maxDist = dist[k * n + order[total - 1]];
+            countFrom[c] = countSize;
+            countLen[c] = maxDist + 1;
+            counts = ensureCapacity(counts, countSize + maxDist + 1);
+            for (int i = 0; i < total; i++) ++counts[countSize + dist[k * n + order[i]]];
+            for (int t = 1; t <= maxDist; t++) counts[countSize + t] += counts[countSize + t - 1];
+            countSize += maxDist + 1;
+            if (pc != -1) {
+                int maxParentDist = 0;
+                for (int i = 0; i < total; i++) {
+                    int d = dist[(k - 1) * n + order[i]];
+                    ++hist[d];
+                    maxParentDist = Math.max(maxParentDist, d);
+                }
+                parentCountFrom[c] = parentCountSize;
+                parentCountLen[c] = maxParentDist + 1;
+                parentCounts = ensureCapacity(parentCounts, parentCountSize + maxParentDist + 1);
+                for (int t = 0, sum = 0; t <= maxParentDist; t++) {
+                    sum += hist[t];
+                    hist[t] = 0;
+                    parentCounts[parentCountSize + t] = sum;
+                }
+                parentCountSize += maxParentDist + 1;
+            }
+
+            removed[c] = true;
+            for (int j = start[c]; j < start[c + 1]; j++) {
+                int v = adj[j];
+                if (!removed[v]) {
+                    pendingVertex[pending] = v;
+                    pendingParent[pending++] = c;
+                }
             }
         }
-        return u;
+        counts = Arrays.copyOf(counts, countSize);
+        parentCounts = Arrays.copyOf(parentCounts, parentCountSize);
+    }
+
+    // visits the component of root, returns its size. With d != null also stores the distances from root
+    // at the level of root
+    int bfs(int root, boolean[] removed, int[] bfsParent, int[] order, int[] d) {
+        int base = level[root] * n;
+        bfsParent[root] = -1;
+        order[0] = root;
+        if (d != null)
+            d[base + root] = 0;
+        int size = 1;
+        for (int i = 0; i < size; i++) {
+            int u = order[i];
+            for (int j = start[u]; j < start[u + 1]; j++) {
+                int v = adj[j];
+                if (v != bfsParent[u] && !removed[v]) {
+                    bfsParent[v] = u;
+                    order[size++] = v;
+                    if (d != null)
+                        d[base + v] = d[base + u] + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    static int[] ensureCapacity(int[] a, int size) {
+        return size <= a.length ? a : Arrays.copyOf(a, Math.max(size, 2 * a.length));
     }
 
-    //    static void dfs(List<Integer>[] tree, boolean[] deleted, int u, int p) {
-    //        for (int v : tree[u]) {
-    //            if (v == p || deleted[v]) continue;
-    //            dfs(tree, deleted, v, u);
-    //        }
-    //    }
+    public int distance(int u, int v) {
+        int a = u;
+        int b = v;
+        while (a != b) {
+            if (level[a] >= level[b])
+                a = centroidParent[a];
+            else
+                b = centroidParent[b];
+        }
+        return dist[level[a] * n + u] + dist[level[a] * n + v];
+    }
 
-    static void decompose(List<Integer>[] tree, int[] size, boolean[] deleted, int u, int total) {
-        calcSizes(tree, size, deleted, u, -1);
-        int centroid = findTreeCentroid(tree, size, deleted, u, -1, total);
-        deleted[centroid] = true;
+    public void mark(int v) {
+        for (int c = v; c != -1; c = centroidParent[c]) best[c] = Math.min(best[c], dist[level[c] * n + v]);
+    }
 
-        // process centroid vertex here
-        // dfs(tree, deleted, centroid, -1);
-        System.out.println(centroid);
+    // distance to the nearest marked vertex, or -1 if there are none
+    public int nearestMarked(int v) {
+        int res = Integer.MAX_VALUE;
+        for (int c = v; c != -1; c = centroidParent[c]) {
+            if (best[c] != Integer.MAX_VALUE)
+                res = Math.min(res, best[c] + dist[level[c] * n + v]);
+        }
+        return res == Integer.MAX_VALUE ? -1 : res;
+    }
 
-        for (int v : tree[centroid]) {
-            if (deleted[v])
+    // number of vertices at distance <= d from v
+    public int countWithin(int v, int d) {
+        int res = 0;
+        for (int c = v, prev = -1; c != -1; prev = c, c = centroidParent[c]) {
+            int t = d - dist[level[c] * n + v];
+            if (t < 0)
                 continue;
-            decompose(tree, size, deleted, v, size[v]);
+            res += counts[countFrom[c] + Math.min(t, countLen[c] - 1)];
+            // vertices of the component of prev were counted at the previous level
+            if (prev != -1)
+                res -= parentCounts[parentCountFrom[prev] + Math.min(t, parentCountLen[prev] - 1)];
         }
+        return res;
     }
 
-    public static void centroidDecomposition(List<Integer>[] tree) {
+    public static CentroidDecomposition centroidDecomposition(List<Integer>[] tree) {
         int n = tree.length;
-        decompose(tree, new int[n], new boolean[n], 0, n);
+        int m = 0;
+        for (List<Integer> list : tree) m += list.size();
+        int[] from = new int[m / 2];
+        int[] to = new int[m / 2];
+        m = 0;
+        for (int u = 0; u < n; u++) {
+            for (int v : tree[u]) {
+                if (u < v) {
+                    from[m] = u;
+                    to[m++] = v;
+                }
+            }
+        }
+        return new CentroidDecomposition(n, from, to);
     }
 
     // Usage example
@@ -64,6 +244,70 @@ public class CentroidDecomposition {
         tree[1].add(3);
         tree[3].add(2);
         tree[2].add(3);
-        centroidDecomposition(tree);
+        CentroidDecomposition cd = centroidDecomposition(tree);
+        System.out.println(Arrays.toString(cd.centroidParent));
+        System.out.println(4 == cd.countWithin(0, 2));
+
+        // random test against bfs
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int m = rnd.nextInt(50) + 1;
+            int[] from = new int[m - 1];
+            int[] to = new int[m - 1];
+            int[][] d = new int[m][m];
+            for (int v = 1; v < m; v++) {
+                from[v - 1] = rnd.nextInt(v);
+                to[v - 1] = v;
+            }
+            for (int[] row : d) Arrays.fill(row, m);
+            for (int v = 0; v < m; v++) d[v][v] = 0;
+            for (int i = 0; i < m - 1; i++) d[from[i]][to[i]] = d[to[i]][from[i]] = 1;
+            for (int k = 0; k < m; k++)
+                for (int i = 0; i < m; i++)
+                    for (int j = 0; j < m; j++) d[i][j] = Math.min(d[i][j], d[i][k] + d[k][j]);
+            CentroidDecomposition t = new CentroidDecomposition(m, from, to);
+            boolean[] marked = new boolean[m];
+            for (int q = 0; q < 100; q++) {
+                int u = rnd.nextInt(m);
+                int v = rnd.nextInt(m);
+                int r = rnd.nextInt(m + 1);
+                int within = 0;
+                int nearest = -1;
+                for (int w = 0; w < m; w++) {
+                    if (d[u][w] <= r)
+                        ++within;
+                    if (marked[w] && (nearest == -1 || d[u][w] < nearest))
+                        nearest = d[u][w];
+                }
+                if (t.distance(u, v) != d[u][v] || t.countWithin(u, r) != within || t.nearestMarked(u) != nearest)
+                    throw new RuntimeException();
+                if (rnd.nextInt(5) == 0) {
+                    marked[v] = true;
+                    t.mark(v);
+                }
+            }
+        }
+        System.out.println("Test passed");
+
+        // path graph, which needs a traversal deeper than the call stack allows
+        n = 1_000_000;
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        for (int v = 1; v < n; v++) {
+            from[v - 1] = v - 1;
+            to[v - 1] = v;
+        }
+        long time = System.currentTimeMillis();
+        CentroidDecomposition path = new CentroidDecomposition(n, from, to);
+        System.out.println("build of path with " + n + " vertices: " + (System.currentTimeMillis() - time) + " ms");
+        time = System.currentTimeMillis();
+        long sum = 0;
+        for (int q = 0; q < n; q++) {
+            int v = rnd.nextInt(n);
+            if (q % 16 == 0)
+                path.mark(v);
+            sum += path.countWithin(v, rnd.nextInt(n)) + path.nearestMarked(v);
+        }
+        System.out.println(n + " queries: " + (System.currentTimeMillis() - time) + " ms " + sum);
     }
 }
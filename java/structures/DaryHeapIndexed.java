@@ -0,0 +1,278 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// https://en.wikipedia.org/wiki/D-ary_heap with the same interface as BinaryHeapIndexed
+// invariant: heap[parent] <= heap[child]
+// Element k is stored at k + d - 1, so the d children of a node start at a multiple of d:
+// with d = 4 or 8 the children keys share one or two cache lines and sift down reads
+// one line per level, while the tree is log2(d) times shallower than a binary heap.
+// Sifting moves a hole instead of swapping, so each level writes one key and one id.
+public class DaryHeapIndexed {
+    final int shift;
+    final int d;
+    final int off;
+    int[] heap;
+    int[] pos2Id;
+    int[] id2Pos;
+    public int size;
+
+    // d must be a power of two
+    public DaryHeapIndexed(int n, int d) {
+        if (Integer.bitCount(d) != 1 || d < 2)
+            throw new IllegalArgumentException("d must be a power of two");
+        this.d = d;
+        shift = Integer.numberOfTrailingZeros(d);
+        off = d - 1;
+        int cap = n + off + d;
+        heap = new int[cap];
+        pos2Id = new int[cap];
+        id2Pos = new int[n];
+    }
+
+    public int minValue() {
+        return heap[off];
+    }
+
+    public void add(int id, int value) {
+        int pos = off + size++;
+        pos2Id[pos] = id;
+        up(pos, value);
+    }
+
+    public int removeMin() {
+        int removedId = pos2Id[off];
+        int last = off + --size;
+        if (size > 0) {
+            pos2Id[off] = pos2Id[last];
+            down(off, heap[last]);
+        }
+        return removedId;
+    }
+
+    public void remove(int id) {
+        int pos = id2Pos[id];
+        int last = off + --size;
+        if (pos == last)
+            return;
+        pos2Id[pos] = pos2Id[last];
+        int value = heap[last];
+        if (value < heap[pos])
+            up(pos, value);
+        else
+            down(pos, value);
+    }
+
+    public void changeValue(int id, int value) {
+        int pos = id2Pos[id];
+        if (heap[pos] < value)
+            down(pos, value);
+        else if (heap[pos] > value)
+            up(pos, value);
+    }
+
+    // Changes the values of count ids at once. When the batch is a large part of the heap,
+    // the values are assigned in place and the heap is rebuilt bottom-up in O(size)
+    // instead of O(count * log(size)) separate sifts.
+    public void changeValues(int[] ids, int[] values, int count) {
+        int depth = (32 - Integer.numberOfLeadingZeros(size)) / shift;
+        if ((long) count * (depth + 1) < size) {
+            for (int i = 0; i < count; i++) changeValue(ids[i], values[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++) heap[id2Pos[ids[i]]] = values[i];
+        int last = off + size - 1;
+        for (int pos = parent(last); pos >= off; pos--) down(pos, heap[pos]);
+    }
+
+    public void changeValues(int[] ids, int[] values) {
+        changeValues(ids, values, ids.length);
+    }
+
+    int parent(int pos) {
+        return (pos >> shift) + off - 1;
+    }
+
+    int firstChild(int pos) {
+        return pos - off + 1 << shift;
+    }
+
+    // places value, which belongs to pos2Id[pos], at pos or above
+    void up(int pos, int value) {
+        int id = pos2Id[pos];
+        while (pos > off) {
+            int parent = parent(pos);
+            if (value >= heap[parent])
+                break;
+            heap[pos] = heap[parent];
+            pos2Id[pos] = pos2Id[parent];
+            id2Pos[pos2Id[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = value;
+        pos2Id[pos] = id;
+        id2Pos[id] = pos;
+    }
+
+    // places value, which belongs to pos2Id[pos], at pos or below
+    void down(int pos, int value) {
+        int id = pos2Id[pos];
+        int end = off + size;
+        while (true) {
+            int child = firstChild(pos);
+            if (child >= end)
+                break;
+            int best = child;
+            int bestValue = heap[child];
+            for (int c = child + 1, last = Math.min(child + d, end); c < last; c++) {
+                if (heap[c] < bestValue) {
+                    bestValue = heap[c];
+                    best = c;
+                }
+            }
+            if (value <= bestValue)
+                break;
+            heap[pos] = bestValue;
+            pos2Id[pos] = pos2Id[best];
+            id2Pos[pos2Id[pos]] = pos;
+            pos = best;
+        }
+        heap[pos] = value;
+        pos2Id[pos] = id;
+        id2Pos[id] = pos;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        DaryHeapIndexed heap = new DaryHeapIndexed(10, 4);
+        heap.add(0, 4);
+        heap.add(1, 5);
+        heap.add(2, 2);
+
+        heap.changeValue(1, 3);
+        heap.changeValue(2, 6);
+        heap.remove(0);
+
+        // print elements in sorted order
+        while (heap.size != 0) {
+            System.out.println(heap.minValue() + " " + heap.removeMin());
+        }
+
+        // random test against sorting
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(200) + 1;
+            DaryHeapIndexed h = new DaryHeapIndexed(n, 2 << rnd.nextInt(4));
+            int[] value = new int[n];
+            boolean[] in = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                value[i] = rnd.nextInt(100);
+                h.add(i, value[i]);
+                in[i] = true;
+            }
+            for (int i = 0; i < n / 4; i++) {
+                int id = rnd.nextInt(n);
+                if (in[id]) {
+                    h.remove(id);
+                    in[id] = false;
+                }
+            }
+            int[] ids = new int[n];
+            int[] values = new int[n];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (in[i] && rnd.nextInt(3) == 0) {
+                    ids[count] = i;
+                    values[count++] = value[i] = rnd.nextInt(100);
+                }
+            }
+            if (rnd.nextBoolean())
+                h.changeValues(ids, values, count);
+            else
+                for (int i = 0; i < count; i++) h.changeValue(ids[i], values[i]);
+            int[] expected = new int[n];
+            int m = 0;
+            for (int i = 0; i < n; i++)
+                if (in[i])
+                    expected[m++] = value[i];
+            Arrays.sort(expected, 0, m);
+            for (int i = 0; i < m; i++) {
+                if (h.minValue() != expected[i] || value[h.removeMin()] != expected[i])
+                    throw new RuntimeException();
+            }
+            if (h.size != 0)
+                throw new RuntimeException();
+        }
+
+        // Dijkstra on a road-like grid of 2^20 vertices with random travel times
+        int side = 1 << 10;
+        int n = side * side;
+        int[] start = new int[n + 1];
+        int[] to = new int[4 * n];
+        int[] cost = new int[4 * n];
+        for (int u = 0, e = 0; u < n; u++) {
+            start[u] = e;
+            int x = u % side;
+            int y = u / side;
+            for (int[] dir : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+                int nx = x + dir[0];
+                int ny = y + dir[1];
+                if (nx >= 0 && nx < side && ny >= 0 && ny < side) {
+                    to[e] = ny * side + nx;
+                    cost[e++] = rnd.nextInt(1000) + 1;
+                }
+            }
+            start[u + 1] = e;
+        }
+        for (int round = 0; round < 5; round++) {
+            long time = System.currentTimeMillis();
+            int[] dist1 = new int[n];
+            Arrays.fill(dist1, Integer.MAX_VALUE);
+            dist1[0] = 0;
+            BinaryHeapIndexed b = new BinaryHeapIndexed(n);
+            b.add(0, 0);
+            while (b.size != 0) {
+                int u = b.removeMin();
+                for (int e = start[u]; e < start[u + 1]; e++) {
+                    int v = to[e];
+                    int nd = dist1[u] + cost[e];
+                    if (dist1[v] > nd) {
+                        if (dist1[v] == Integer.MAX_VALUE)
+                            b.add(v, nd);
+                        else
+                            b.changeValue(v, nd);
+                        dist1[v] = nd;
+                    }
+                }
+            }
+            StringBuilder sb = new StringBuilder("BinaryHeapIndexed " + (System.currentTimeMillis() - time) + " ms");
+            for (int arity : new int[] {4, 8}) {
+                time = System.currentTimeMillis();
+                int[] dist2 = new int[n];
+                Arrays.fill(dist2, Integer.MAX_VALUE);
+                dist2[0] = 0;
+                DaryHeapIndexed h = new DaryHeapIndexed(n, arity);
+                h.add(0, 0);
+                while (h.size != 0) {
+                    int u = h.removeMin();
+                    for (int e = start[u]; e < start[u + 1]; e++) {
+                        int v = to[e];
+                        int nd = dist2[u] + cost[e];
+                        if (dist2[v] > nd) {
+                            if (dist2[v] == Integer.MAX_VALUE)
+                                h.add(v, nd);
+                            else
+                                h.changeValue(v, nd);
+                            dist2[v] = nd;
+                        }
+                    }
+                }
+                sb.append(", ").append(arity).append("-ary ").append(System.currentTimeMillis() - time).append(" ms");
+                if (!Arrays.equals(dist1, dist2))
+                    throw new RuntimeException();
+            }
+            System.out.println(sb);
+        }
+    }
+}
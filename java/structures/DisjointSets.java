@@ -1,30 +1,183 @@
 package structures;
 
-// https://en.wikipedia.org/wiki/Disjoint-set_data_structure with path compression heuristic
-// Complexity of operations is O(log(n)) on average
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// https://en.wikipedia.org/wiki/Disjoint-set_data_structure with union by size and path halving
+// A root stores minus the size of its set, so one int[] holds both parents and sizes.
+// Complexity of operations is O(alpha(n)) amortized
+// Concurrent is the lock-free variant with the same linking rule for many threads calling unite at once
 public class DisjointSets {
     public static int[] createSets(int size) {
         int[] p = new int[size];
-        for (int i = 0; i < size; i++) p[i] = i;
+        for (int i = 0; i < size; i++) p[i] = -1;
         return p;
     }
 
+    // iterative, so long chains cannot overflow the stack
     public static int root(int[] p, int x) {
-        return x == p[x] ? x : (p[x] = root(p, p[x]));
+        while (p[x] >= 0) {
+            int px = p[x];
+            if (p[px] < 0)
+                return px;
+            x = p[x] = p[px];
+        }
+        return x;
     }
 
     public static boolean unite(int[] p, int a, int b) {
         a = root(p, a);
         b = root(p, b);
-        p[a] = b;
-        return a != b;
+        if (a == b)
+            return false;
+        // unite smaller component to larger component
+        if (p[a] > p[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        p[a] += p[b];
+        p[b] = a;
+        return true;
+    }
+
+    public static int size(int[] p, int x) {
+        return -p[root(p, x)];
+    }
+
+    // Lock-free disjoint sets (Anderson and Woll style). Each element is one long: the parent in the low half
+    // and, while the element is a root, the size of its set in the high half. The smaller root, ties broken by
+    // index, is linked below the larger one with one compareAndSet on its whole word. Sizes of roots only grow,
+    // so two threads can never link two roots below each other. The size of the linked set is then added to
+    // the current root of the other one, following it up if it was linked meanwhile.
+    // Path halving also uses compareAndSet: a failed shortcut is simply skipped.
+    public static class Concurrent {
+        static final long SIZE = 0xFFFFFFFF00000000L;
+
+        final AtomicLongArray p;
+
+        public Concurrent(int size) {
+            p = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) p.set(i, 1L << 32 | i);
+        }
+
+        public int root(int x) {
+            while (true) {
+                long w = p.get(x);
+                int px = (int) w;
+                if (px == x)
+                    return x;
+                int ppx = (int) p.get(px);
+                if (px != ppx)
+                    p.compareAndSet(x, w, w & SIZE | ppx);
+                x = ppx;
+            }
+        }
+
+        // returns true if this call joined two different sets
+        public boolean unite(int a, int b) {
+            while (true) {
+                a = root(a);
+                b = root(b);
+                if (a == b)
+                    return false;
+                long wa = p.get(a);
+                long wb = p.get(b);
+                if ((int) wa != a || (int) wb != b)
+                    continue;
+                if (wa >>> 32 > wb >>> 32 || wa >>> 32 == wb >>> 32 && a > b) {
+                    int t = a;
+                    a = b;
+                    b = t;
+                    long tw = wa;
+                    wa = wb;
+                    wb = tw;
+                }
+                if (!p.compareAndSet(a, wa, wa & SIZE | b))
+                    continue;
+                while (true) {
+                    wb = p.get(b);
+                    if ((int) wb != b)
+                        b = root(b);
+                    else if (p.compareAndSet(b, wb, wb + (wa & SIZE)))
+                        return true;
+                }
+            }
+        }
+
+        // linearizable: a root that is still a root after both finds proves the sets differ
+        public boolean same(int a, int b) {
+            while (true) {
+                a = root(a);
+                b = root(b);
+                if (a == b)
+                    return true;
+                if ((int) p.get(a) == a)
+                    return false;
+            }
+        }
+
+        // exact once no unite is running, a lower bound during one
+        public int size(int x) {
+            return (int) (p.get(root(x)) >>> 32);
+        }
     }
 
     // Usage example
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         int[] p = createSets(10);
         System.out.println(false == (root(p, 0) == root(p, 9)));
         unite(p, 0, 9);
         System.out.println(true == (root(p, 0) == root(p, 9)));
+        System.out.println(2 == size(p, 9));
+
+        // a chain that would overflow the stack of a recursive root
+        int n = 10_000_000;
+        p = createSets(n);
+        for (int i = 0; i + 1 < n; i++) p[i] = i + 1;
+        System.out.println(n - 1 == root(p, 0));
+
+        // threads share the edges of a random graph, checked against the sequential sets
+        n = 1 << 22;
+        int m = 1 << 23;
+        Random rnd = new Random(1);
+        int[] a = rnd.ints(m, 0, n).toArray();
+        int[] b = rnd.ints(m, 0, n).toArray();
+        p = createSets(n);
+        long time = System.currentTimeMillis();
+        int components = n;
+        for (int i = 0; i < m; i++)
+            if (unite(p, a[i], b[i]))
+                --components;
+        System.out.println("DisjointSets: " + (System.currentTimeMillis() - time) + " ms");
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            Concurrent t = new Concurrent(n);
+            int[] united = new int[threads];
+            Thread[] workers = new Thread[threads];
+            time = System.currentTimeMillis();
+            for (int k = 0; k < threads; k++) {
+                int id = k;
+                int from = (int) ((long) m * k / threads);
+                int to = (int) ((long) m * (k + 1) / threads);
+                workers[k] = new Thread(() -> {
+                    for (int i = from; i < to; i++)
+                        if (t.unite(a[i], b[i]))
+                            ++united[id];
+                });
+                workers[k].start();
+            }
+            for (Thread w : workers) w.join();
+            System.out.println("Concurrent, " + threads + " threads: " + (System.currentTimeMillis() - time) + " ms");
+            int total = 0;
+            for (int u : united) total += u;
+            if (n - total != components)
+                throw new RuntimeException();
+            for (int i = 0; i < 1000; i++) {
+                int x = rnd.nextInt(n);
+                int y = rnd.nextInt(n);
+                if (t.same(x, y) != (root(p, x) == root(p, y)) || t.size(x) != size(p, x))
+                    throw new RuntimeException();
+            }
+        }
     }
 }
@@ -0,0 +1,109 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Static sorted array in Eytzinger (BFS) order: node k has children 2k and 2k+1.
+// The first levels of the search stay hot in cache, and the 16 candidates four levels
+// below node k lie in the contiguous range [16k, 16k + 16), i.e. in one or two cache lines.
+// https://arxiv.org/abs/1509.05053
+public class EytzingerArray {
+    // b[1..n] holds the values in BFS order, index[k] is the position of b[k] in sorted order
+    final int[] b;
+    final int[] index;
+    final int n;
+
+    // a must be sorted
+    public EytzingerArray(int[] a) {
+        n = a.length;
+        b = new int[n + 1];
+        index = new int[n + 1];
+        fill(a, 0, 1);
+    }
+
+    // in-order traversal of the implicit tree assigns sorted values, iteratively to avoid recursion
+    void fill(int[] a, int i, int k) {
+        int[] stack = new int[64];
+        int sp = 0;
+        while (true) {
+            while (k <= n) {
+                stack[sp++] = k;
+                k = 2 * k;
+            }
+            if (sp == 0)
+                break;
+            k = stack[--sp];
+            b[k] = a[i];
+            index[k] = i++;
+            k = 2 * k + 1;
+        }
+    }
+
+    // always 0 and never written. The prefetching loads in lowerBound are masked with it, so JIT cannot
+    // prove them dead and drop them, while the instance stays read-only and safe to share between threads.
+    static int prefetchMask;
+
+    // Returns min(i | a[i] >= x), or n if there is no such i. Same as the insertion point of Arrays.binarySearch
+    public int lowerBound(int x) {
+        int k = 1;
+        int p = 0;
+        while (k <= n) {
+            // Java has no prefetch instruction: reading b[16k] starts loading the line
+            // four levels below while the comparisons on the way down run
+            int f = k << 4;
+            if (f <= n)
+                p += b[f];
+            // the loop runs exactly depth times whatever the data
+            k = 2 * k + (b[k] < x ? 1 : 0);
+        }
+        // undo the right turns made after the last left turn
+        k >>= Integer.numberOfTrailingZeros(~k) + 1;
+        return (k == 0 ? n : index[k]) | (p & prefetchMask);
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        EytzingerArray e = new EytzingerArray(new int[] {1, 3, 3, 5, 8, 13});
+        System.out.println(0 == e.lowerBound(0));
+        System.out.println(1 == e.lowerBound(3));
+        System.out.println(3 == e.lowerBound(4));
+        System.out.println(6 == e.lowerBound(14));
+
+        Random rnd = new Random(1);
+        for (int step = 0; step < 10_000; step++) {
+            int n = rnd.nextInt(50);
+            int[] a = rnd.ints(n, 0, 100).sorted().toArray();
+            EytzingerArray t = new EytzingerArray(a);
+            for (int x = -1; x <= 101; x++) {
+                int lo = 0;
+                while (lo < n && a[lo] < x) ++lo;
+                if (t.lowerBound(x) != lo)
+                    throw new RuntimeException();
+            }
+        }
+
+        // lookups against Arrays.binarySearch at L1, L2, L3 and DRAM sized inputs
+        int queries = 10_000_000;
+        for (int n : new int[] {1 << 12, 1 << 16, 1 << 21, 1 << 25}) {
+            // distinct values, so that Arrays.binarySearch finds the same position
+            int[] a = new int[n];
+            for (int i = 0; i < n; i++) a[i] = i * 32 + rnd.nextInt(32);
+            int[] q = rnd.ints(queries, 0, n * 32).toArray();
+            EytzingerArray t = new EytzingerArray(a);
+            long time = System.currentTimeMillis();
+            long h1 = 0;
+            for (int x : q) {
+                int i = Arrays.binarySearch(a, x);
+                h1 += i >= 0 ? i : -i - 1;
+            }
+            long binarySearchTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h2 = 0;
+            for (int x : q) h2 += t.lowerBound(x);
+            long eytzingerTime = System.currentTimeMillis() - time;
+            System.out.println("n = " + n + ": Arrays.binarySearch " + binarySearchTime + " ms, Eytzinger " + eytzingerTime + " ms");
+            if (h1 != h2)
+                throw new RuntimeException();
+        }
+    }
+}
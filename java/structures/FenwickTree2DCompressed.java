@@ -0,0 +1,155 @@
+package structures;
+
+import java.util.*;
+
+// Offline 2d Fenwick tree for sparse grids: all updated points are known in advance.
+// Rows are compressed, and every Fenwick row keeps the sorted list of columns that can be updated
+// through it, so memory is O(n*log(n)) for n points regardless of the grid size.
+// add and sum are O(log^2(n)).
+public class FenwickTree2DCompressed {
+    // distinct rows in sorted order
+    final int[] rows;
+    // Fenwick row i holds columns cols[start[i]..start[i + 1] - 1] with values in t
+    final int[] start;
+    final int[] cols;
+    final long[] t;
+
+    // (r[i], c[i]) are the points that will be updated
+    public FenwickTree2DCompressed(int[] r, int[] c) {
+        int n = r.length;
+        rows = Arrays.stream(r).sorted().distinct().toArray();
+        int nr = rows.length;
+        // points by column, so that every Fenwick row receives its columns in sorted order
+        long[] byCol = new long[n];
+        for (int p = 0; p < n; p++) byCol[p] = (long) c[p] << 32 | Arrays.binarySearch(rows, r[p]);
+        Arrays.sort(byCol);
+        int[] cap = new int[nr + 1];
+        for (long key : byCol)
+            for (int i = (int) key; i < nr; i |= i + 1) ++cap[i + 1];
+        for (int i = 0; i < nr; i++) cap[i + 1] += cap[i];
+        int[] all = new int[cap[nr]];
+        int[] end = Arrays.copyOf(cap, nr);
+        for (long key : byCol) {
+            int col = (int) (key >> 32);
+            for (int i = (int) key; i < nr; i |= i + 1) {
+                if (end[i] == cap[i] || all[end[i] - 1] != col)
+                    all[end[i]++] = col;
+            }
+        }
+        // drop the space left by repeated columns
+        start = new int[nr + 1];
+        for (int i = 0; i < nr; i++) start[i + 1] = start[i] + end[i] - cap[i];
+        cols = new int[start[nr]];
+        for (int i = 0; i < nr; i++) System.arraycopy(all, cap[i], cols, start[i], end[i] - cap[i]);
+        t = new long[cols.length];
+    }
+
+    public void add(int r, int c, long value) {
+        int row = Arrays.binarySearch(rows, r);
+        if (row < 0)
+            throw new RuntimeException("row " + r + " was not declared");
+        for (int i = row; i < rows.length; i |= i + 1) {
+            int from = start[i];
+            int len = start[i + 1] - from;
+            int j = Arrays.binarySearch(cols, from, from + len, c);
+            if (j < 0)
+                throw new RuntimeException("point (" + r + ", " + c + ") was not declared");
+            for (j -= from; j < len; j |= j + 1) t[from + j] += value;
+        }
+    }
+
+    // sum[(-inf, -inf), (r, c)]
+    public long sum(int r, int c) {
+        long res = 0;
+        for (int i = upperBound(rows, 0, rows.length, r) - 1; i >= 0; i = (i & (i + 1)) - 1) {
+            int from = start[i];
+            for (int j = upperBound(cols, from, start[i + 1], c) - from - 1; j >= 0; j = (j & (j + 1)) - 1)
+                res += t[from + j];
+        }
+        return res;
+    }
+
+    // sum[(r1, c1), (r2, c2)]
+    public long sum(int r1, int c1, int r2, int c2) {
+        return sum(r2, c2) - sum(r1 - 1, c2) - sum(r2, c1 - 1) + sum(r1 - 1, c1 - 1);
+    }
+
+    // first position in [from, to) with a[i] > key
+    static int upperBound(int[] a, int from, int to, int key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (a[mid] <= key)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
+    long memoryBytes() {
+        return rows.length * 4L + start.length * 4L + cols.length * 4L + t.length * 8L;
+    }
+
+    // random test, and sum latency on a 10^5 x 10^5 grid against FenwickTreeHashed
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            int range = rnd.nextInt(20) + 1;
+            int[] r = rnd.ints(n, -range, range).toArray();
+            int[] c = rnd.ints(n, -range, range).toArray();
+            FenwickTree2DCompressed t = new FenwickTree2DCompressed(r, c);
+            long[][] grid = new long[2 * range][2 * range];
+            for (int q = 0; q < 100; q++) {
+                int p = rnd.nextInt(n);
+                int v = rnd.nextInt(100) - 50;
+                t.add(r[p], c[p], v);
+                grid[r[p] + range][c[p] + range] += v;
+                int r1 = rnd.nextInt(2 * range + 2) - range - 1;
+                int r2 = r1 + rnd.nextInt(range + 1 - r1);
+                int c1 = rnd.nextInt(2 * range + 2) - range - 1;
+                int c2 = c1 + rnd.nextInt(range + 1 - c1);
+                long s = 0;
+                for (int i = Math.max(r1, -range); i <= Math.min(r2, range - 1); i++)
+                    for (int j = Math.max(c1, -range); j <= Math.min(c2, range - 1); j++) s += grid[i + range][j + range];
+                if (t.sum(r1, c1, r2, c2) != s)
+                    throw new RuntimeException();
+            }
+        }
+        System.out.println("Test passed");
+
+        int side = 100_000;
+        for (int n : new int[] {10_000, 50_000}) {
+            int[] r = rnd.ints(n, 0, side).toArray();
+            int[] c = rnd.ints(n, 0, side).toArray();
+            FenwickTree2DCompressed compressed = new FenwickTree2DCompressed(r, c);
+            FenwickTreeHashed hashed = new FenwickTreeHashed(side, side);
+            for (int p = 0; p < n; p++) {
+                compressed.add(r[p], c[p], p);
+                hashed.add(r[p], c[p], p);
+            }
+            System.out.println(n + " points: compressed " + compressed.memoryBytes() / 1024 + " KB, hashed "
+                + hashed.memoryBytes() / 1024 + " KB, dense int[][] would take " + 4L * side * side / 1024 + " KB");
+            int queries = 1_000_000;
+            int[] q = rnd.ints(4 * queries, 0, side).toArray();
+            for (int round = 0; round < 2; round++) {
+                long time = System.nanoTime();
+                long s1 = 0;
+                for (int i = 0; i < 4 * queries; i += 4)
+                    s1 += compressed.sum(Math.min(q[i], q[i + 1]), Math.min(q[i + 2], q[i + 3]), Math.max(q[i], q[i + 1]),
+                        Math.max(q[i + 2], q[i + 3]));
+                long compressedTime = System.nanoTime() - time;
+                time = System.nanoTime();
+                long s2 = 0;
+                for (int i = 0; i < 4 * queries; i += 4)
+                    s2 += hashed.sum(Math.min(q[i], q[i + 1]), Math.min(q[i + 2], q[i + 3]), Math.max(q[i], q[i + 1]),
+                        Math.max(q[i + 2], q[i + 3]));
+                long hashedTime = System.nanoTime() - time;
+                if (s1 != s2)
+                    throw new RuntimeException();
+                System.out.println("sum(r1, c1, r2, c2): compressed " + compressedTime / queries + " ns, hashed "
+                    + hashedTime / queries + " ns");
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package structures;
+
+import java.util.*;
+
+// Offline 3d Fenwick tree for sparse grids: x is compressed, and every Fenwick node over x keeps
+// a FenwickTree2DCompressed of the points that can be updated through it.
+// Memory is O(n*log^2(n)) for n points regardless of the grid size, add and sum are O(log^3(n)).
+public class FenwickTree3DCompressed {
+    // distinct x in sorted order
+    final int[] xs;
+    final FenwickTree2DCompressed[] t;
+
+    // (x[i], y[i], z[i]) are the points that will be updated
+    public FenwickTree3DCompressed(int[] x, int[] y, int[] z) {
+        int n = x.length;
+        xs = Arrays.stream(x).sorted().distinct().toArray();
+        int nx = xs.length;
+        int[] xi = new int[n];
+        int[] start = new int[nx + 1];
+        for (int p = 0; p < n; p++) {
+            xi[p] = Arrays.binarySearch(xs, x[p]);
+            for (int i = xi[p]; i < nx; i |= i + 1) ++start[i + 1];
+        }
+        for (int i = 0; i < nx; i++) start[i + 1] += start[i];
+        int[] ys = new int[start[nx]];
+        int[] zs = new int[start[nx]];
+        int[] end = Arrays.copyOf(start, nx);
+        for (int p = 0; p < n; p++) {
+            for (int i = xi[p]; i < nx; i |= i + 1) {
+                ys[end[i]] = y[p];
+                zs[end[i]++] = z[p];
+            }
+        }
+        t = new FenwickTree2DCompressed[nx];
+        for (int i = 0; i < nx; i++)
+            t[i] = new FenwickTree2DCompressed(
+                Arrays.copyOfRange(ys, start[i], start[i + 1]), Arrays.copyOfRange(zs, start[i], start[i + 1]));
+    }
+
+    public void add(int x, int y, int z, long value) {
+        int i = Arrays.binarySearch(xs, x);
+        if (i < 0)
+            throw new RuntimeException("x " + x + " was not declared");
+        for (; i < xs.length; i |= i + 1) t[i].add(y, z, value);
+    }
+
+    // sum[(-inf, -inf, -inf), (x, y, z)]
+    public long sum(int x, int y, int z) {
+        long res = 0;
+        for (int i = FenwickTree2DCompressed.upperBound(xs, 0, xs.length, x) - 1; i >= 0; i = (i & (i + 1)) - 1)
+            res += t[i].sum(y, z);
+        return res;
+    }
+
+    // sum[(x1, y1, z1), (x2, y2, z2)]
+    public long sum(int x1, int y1, int z1, int x2, int y2, int z2) {
+        return sum(x2, y2, z2) - sum(x1 - 1, y2, z2) - sum(x2, y1 - 1, z2) - sum(x2, y2, z1 - 1)
+            + sum(x1 - 1, y1 - 1, z2) + sum(x1 - 1, y2, z1 - 1) + sum(x2, y1 - 1, z1 - 1)
+            - sum(x1 - 1, y1 - 1, z1 - 1);
+    }
+
+    long memoryBytes() {
+        long res = xs.length * 4L;
+        for (FenwickTree2DCompressed tree : t) res += tree.memoryBytes();
+        return res;
+    }
+
+    // random test, and sum latency on a 10^5 x 10^5 x 10^5 grid against FenwickTreeHashed
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            int range = rnd.nextInt(10) + 1;
+            int[] x = rnd.ints(n, 0, range).toArray();
+            int[] y = rnd.ints(n, 0, range).toArray();
+            int[] z = rnd.ints(n, 0, range).toArray();
+            FenwickTree3DCompressed t = new FenwickTree3DCompressed(x, y, z);
+            FenwickTreeHashed h = new FenwickTreeHashed(range, range, range);
+            for (int q = 0; q < 100; q++) {
+                int p = rnd.nextInt(n);
+                int v = rnd.nextInt(100) - 50;
+                t.add(x[p], y[p], z[p], v);
+                h.add(x[p], y[p], z[p], v);
+                int x1 = rnd.nextInt(range);
+                int x2 = x1 + rnd.nextInt(range - x1);
+                int y1 = rnd.nextInt(range);
+                int y2 = y1 + rnd.nextInt(range - y1);
+                int z1 = rnd.nextInt(range);
+                int z2 = z1 + rnd.nextInt(range - z1);
+                if (t.sum(x1, y1, z1, x2, y2, z2) != h.sum(x1, y1, z1, x2, y2, z2))
+                    throw new RuntimeException();
+            }
+        }
+        System.out.println("Test passed");
+
+        int side = 100_000;
+        int n = 1_000;
+        int[] x = rnd.ints(n, 0, side).toArray();
+        int[] y = rnd.ints(n, 0, side).toArray();
+        int[] z = rnd.ints(n, 0, side).toArray();
+        FenwickTree3DCompressed compressed = new FenwickTree3DCompressed(x, y, z);
+        FenwickTreeHashed hashed = new FenwickTreeHashed(side, side, side);
+        for (int p = 0; p < n; p++) {
+            compressed.add(x[p], y[p], z[p], p);
+            hashed.add(x[p], y[p], z[p], p);
+        }
+        System.out.println(n + " points: compressed " + compressed.memoryBytes() / 1024 + " KB, hashed "
+            + hashed.memoryBytes() / 1024 + " KB");
+        int queries = 100_000;
+        int[] q = rnd.ints(6 * queries, 0, side).toArray();
+        for (int round = 0; round < 2; round++) {
+            long time = System.nanoTime();
+            long s1 = 0;
+            for (int i = 0; i < 6 * queries; i += 6)
+                s1 += compressed.sum(Math.min(q[i], q[i + 1]), Math.min(q[i + 2], q[i + 3]), Math.min(q[i + 4], q[i + 5]),
+                    Math.max(q[i], q[i + 1]), Math.max(q[i + 2], q[i + 3]), Math.max(q[i + 4], q[i + 5]));
+            long compressedTime = System.nanoTime() - time;
+            time = System.nanoTime();
+            long s2 = 0;
+            for (int i = 0; i < 6 * queries; i += 6)
+                s2 += hashed.sum(Math.min(q[i], q[i + 1]), Math.min(q[i + 2], q[i + 3]), Math.min(q[i + 4], q[i + 5]),
+                    Math.max(q[i], q[i + 1]), Math.max(q[i + 2], q[i + 3]), Math.max(q[i + 4], q[i + 5]));
+            long hashedTime = System.nanoTime() - time;
+            if (s1 != s2)
+                throw new RuntimeException();
+            System.out.println("sum(x1, y1, z1, x2, y2, z2): compressed " + compressedTime / queries + " ns, hashed "
+                + hashedTime / queries + " ns");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package structures;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+// Thread-safe Fenwick tree for many writers. Each thread adds into one of several striped
+// copies of the tree with atomic adds, and sum() merges the stripes on read.
+//
+// Consistency: add(j) and sum(i) with i >= j share exactly one cell, so every sum() sees
+// each add() either completely or not at all. Adds that finished before sum() started are
+// always included; adds running concurrently with sum() may or may not be. As with
+// java.util.concurrent.atomic.LongAdder, sum() is exact once writers are quiescent,
+// but two concurrent adds may be observed in different orders by different readers.
+public class FenwickTreeConcurrent {
+    final int n;
+    final AtomicLongArray[] stripes;
+
+    // stripes is rounded up to a power of two, about the number of writer threads is a good choice
+    public FenwickTreeConcurrent(int n, int stripes) {
+        this.n = n;
+        this.stripes = new AtomicLongArray[Integer.highestOneBit(Math.max(1, 2 * stripes - 1))];
+        for (int k = 0; k < this.stripes.length; k++) this.stripes[k] = new AtomicLongArray(n);
+    }
+
+    AtomicLongArray stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return stripes[(h >>> 16) & (stripes.length - 1)];
+    }
+
+    // T[i] += value
+    public void add(int i, long value) {
+        AtomicLongArray t = stripe();
+        for (; i < n; i |= i + 1) t.getAndAdd(i, value);
+    }
+
+    // sum[0..i]
+    public long sum(int i) {
+        long res = 0;
+        for (AtomicLongArray t : stripes)
+            for (int j = i; j >= 0; j = (j & (j + 1)) - 1) res += t.get(j);
+        return res;
+    }
+
+    // sum[a..b]
+    public long sum(int a, int b) {
+        return sum(b) - sum(a - 1);
+    }
+
+    // Usage example
+    public static void main(String[] args) throws InterruptedException {
+        FenwickTreeConcurrent ft = new FenwickTreeConcurrent(10, 4);
+        ft.add(0, 1);
+        ft.add(9, -2);
+        System.out.println(-1 == ft.sum(0, 9));
+
+        // contention benchmark: threads bump random counters, against FenwickTree under a global lock
+        int n = 1 << 20;
+        int opsPerThread = 2_000_000;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            int[] locked = new int[n];
+            long time = System.currentTimeMillis();
+            run(threads, opsPerThread, n, i -> {
+                synchronized (locked) {
+                    FenwickTree.add(locked, i, 1);
+                }
+            });
+            long lockedTime = System.currentTimeMillis() - time;
+
+            FenwickTreeConcurrent t = new FenwickTreeConcurrent(n, threads);
+            time = System.currentTimeMillis();
+            run(threads, opsPerThread, n, i -> t.add(i, 1));
+            long stripedTime = System.currentTimeMillis() - time;
+
+            System.out.println(threads + " threads: locked " + lockedTime + " ms, striped " + stripedTime + " ms");
+            if (t.sum(n - 1) != (long) threads * opsPerThread || FenwickTree.sum(locked, n - 1) != threads * opsPerThread)
+                throw new RuntimeException();
+        }
+    }
+
+    static void run(int threads, int ops, int n, IntConsumer op) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int k = 0; k < threads; k++) {
+            int seed = k + 1;
+            workers[k] = new Thread(() -> {
+                int x = seed;
+                for (int j = 0; j < ops; j++) {
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    op.accept((x & 0x7fffffff) % n);
+                }
+            });
+            workers[k].start();
+        }
+        for (Thread w : workers) w.join();
+    }
+}
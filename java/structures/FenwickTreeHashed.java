@@ -0,0 +1,147 @@
+package structures;
+
+import java.util.*;
+
+// Online 2d/3d Fenwick tree for sparse grids: only the touched Fenwick cells are stored,
+// in an open-addressing hash map from the packed cell index to its value.
+// Memory is O(n*log^2(size)) for n updates in 2d, add and sum are O(log^2(size)) hash lookups.
+public class FenwickTreeHashed {
+    final int n1;
+    final int n2;
+    final int n3;
+    // key + 1 of every slot, 0 for empty slots
+    long[] keys;
+    long[] values;
+    int size;
+    // 64 - log2(keys.length): the slot is the top bits of the multiplied key
+    int shift = 64 - 4;
+
+    public FenwickTreeHashed(int rows, int cols) {
+        this(rows, cols, 1);
+    }
+
+    public FenwickTreeHashed(int nx, int ny, int nz) {
+        n1 = nx;
+        n2 = ny;
+        n3 = nz;
+        keys = new long[16];
+        values = new long[16];
+    }
+
+    int slot(long key) {
+        int mask = keys.length - 1;
+        int h = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (keys[h] != 0 && keys[h] != key + 1) h = (h + 1) & mask;
+        return h;
+    }
+
+    long get(long key) {
+        return values[slot(key)];
+    }
+
+    void addCell(long key, long value) {
+        int h = slot(key);
+        if (keys[h] == 0) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                h = slot(key);
+            }
+            keys[h] = key + 1;
+            ++size;
+        }
+        values[h] += value;
+    }
+
+    void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new long[2 * oldKeys.length];
+        --shift;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int h = slot(oldKeys[i] - 1);
+                keys[h] = oldKeys[i];
+                values[h] = oldValues[i];
+            }
+        }
+    }
+
+    public void add(int r, int c, long value) {
+        add(r, c, 0, value);
+    }
+
+    public void add(int x, int y, int z, long value) {
+        for (int i = x; i < n1; i |= i + 1)
+            for (int j = y; j < n2; j |= j + 1)
+                for (int k = z; k < n3; k |= k + 1) addCell(((long) i * n2 + j) * n3 + k, value);
+    }
+
+    // sum[(0, 0), (r, c)]
+    public long sum(int r, int c) {
+        return sum(r, c, 0);
+    }
+
+    // sum[(0, 0, 0), (x, y, z)]
+    public long sum(int x, int y, int z) {
+        long res = 0;
+        for (int i = x; i >= 0; i = (i & (i + 1)) - 1)
+            for (int j = y; j >= 0; j = (j & (j + 1)) - 1)
+                for (int k = z; k >= 0; k = (k & (k + 1)) - 1) res += get(((long) i * n2 + j) * n3 + k);
+        return res;
+    }
+
+    // sum[(r1, c1), (r2, c2)]
+    public long sum(int r1, int c1, int r2, int c2) {
+        return sum(r2, c2) - sum(r1 - 1, c2) - sum(r2, c1 - 1) + sum(r1 - 1, c1 - 1);
+    }
+
+    // sum[(x1, y1, z1), (x2, y2, z2)]
+    public long sum(int x1, int y1, int z1, int x2, int y2, int z2) {
+        return sum(x2, y2, z2) - sum(x1 - 1, y2, z2) - sum(x2, y1 - 1, z2) - sum(x2, y2, z1 - 1)
+            + sum(x1 - 1, y1 - 1, z2) + sum(x1 - 1, y2, z1 - 1) + sum(x2, y1 - 1, z1 - 1)
+            - sum(x1 - 1, y1 - 1, z1 - 1);
+    }
+
+    long memoryBytes() {
+        return keys.length * 16L;
+    }
+
+    // random test against the dense trees
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int nx = rnd.nextInt(10) + 1;
+            int ny = rnd.nextInt(10) + 1;
+            int nz = rnd.nextInt(10) + 1;
+            FenwickTreeHashed t2 = new FenwickTreeHashed(nx, ny);
+            FenwickTreeHashed t3 = new FenwickTreeHashed(nx, ny, nz);
+            int[][] d2 = new int[nx][ny];
+            int[][][] d3 = new int[nx][ny][nz];
+            for (int q = 0; q < 100; q++) {
+                int x = rnd.nextInt(nx);
+                int y = rnd.nextInt(ny);
+                int z = rnd.nextInt(nz);
+                int v = rnd.nextInt(100) - 50;
+                t2.add(x, y, v);
+                t3.add(x, y, z, v);
+                FenwickTree2D.add(d2, x, y, v);
+                FenwickTree3D.add(d3, x, y, z, v);
+                int x1 = rnd.nextInt(nx);
+                int x2 = x1 + rnd.nextInt(nx - x1);
+                int y1 = rnd.nextInt(ny);
+                int y2 = y1 + rnd.nextInt(ny - y1);
+                int z1 = rnd.nextInt(nz);
+                int z2 = z1 + rnd.nextInt(nz - z1);
+                long s3 = FenwickTree3D.sum(d3, x2, y2, z2) - FenwickTree3D.sum(d3, x1 - 1, y2, z2)
+                    - FenwickTree3D.sum(d3, x2, y1 - 1, z2) - FenwickTree3D.sum(d3, x2, y2, z1 - 1)
+                    + FenwickTree3D.sum(d3, x1 - 1, y1 - 1, z2) + FenwickTree3D.sum(d3, x1 - 1, y2, z1 - 1)
+                    + FenwickTree3D.sum(d3, x2, y1 - 1, z1 - 1) - FenwickTree3D.sum(d3, x1 - 1, y1 - 1, z1 - 1);
+                if (t2.sum(x1, y1, x2, y2) != FenwickTree2D.sum(d2, x1, y1, x2, y2)
+                    || t3.sum(x1, y1, z1, x2, y2, z2) != s3)
+                    throw new RuntimeException();
+            }
+        }
+        System.out.println("Test passed");
+    }
+}
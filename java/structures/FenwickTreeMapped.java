@@ -0,0 +1,141 @@
+package structures;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Fenwick tree of longs stored in a memory-mapped file, so it can hold more than 2^31 slots
+// and keeps its state across restarts: reopening the same file gives the same tree.
+// A new file is created sparse and zero-filled, which is a valid empty tree.
+public class FenwickTreeMapped implements Closeable {
+    // one mapping covers 2^27 longs (1 GiB), below the 2 GiB limit of a single MappedByteBuffer
+    static final int CHUNK_BITS = 27;
+    static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    final long n;
+    final RandomAccessFile file;
+    final MappedByteBuffer[] chunks;
+
+    // opens an existing tree, its size is taken from the file length
+    public FenwickTreeMapped(File f) throws IOException {
+        this(f, f.length() / 8);
+    }
+
+    public FenwickTreeMapped(File f, long n) throws IOException {
+        if (f.exists() && f.length() != 0 && f.length() != n * 8)
+            throw new IllegalArgumentException("file holds " + f.length() / 8 + " slots, not " + n);
+        this.n = n;
+        file = new RandomAccessFile(f, "rw");
+        file.setLength(n * 8);
+        FileChannel channel = file.getChannel();
+        chunks = new MappedByteBuffer[(int) ((n + CHUNK_MASK) >>> CHUNK_BITS)];
+        for (int k = 0; k < chunks.length; k++) {
+            long from = (long) k << CHUNK_BITS;
+            long size = Math.min(CHUNK_MASK + 1, n - from) * 8;
+            chunks[k] = channel.map(FileChannel.MapMode.READ_WRITE, from * 8, size);
+            chunks[k].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public long size() {
+        return n;
+    }
+
+    long t(long i) {
+        return chunks[(int) (i >>> CHUNK_BITS)].getLong((int) (i & CHUNK_MASK) << 3);
+    }
+
+    void addT(long i, long value) {
+        MappedByteBuffer chunk = chunks[(int) (i >>> CHUNK_BITS)];
+        int pos = (int) (i & CHUNK_MASK) << 3;
+        chunk.putLong(pos, chunk.getLong(pos) + value);
+    }
+
+    // T[i] += value
+    public void add(long i, long value) {
+        for (; i < n; i |= i + 1) addT(i, value);
+    }
+
+    // sum[0..i]
+    public long sum(long i) {
+        long res = 0;
+        for (; i >= 0; i = (i & (i + 1)) - 1) res += t(i);
+        return res;
+    }
+
+    // sum[a..b]
+    public long sum(long a, long b) {
+        return sum(b) - sum(a - 1);
+    }
+
+    ///////////////////////////////////////////////////////
+    // interval add for Range update range query, same scheme as FenwickTreeExtended
+    public static void add(FenwickTreeMapped t1, FenwickTreeMapped t2, long a, long b, long value) {
+        t1.add(a, value);
+        t1.add(b, -value);
+        t2.add(a, -value * (a - 1));
+        t2.add(b, value * b);
+    }
+
+    // interval query
+    public static long sum(FenwickTreeMapped t1, FenwickTreeMapped t2, long i) {
+        return t1.sum(i) * i + t2.sum(i);
+    }
+    ///////////////////////////////////////////////////////
+
+    // Returns min(p | sum[0,p] >= sum), all values must be non-negative
+    public long lower_bound(long sum) {
+        long pos = 0;
+        for (long blockSize = Long.highestOneBit(n); blockSize != 0; blockSize >>= 1) {
+            long p = pos + blockSize - 1;
+            if (p < n && t(p) < sum) {
+                sum -= t(p);
+                pos += blockSize;
+            }
+        }
+        return pos;
+    }
+
+    // writes dirty pages back to the file
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) chunk.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        file.close();
+    }
+
+    // Usage example
+    public static void main(String[] args) throws IOException {
+        File f = File.createTempFile("fenwick", ".bin");
+        f.deleteOnExit();
+        try (FenwickTreeMapped t = new FenwickTreeMapped(f, 10)) {
+            t.add(0, 1);
+            t.add(9, -2);
+            System.out.println(-1 == t.sum(0, 9));
+        }
+        // state survives reopening
+        try (FenwickTreeMapped t = new FenwickTreeMapped(f)) {
+            System.out.println(-1 == t.sum(0, 9));
+            t.add(9, 2);
+            t.add(5, 1);
+            System.out.println(5 == t.lower_bound(2));
+        }
+
+        File f1 = File.createTempFile("fenwick1", ".bin");
+        File f2 = File.createTempFile("fenwick2", ".bin");
+        f1.deleteOnExit();
+        f2.deleteOnExit();
+        try (FenwickTreeMapped t1 = new FenwickTreeMapped(f1, 10); FenwickTreeMapped t2 = new FenwickTreeMapped(f2, 10)) {
+            add(t1, t2, 0, 9, 1);
+            add(t1, t2, 0, 0, -2);
+            System.out.println(8 == sum(t1, t2, 9));
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.BiConsumer;
+import java.util.Random;
 import java.util.stream.Stream;
 
 // Heavy-light decomposition with path queries. Query complexity is O(log^2(n)).
@@ -45,50 +46,80 @@ public class HeavyLight {
         in = new int[n];
 
         parent[0] = -1;
-        dfs1(0);
-        dfs2(0);
+        dfs1();
+        dfs2();
     }
 
     // Below method takes care of identifying heavy subtree of child
     // and move it to 0th index
-    int dfs1(int u) {
-        int size = 1;
-        int maxSubtree = 0;
-        for (int i = 0; i < tree[u].size(); i++) {
-            int v = tree[u].get(i);
-            if (v == parent[u])
-                continue;
-            parent[v] = u;
-            depth[v] = depth[u] + 1;
-            int subtree = dfs1(v);
-            if (maxSubtree < subtree) {
-                maxSubtree = subtree;
-                
-                // Swap ith child & 0th child
-                
-                tree[u].set(i, tree[u].set(0, v));  
-                
-                // tree[u].set(0, v) -> This method returns the element previously at the specified position.
+    // Iterative: vertices are taken in BFS order, so that children come after parents
+    // and subtree sizes can be summed in reverse order without recursion
+    void dfs1() {
+        int n = tree.length;
+        int[] order = new int[n];
+        int[] size = new int[n];
+        int cnt = 0;
+        order[cnt++] = 0;
+        for (int k = 0; k < cnt; k++) {
+            int u = order[k];
+            for (int v : tree[u]) {
+                if (v == parent[u])
+                    continue;
+                parent[v] = u;
+                depth[v] = depth[u] + 1;
+                order[cnt++] = v;
+            }
+        }
+        for (int k = n - 1; k >= 0; k--) {
+            int u = order[k];
+            size[u] += 1;
+            if (parent[u] != -1)
+                size[parent[u]] += size[u];
+        }
+        for (int u = 0; u < n; u++) {
+            int maxSubtree = 0;
+            for (int i = 0; i < tree[u].size(); i++) {
+                int v = tree[u].get(i);
+                if (v == parent[u])
+                    continue;
+                if (maxSubtree < size[v]) {
+                    maxSubtree = size[v];
+                    // Swap ith child & 0th child
+                    // tree[u].set(0, v) -> This method returns the element previously at the specified position.
+                    tree[u].set(i, tree[u].set(0, v));
+                }
             }
-            size += subtree;
         }
-        return size;
     }
 
     // If node is on the heavy path, link it's pathRoot to root parent (i.e 0)
     // If node is not on the heavy path, link it's pathRoot to itself
-    void dfs2(int u) {
-        in[u] = time++;
-        // Parent pathRoot[0] = 0
-        // Parent can have only one child point to it as pathRoot
-        for (int v : tree[u]) {
-            if (v == parent[u])
-                continue;
-            pathRoot[v] = v == tree[u].get(0) ? pathRoot[u] : v;
-            dfs2(v);
+    // Iterative preorder: children are pushed in reverse, so the heavy child at index 0 comes
+    // right after its parent and every heavy path gets consecutive labels
+    void dfs2() {
+        int[] stack = new int[tree.length];
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int u = stack[--sp];
+            in[u] = time++;
+            // Parent pathRoot[0] = 0
+            // Parent can have only one child point to it as pathRoot
+            for (int i = tree[u].size() - 1; i >= 0; i--) {
+                int v = tree[u].get(i);
+                if (v == parent[u])
+                    continue;
+                pathRoot[v] = i == 0 ? pathRoot[u] : v;
+                stack[sp++] = v;
+            }
         }
     }
 
+    // callback for a range of consecutive labels [from, to], without boxing
+    public interface SegmentConsumer {
+        void accept(int from, int to);
+    }
+
     public SegmentTree.Node get(int u, int v) {
         SegmentTree.Node[] res = {new SegmentTree.Node()};
         processPath(u, v, (a, b) -> res[0] = SegmentTree.unite(res[0], segmentTree.get(a, b)));
@@ -103,7 +134,7 @@ public class HeavyLight {
     // Whoover has higher depth gets chosen
     // if u or v is part of heavy chain then entire chain updated till its parent using ST
     // if u or v is part of light chain then we update till its parent and move up 
-    void processPath(int u, int v, BiConsumer<Integer, Integer> op) {
+    public void processPath(int u, int v, SegmentConsumer op) {
         for (; pathRoot[u] != pathRoot[v]; v = parent[pathRoot[v]]) {
             if (depth[pathRoot[u]] > depth[pathRoot[v]]) {
                 int t = u;
@@ -117,6 +148,42 @@ public class HeavyLight {
             op.accept(Math.min(in[u], in[v]) + (valuesOnVertices ? 0 : 1), Math.max(in[u], in[v]));
     }
 
+    // Answers get(u[q], v[q]) for all q at once. The label ranges of all paths are collected first
+    // and sent to the segment tree sorted by their left end, so that consecutive lookups walk
+    // neighbouring tree nodes instead of jumping around the whole tree.
+    public SegmentTree.Node[] getAll(int[] u, int[] v) {
+        int m = u.length;
+        int n = tree.length;
+        int[][] seg = new int[3][4];
+        int[] cnt = {0};
+        for (int q = 0; q < m; q++) {
+            int query = q;
+            processPath(u[q], v[q], (a, b) -> {
+                if (cnt[0] == seg[0].length)
+                    for (int k = 0; k < 3; k++) seg[k] = Arrays.copyOf(seg[k], 2 * cnt[0]);
+                seg[0][cnt[0]] = a;
+                seg[1][cnt[0]] = b;
+                seg[2][cnt[0]++] = query;
+            });
+        }
+        // counting sort of the ranges by left end
+        int segments = cnt[0];
+        int[] start = new int[n + 1];
+        for (int i = 0; i < segments; i++) ++start[seg[0][i] + 1];
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        int[] order = new int[segments];
+        for (int i = 0; i < segments; i++) order[start[seg[0][i]]++] = i;
+        SegmentTree.Node[] res = new SegmentTree.Node[m];
+        for (int q = 0; q < m; q++) res[q] = new SegmentTree.Node();
+        for (int i : order) {
+            SegmentTree.Node part = segmentTree.get(seg[0][i], seg[1][i]);
+            SegmentTree.Node r = res[seg[2][i]];
+            r.mx = Math.max(r.mx, part.mx);
+            r.sum += part.sum;
+        }
+        return res;
+    }
+
     // Usage example
     public static void main(String[] args) {
         List<Integer>[] tree = Stream.generate(ArrayList::new).limit(5).toArray(List[] ::new);
@@ -141,5 +208,44 @@ public class HeavyLight {
         hlE.modify(3, 2, 1);
         hlE.modify(1, 0, -1);
         System.out.println(1 == hlE.get(4, 2).sum);
+
+        // a path of 10^6 vertices would overflow the stack of a recursive DFS
+        int n = 1_000_000;
+        List<Integer>[] path = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+        for (int i = 0; i + 1 < n; i++) {
+            path[i].add(i + 1);
+            path[i + 1].add(i);
+        }
+        HeavyLight hlP = new HeavyLight(path, true);
+        hlP.modify(0, n - 1, 1);
+        System.out.println(n == hlP.get(n - 1, 0).sum);
+
+        // batch against one query at a time on a random tree
+        Random rnd = new Random(1);
+        n = 1 << 20;
+        List<Integer>[] t = Stream.generate(ArrayList::new).limit(n).toArray(List[] ::new);
+        for (int i = 1; i < n; i++) {
+            int p = rnd.nextInt(i);
+            t[p].add(i);
+            t[i].add(p);
+        }
+        HeavyLight hl = new HeavyLight(t, true);
+        for (int i = 0; i < 100_000; i++) hl.modify(rnd.nextInt(n), rnd.nextInt(n), rnd.nextInt(100));
+        int m = 1 << 18;
+        int[] u = rnd.ints(m, 0, n).toArray();
+        int[] v = rnd.ints(m, 0, n).toArray();
+        for (int round = 0; round < 2; round++) {
+            long time = System.currentTimeMillis();
+            long h1 = 0;
+            for (int q = 0; q < m; q++) h1 += hl.get(u[q], v[q]).sum;
+            long singleTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h2 = 0;
+            for (SegmentTree.Node r : hl.getAll(u, v)) h2 += r.sum;
+            long batchTime = System.currentTimeMillis() - time;
+            System.out.println("get " + singleTime + " ms, getAll " + batchTime + " ms");
+            if (h1 != h2)
+                throw new RuntimeException();
+        }
     }
 }
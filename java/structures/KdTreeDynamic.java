@@ -0,0 +1,431 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// 2-d tree with insert and delete, k nearest neighbours and radius queries.
+// Insert keeps the tree alpha-weight-balanced like a scapegoat tree: when a new leaf is deeper
+// than log(n) / log(1 / ALPHA), the lowest unbalanced ancestor on its path is rebuilt
+// around medians. Delete only marks the point, and the whole tree is rebuilt without
+// deleted points once they are the majority. Both give O(log(n)) amortized updates.
+// Point ids are returned by insert and stay valid until the point is deleted; queries
+// write ids into caller buffers and do not allocate.
+// https://en.wikipedia.org/wiki/Scapegoat_tree
+public class KdTreeDynamic {
+    static final double ALPHA = 0.75;
+
+    int[] x;
+    int[] y;
+    int[] left;
+    int[] right;
+    // number of nodes in the subtree, deleted ones included
+    int[] size;
+    boolean[] divX;
+    boolean[] deleted;
+    int root = -1;
+    int nodes;
+    // nodes in the tree and how many of them are not deleted
+    int total;
+    int alive;
+    int[] free = new int[16];
+    int freeCount;
+    int[] path = new int[64];
+    int[] buf = new int[16];
+    final Random rnd = new Random(1);
+
+    public KdTreeDynamic(int capacity) {
+        capacity = Math.max(capacity, 1);
+        x = new int[capacity];
+        y = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+        divX = new boolean[capacity];
+        deleted = new boolean[capacity];
+    }
+
+    public int size() {
+        return alive;
+    }
+
+    public int insert(int px, int py) {
+        int id = allocate();
+        x[id] = px;
+        y[id] = py;
+        left[id] = -1;
+        right[id] = -1;
+        size[id] = 1;
+        deleted[id] = false;
+        ++total;
+        ++alive;
+        if (root == -1) {
+            root = id;
+            divX[id] = true;
+            return id;
+        }
+        int len = 0;
+        for (int cur = root;;) {
+            if (len == path.length)
+                path = Arrays.copyOf(path, 2 * len);
+            path[len++] = cur;
+            ++size[cur];
+            boolean goLeft = divX[cur] ? px < x[cur] : py < y[cur];
+            int next = goLeft ? left[cur] : right[cur];
+            if (next == -1) {
+                if (goLeft)
+                    left[cur] = id;
+                else
+                    right[cur] = id;
+                divX[id] = !divX[cur];
+                break;
+            }
+            cur = next;
+        }
+        if (len > Math.log(total) / -Math.log(ALPHA)) {
+            for (int i = len - 1; i >= 0; i--) {
+                int node = path[i];
+                int child = i + 1 < len ? path[i + 1] : id;
+                if (size[child] <= ALPHA * size[node])
+                    continue;
+                int sub = rebuild(node);
+                if (i == 0) {
+                    root = sub;
+                } else if (left[path[i - 1]] == node) {
+                    left[path[i - 1]] = sub;
+                } else {
+                    right[path[i - 1]] = sub;
+                }
+                for (int j = i - 1; j >= 0; j--) {
+                    int p = path[j];
+                    size[p] = 1 + sizeOf(left[p]) + sizeOf(right[p]);
+                }
+                break;
+            }
+        }
+        return id;
+    }
+
+    public void delete(int id) {
+        deleted[id] = true;
+        --alive;
+        if (alive < total / 2)
+            root = root == -1 ? -1 : rebuild(root);
+    }
+
+    int sizeOf(int node) {
+        return node == -1 ? 0 : size[node];
+    }
+
+    int allocate() {
+        if (freeCount > 0)
+            return free[--freeCount];
+        if (nodes == x.length) {
+            int capacity = 2 * nodes;
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            size = Arrays.copyOf(size, capacity);
+            divX = Arrays.copyOf(divX, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+        }
+        return nodes++;
+    }
+
+    // rebuilds the subtree of node around medians, deleted nodes are dropped and their ids freed
+    int rebuild(int node) {
+        boolean axis = divX[node];
+        int n = size[node];
+        if (buf.length < n)
+            buf = new int[Math.max(n, 2 * buf.length)];
+        int cnt = 0;
+        buf[cnt++] = node;
+        for (int i = 0; i < cnt; i++) {
+            int v = buf[i];
+            if (left[v] != -1)
+                buf[cnt++] = left[v];
+            if (right[v] != -1)
+                buf[cnt++] = right[v];
+        }
+        int m = 0;
+        for (int i = 0; i < cnt; i++) {
+            int v = buf[i];
+            if (deleted[v]) {
+                if (freeCount == free.length)
+                    free = Arrays.copyOf(free, 2 * freeCount);
+                free[freeCount++] = v;
+            } else {
+                buf[m++] = v;
+            }
+        }
+        total -= cnt - m;
+        return build(0, m, axis);
+    }
+
+    int build(int low, int high, boolean axis) {
+        if (low >= high)
+            return -1;
+        int mid = (low + high) >>> 1;
+        nth_element(low, high, mid, axis);
+        int node = buf[mid];
+        divX[node] = axis;
+        left[node] = build(low, mid, !axis);
+        right[node] = build(mid + 1, high, !axis);
+        size[node] = high - low;
+        return node;
+    }
+
+    // See http://www.cplusplus.com/reference/algorithm/nth_element
+    void nth_element(int low, int high, int n, boolean axis) {
+        while (true) {
+            int k = partition(low, high, low + rnd.nextInt(high - low), axis);
+            if (n < k)
+                high = k;
+            else if (n > k)
+                low = k + 1;
+            else
+                return;
+        }
+    }
+
+    int partition(int fromInclusive, int toExclusive, int separatorIndex, boolean axis) {
+        int[] c = axis ? x : y;
+        int i = fromInclusive;
+        int j = toExclusive - 1;
+        if (i >= j)
+            return j;
+        int separator = c[buf[separatorIndex]];
+        swap(i++, separatorIndex);
+        while (i <= j) {
+            while (i <= j && c[buf[i]] < separator) ++i;
+            while (i <= j && c[buf[j]] > separator) --j;
+            if (i >= j)
+                break;
+            swap(i++, j--);
+        }
+        swap(j, fromInclusive);
+        return j;
+    }
+
+    void swap(int i, int j) {
+        int t = buf[i];
+        buf[i] = buf[j];
+        buf[j] = t;
+    }
+
+    // bounded max-heap of the best candidates
+    long[] heapDist = new long[16];
+    int[] heapId = new int[16];
+    int heapSize;
+    int k;
+
+    // Writes ids of the k nearest points to out, closest first, and returns how many were found.
+    // out must have room for k ids
+    public int kNearest(int px, int py, int k, int[] out) {
+        if (heapDist.length < k) {
+            heapDist = new long[k];
+            heapId = new int[k];
+        }
+        this.k = k;
+        heapSize = 0;
+        if (k > 0)
+            kNearest(root, px, py);
+        int res = heapSize;
+        while (heapSize > 0) {
+            out[heapSize - 1] = heapId[0];
+            pop();
+        }
+        return res;
+    }
+
+    void kNearest(int node, int px, int py) {
+        if (node == -1)
+            return;
+        long dx = px - x[node];
+        long dy = py - y[node];
+        if (!deleted[node]) {
+            long dist = dx * dx + dy * dy;
+            if (heapSize < k) {
+                push(dist, node);
+            } else if (dist < heapDist[0]) {
+                pop();
+                push(dist, node);
+            }
+        }
+        long delta = divX[node] ? dx : dy;
+        int near = delta < 0 ? left[node] : right[node];
+        int far = delta < 0 ? right[node] : left[node];
+        kNearest(near, px, py);
+        if (heapSize < k || delta * delta < heapDist[0])
+            kNearest(far, px, py);
+    }
+
+    void push(long dist, int id) {
+        int pos = heapSize++;
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            if (heapDist[parent] >= dist)
+                break;
+            heapDist[pos] = heapDist[parent];
+            heapId[pos] = heapId[parent];
+            pos = parent;
+        }
+        heapDist[pos] = dist;
+        heapId[pos] = id;
+    }
+
+    void pop() {
+        long dist = heapDist[--heapSize];
+        int id = heapId[heapSize];
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && heapDist[child + 1] > heapDist[child])
+                ++child;
+            if (dist >= heapDist[child])
+                break;
+            heapDist[pos] = heapDist[child];
+            heapId[pos] = heapId[child];
+            pos = child;
+        }
+        heapDist[pos] = dist;
+        heapId[pos] = id;
+    }
+
+    // Writes ids of points within distance r to out, as many as fit, and returns how many there are
+    public int withinRadius(int px, int py, int r, int[] out) {
+        return withinRadius(root, px, py, (long) r * r, out, 0);
+    }
+
+    int withinRadius(int node, int px, int py, long r2, int[] out, int cnt) {
+        if (node == -1)
+            return cnt;
+        long dx = px - x[node];
+        long dy = py - y[node];
+        if (!deleted[node] && dx * dx + dy * dy <= r2) {
+            if (cnt < out.length)
+                out[cnt] = node;
+            ++cnt;
+        }
+        long delta = divX[node] ? dx : dy;
+        if (delta < 0 || delta * delta <= r2)
+            cnt = withinRadius(left[node], px, py, r2, out, cnt);
+        if (delta >= 0 || delta * delta <= r2)
+            cnt = withinRadius(right[node], px, py, r2, out, cnt);
+        return cnt;
+    }
+
+    // random test and latency under a mixed load
+    public static void main(String[] args) {
+        KdTreeDynamic t = new KdTreeDynamic(4);
+        int a = t.insert(0, 0);
+        int b = t.insert(3, 4);
+        int c = t.insert(10, 0);
+        int[] out = new int[3];
+        System.out.println(2 == t.kNearest(1, 1, 2, out) && out[0] == a && out[1] == b);
+        t.delete(a);
+        System.out.println(1 == t.withinRadius(0, 0, 5, out) && out[0] == b);
+        System.out.println(1 == t.kNearest(9, 9, 1, out) && out[0] == b);
+        System.out.println(1 == t.kNearest(11, 0, 1, out) && out[0] == c);
+
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            KdTreeDynamic kd = new KdTreeDynamic(1);
+            int range = rnd.nextInt(100) + 1;
+            int cap = 300;
+            int[] px = new int[cap];
+            int[] py = new int[cap];
+            boolean[] in = new boolean[cap];
+            int[] res = new int[cap];
+            for (int op = 0; op < 300; op++) {
+                int kind = rnd.nextInt(4);
+                if (kind == 0 || kd.size() == 0) {
+                    int qx = rnd.nextInt(range);
+                    int qy = rnd.nextInt(range);
+                    int id = kd.insert(qx, qy);
+                    px[id] = qx;
+                    py[id] = qy;
+                    in[id] = true;
+                } else if (kind == 1) {
+                    int id = rnd.nextInt(kd.nodes);
+                    if (in[id]) {
+                        kd.delete(id);
+                        in[id] = false;
+                    }
+                } else {
+                    int qx = rnd.nextInt(range);
+                    int qy = rnd.nextInt(range);
+                    long[] d = new long[kd.nodes];
+                    int m = 0;
+                    for (int i = 0; i < kd.nodes; i++)
+                        if (in[i])
+                            d[m++] = (long) (px[i] - qx) * (px[i] - qx) + (long) (py[i] - qy) * (py[i] - qy);
+                    Arrays.sort(d, 0, m);
+                    if (kind == 2) {
+                        int k = rnd.nextInt(10) + 1;
+                        int cnt = kd.kNearest(qx, qy, k, res);
+                        if (cnt != Math.min(k, m))
+                            throw new RuntimeException();
+                        for (int i = 0; i < cnt; i++) {
+                            int id = res[i];
+                            if (!in[id] || (long) (px[id] - qx) * (px[id] - qx) + (long) (py[id] - qy) * (py[id] - qy) != d[i])
+                                throw new RuntimeException();
+                        }
+                    } else {
+                        int r = rnd.nextInt(range);
+                        int cnt = kd.withinRadius(qx, qy, r, res);
+                        int expected = 0;
+                        while (expected < m && d[expected] <= (long) r * r) ++expected;
+                        if (cnt != expected)
+                            throw new RuntimeException();
+                        for (int i = 0; i < cnt; i++)
+                            if (!in[res[i]])
+                                throw new RuntimeException();
+                    }
+                }
+            }
+        }
+
+        // latency percentiles: points expire in insertion order, reads are 10-NN and radius queries
+        int n = 1 << 20;
+        int ops = 1 << 20;
+        int range = 1 << 24;
+        KdTreeDynamic kd = new KdTreeDynamic(n);
+        int[] live = new int[n];
+        for (int i = 0; i < n; i++) live[i] = kd.insert(rnd.nextInt(range), rnd.nextInt(range));
+        long[][] latency = new long[3][ops];
+        int[] count = new int[3];
+        int[] res = new int[64];
+        int oldest = 0;
+        long hash = 0;
+        for (int op = 0; op < 2 * ops; op++) {
+            int kind = rnd.nextInt(3);
+            int qx = rnd.nextInt(range);
+            int qy = rnd.nextInt(range);
+            long time = System.nanoTime();
+            if (kind == 0) {
+                kd.delete(live[oldest]);
+                live[oldest] = kd.insert(qx, qy);
+                oldest = (oldest + 1) & (n - 1);
+            } else if (kind == 1) {
+                hash += kd.kNearest(qx, qy, 10, res);
+            } else {
+                hash += kd.withinRadius(qx, qy, 20_000, res);
+            }
+            long elapsed = System.nanoTime() - time;
+            if (count[kind] < ops)
+                latency[kind][count[kind]++] = elapsed;
+        }
+        String[] names = {"expire + insert", "10-NN", "radius"};
+        for (int kind = 0; kind < 3; kind++) {
+            long[] l = Arrays.copyOf(latency[kind], count[kind]);
+            Arrays.sort(l);
+            System.out.printf("%s: p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns%n", names[kind], l[l.length / 2],
+                l[(int) (l.length * 0.99)], l[(int) (l.length * 0.999)], l[l.length - 1]);
+        }
+        if (hash == 0)
+            throw new RuntimeException();
+    }
+}
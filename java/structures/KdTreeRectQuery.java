@@ -1,6 +1,9 @@
 package structures;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class KdTreeRectQuery {
     public static class Point {
@@ -18,6 +21,12 @@ public class KdTreeRectQuery {
     int[] count;
 
     public KdTreeRectQuery(Point[] points) {
+        this(points, false);
+    }
+
+    // parallel builds the same tree shape on the common fork-join pool when it has more than one worker,
+    // points are reordered either way
+    public KdTreeRectQuery(Point[] points, boolean parallel) {
         int n = points.length;
         tx = new int[n];
         ty = new int[n];
@@ -26,38 +35,103 @@ public class KdTreeRectQuery {
         maxx = new int[n];
         maxy = new int[n];
         count = new int[n];
-        build(0, n, true, points);
+        if (parallel && ForkJoinPool.getCommonPoolParallelism() > 1)
+            ForkJoinPool.commonPool().invoke(new Build(0, n, true, points, new Point[n]));
+        else
+            build(0, n, true, points, rnd);
     }
 
-    void build(int low, int high, boolean divX, Point[] points) {
+    void build(int low, int high, boolean divX, Point[] points, Random rnd) {
         if (low >= high)
             return;
         int mid = (low + high) >>> 1;
-        nth_element(points, low, high, mid, divX);
+        nth_element(points, low, high, mid, divX, rnd);
+        build(low, mid, !divX, points, rnd);
+        build(mid + 1, high, !divX, points, rnd);
+        setNode(low, mid, high, points[mid]);
+    }
 
-        tx[mid] = points[mid].x;
-        ty[mid] = points[mid].y;
+    // the bounding box is merged from the children, which are already built
+    void setNode(int low, int mid, int high, Point p) {
+        tx[mid] = p.x;
+        ty[mid] = p.y;
         count[mid] = high - low;
+        minx[mid] = maxx[mid] = p.x;
+        miny[mid] = maxy[mid] = p.y;
+        if (low < mid)
+            mergeBox(mid, (low + mid) >>> 1);
+        if (mid + 1 < high)
+            mergeBox(mid, (mid + 1 + high) >>> 1);
+    }
+
+    void mergeBox(int node, int child) {
+        minx[node] = Math.min(minx[node], minx[child]);
+        miny[node] = Math.min(miny[node], miny[child]);
+        maxx[node] = Math.max(maxx[node], maxx[child]);
+        maxy[node] = Math.max(maxy[node], maxy[child]);
+    }
+
+    class Build extends RecursiveAction {
+        final int low, high;
+        final boolean divX;
+        final Point[] points, tmp;
+
+        Build(int low, int high, boolean divX, Point[] points, Point[] tmp) {
+            this.low = low;
+            this.high = high;
+            this.divX = divX;
+            this.points = points;
+            this.tmp = tmp;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= ParallelNthElement.SEQUENTIAL_BUILD) {
+                build(low, high, divX, points, ThreadLocalRandom.current());
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            new Select(points, tmp, divX).select(low, high, mid);
+            invokeAll(new Build(low, mid, !divX, points, tmp), new Build(mid + 1, high, !divX, points, tmp));
+            setNode(low, mid, high, points[mid]);
+        }
+    }
+
+    static class Select extends ParallelNthElement {
+        final Point[] a, tmp;
+        final boolean divX;
+
+        Select(Point[] a, Point[] tmp, boolean divX) {
+            this.a = a;
+            this.tmp = tmp;
+            this.divX = divX;
+        }
+
+        @Override
+        long key(int i) {
+            return divX ? a[i].x : a[i].y;
+        }
 
-        minx[mid] = Integer.MAX_VALUE;
-        miny[mid] = Integer.MAX_VALUE;
-        maxx[mid] = Integer.MIN_VALUE;
-        maxy[mid] = Integer.MIN_VALUE;
-        for (int i = low; i < high; i++) {
-            minx[mid] = Math.min(minx[mid], points[i].x);
-            miny[mid] = Math.min(miny[mid], points[i].y);
-            maxx[mid] = Math.max(maxx[mid], points[i].x);
-            maxy[mid] = Math.max(maxy[mid], points[i].y);
+        @Override
+        void toTmp(int i, int j) {
+            tmp[j] = a[i];
         }
 
-        build(low, mid, !divX, points);
-        build(mid + 1, high, !divX, points);
+        @Override
+        void fromTmp(int from, int len) {
+            System.arraycopy(tmp, from, a, from, len);
+        }
+
+        @Override
+        void nthElement(int low, int high, int n, Random rnd) {
+            nth_element(a, low, high, n, divX, rnd);
+        }
     }
 
     static final Random rnd = new Random(1);
 
     // See: http://www.cplusplus.com/reference/algorithm/nth_element
-    static void nth_element(Point[] a, int low, int high, int n, boolean divX) {
+    static void nth_element(Point[] a, int low, int high, int n, boolean divX, Random rnd) {
         while (true) {
             int k = partition(a, low, high, low + rnd.nextInt(high - low), divX);
             if (n < k)
@@ -132,5 +206,28 @@ public class KdTreeRectQuery {
         KdTreeRectQuery kdTree = new KdTreeRectQuery(points);
         int count = kdTree.count(0, 0, 10, 10);
         System.out.println(4 == count);
+
+        // sequential against parallel build, with the same counts on random rectangles
+        int n = 1 << 22;
+        points = new Point[n];
+        for (int i = 0; i < n; i++) points[i] = new Point(rnd.nextInt(1 << 20), rnd.nextInt(1 << 20));
+        for (int round = 0; round < 3; round++) {
+            long time = System.currentTimeMillis();
+            KdTreeRectQuery t1 = new KdTreeRectQuery(points.clone());
+            long sequentialTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            KdTreeRectQuery t2 = new KdTreeRectQuery(points.clone(), true);
+            long parallelTime = System.currentTimeMillis() - time;
+            System.out.println("build: sequential " + sequentialTime + " ms, parallel " + parallelTime + " ms on "
+                + ForkJoinPool.commonPool().getParallelism() + " workers");
+            for (int q = 0; q < 1000; q++) {
+                int x1 = rnd.nextInt(1 << 20);
+                int y1 = rnd.nextInt(1 << 20);
+                int x2 = x1 + rnd.nextInt(1 << 16);
+                int y2 = y1 + rnd.nextInt(1 << 16);
+                if (t1.count(x1, y1, x2, y2) != t2.count(x1, y1, x2, y2))
+                    throw new RuntimeException();
+            }
+        }
     }
 }
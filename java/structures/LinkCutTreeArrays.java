@@ -0,0 +1,794 @@
+package structures;
+
+import java.util.*;
+
+// LinkCut tree over int arrays: connectivity, rooted LCA, and path sum/max with lazy add
+// in one engine. Query complexity is O(log(n)) amortized, single operations allocate nothing.
+// A tree is either rooted (linkToParent/cutFromParent/lca, the root of every tree is fixed)
+// or unrooted (link/cut/path queries, which re-root trees). Mixing the two would silently
+// change the roots that lca answers relative to, so the other mode's methods throw.
+// Path aggregates are maintained only when requested in the constructor: the max alone costs 15-20%.
+// Vertex v is stored at index v + 1, index 0 is a null sentinel with size 0, sum 0 and max -inf,
+// so that pull and rotate need no null checks.
+// Based on Daniel Sleator's implementation http://www.codeforces.com/contest/117/submission/860934
+public class LinkCutTreeArrays {
+    // what is maintained besides the forest
+    public static final int CONNECTIVITY = 0;
+    public static final int PATH_SUM = 1;
+    public static final int PATH_SUM_MAX = 2;
+
+    final int n;
+    final boolean rooted;
+    final int aggregates;
+    // four ints per vertex: left child (deeper part of the path), right child, parent,
+    // size of the splay subtree << 1 | reversed flag (the size only with path aggregates)
+    final int[] link;
+    // only with path aggregates, four longs per vertex: value, sum and max over the splay subtree, pending add
+    final long[] data;
+
+    // unrooted forest with path sum and max
+    public LinkCutTreeArrays(int n) {
+        this(n, false, PATH_SUM_MAX);
+    }
+
+    public LinkCutTreeArrays(int n, boolean rooted, int aggregates) {
+        if (rooted && aggregates != CONNECTIVITY)
+            throw new RuntimeException("path aggregates need an unrooted forest");
+        this.n = n;
+        this.rooted = rooted;
+        this.aggregates = aggregates;
+        link = new int[(n + 1) << 2];
+        data = aggregates != CONNECTIVITY ? new long[(n + 1) << 2] : null;
+        if (data != null) {
+            data[2] = Long.MIN_VALUE;
+            for (int x = 1; x <= n; x++) link[x << 2 | 3] = 2;
+        }
+    }
+
+    int left(int x) {
+        return link[x << 2];
+    }
+
+    int right(int x) {
+        return link[x << 2 | 1];
+    }
+
+    int parent(int x) {
+        return link[x << 2 | 2];
+    }
+
+    // tests whether x is a root of a splay tree
+    boolean isRoot(int x) {
+        int p = link[x << 2 | 2];
+        return p == 0 || (link[p << 2] != x && link[p << 2 | 1] != x);
+    }
+
+    void apply(int x, long v) {
+        int i = x << 2;
+        data[i] += v;
+        data[i + 1] += v * (link[i + 3] >> 1);
+        data[i + 2] += v;
+        data[i + 3] += v;
+    }
+
+    void push(int x) {
+        int i = x << 2;
+        if ((link[i + 3] & 1) != 0) {
+            int l = link[i];
+            int r = link[i + 1];
+            link[i] = r;
+            link[i + 1] = l;
+            link[i + 3] ^= 1;
+            // the sentinel's flag, like its parent, may be written but is never read
+            link[l << 2 | 3] ^= 1;
+            link[r << 2 | 3] ^= 1;
+        }
+        if (aggregates != CONNECTIVITY) {
+            long v = data[i + 3];
+            if (v != 0) {
+                if (link[i] != 0)
+                    apply(link[i], v);
+                if (link[i + 1] != 0)
+                    apply(link[i + 1], v);
+                data[i + 3] = 0;
+            }
+        }
+    }
+
+    void pull(int x) {
+        if (aggregates == CONNECTIVITY)
+            return;
+        int i = x << 2;
+        int l = link[i] << 2;
+        int r = link[i + 1] << 2;
+        link[i + 3] = (1 + (link[l + 3] >> 1) + (link[r + 3] >> 1)) << 1 | (link[i + 3] & 1);
+        data[i + 1] = data[i] + data[l + 1] + data[r + 1];
+        if (aggregates == PATH_SUM_MAX)
+            data[i + 2] = Math.max(data[i], Math.max(data[l + 2], data[r + 2]));
+    }
+
+    // rotates edge (x, parent(x))
+    void rotate(int x) {
+        int p = parent(x);
+        int g = parent(p);
+        boolean isRootP = isRoot(p);
+        // d = 0 if x is the left child: x takes the d ^ 1 child of x as its d child of p, and p as its d ^ 1 child
+        int d = left(p) == x ? 0 : 1;
+        int b = link[x << 2 | d ^ 1];
+        link[p << 2 | d] = b;
+        // b may be the sentinel
+        link[b << 2 | 2] = p;
+        link[x << 2 | d ^ 1] = p;
+        link[p << 2 | 2] = x;
+        link[x << 2 | 2] = g;
+        if (!isRootP)
+            link[g << 2 | (left(g) == p ? 0 : 1)] = x;
+        pull(p);
+    }
+
+    // brings x to the root of its splay tree, see LinkCutTree for the zig-zig and zig-zag cases
+    void splay(int x) {
+        while (!isRoot(x)) {
+            int p = parent(x);
+            int g = parent(p);
+            if (!isRoot(p))
+                push(g);
+            push(p);
+            push(x);
+            if (!isRoot(p))
+                rotate((x == left(p)) == (p == left(g)) ? p /*zig-zig*/ : x /*zig-zag*/);
+            rotate(x);
+        }
+        push(x);
+        pull(x);
+    }
+
+    // makes x the root of the virtual tree, and also x becomes the leftmost node in its splay tree.
+    // Returns the last vertex where the preferred path changed, which is the LCA after exposing the other vertex
+    int expose(int x) {
+        int last = 0;
+        for (int y = x; y != 0; y = parent(y)) {
+            splay(y);
+            // y gets its aggregates back when x is splayed through it below
+            link[y << 2] = last;
+            last = y;
+        }
+        splay(x);
+        return last;
+    }
+
+    void checkRooted(boolean expected) {
+        if (rooted != expected)
+            throw new RuntimeException("error: operation needs " + (expected ? "a rooted" : "an unrooted") + " forest");
+    }
+
+    public void makeRoot(int x) {
+        checkRooted(false);
+        ++x;
+        expose(x);
+        link[x << 2 | 3] ^= 1;
+    }
+
+    public int findRoot(int x) {
+        ++x;
+        expose(x);
+        int r = x;
+        while (true) {
+            push(r);
+            if (right(r) == 0)
+                break;
+            r = right(r);
+        }
+        splay(r);
+        return r - 1;
+    }
+
+    public boolean connected(int x, int y) {
+        if (x == y)
+            return true;
+        ++x;
+        ++y;
+        expose(x);
+        // now parent(x) is 0, and x gets a parent only if it is on the exposed path of y
+        expose(y);
+        return parent(x) != 0;
+    }
+
+    // unrooted forest: adds edge (x, y), x becomes the root of its tree first.
+    // Checks connectivity with the same trick as connected, which takes two exposes instead of three
+    public void link(int x, int y) {
+        if (x == y)
+            throw new RuntimeException("error: x and y are already connected");
+        makeRoot(x);
+        ++x;
+        ++y;
+        expose(y);
+        if (parent(x) != 0)
+            throw new RuntimeException("error: x and y are already connected");
+        link[x << 2 | 2] = y;
+    }
+
+    // unrooted forest: removes edge (x, y)
+    public void cut(int x, int y) {
+        makeRoot(x);
+        ++x;
+        ++y;
+        expose(y);
+        // check that exposed path consists of a single edge (y,x)
+        if (right(y) != x || left(x) != 0)
+            throw new RuntimeException("error: no edge (x,y)");
+        link[x << 2 | 2] = 0;
+        link[y << 2 | 1] = 0;
+        pull(y);
+    }
+
+    // rooted forest: x must be the root of its tree and becomes a child of p
+    public void linkToParent(int x, int p) {
+        checkRooted(true);
+        ++x;
+        ++p;
+        expose(x);
+        if (right(x) != 0)
+            throw new RuntimeException("error: x is not a root node");
+        if (x == p)
+            throw new RuntimeException("error: x and p are already connected");
+        // x is the root of its splay tree, like after the first expose in connected
+        expose(p);
+        if (parent(x) != 0)
+            throw new RuntimeException("error: x and p are already connected");
+        link[x << 2 | 2] = p;
+    }
+
+    // rooted forest: detaches x from its parent
+    public void cutFromParent(int x) {
+        checkRooted(true);
+        ++x;
+        expose(x);
+        int r = right(x);
+        if (r == 0)
+            throw new RuntimeException("error: x is a root node");
+        link[r << 2 | 2] = 0;
+        link[x << 2 | 1] = 0;
+        pull(x);
+    }
+
+    // rooted forest: lowest common ancestor of connected x and y
+    public int lca(int x, int y) {
+        checkRooted(true);
+        if (x == y)
+            return x;
+        ++x;
+        ++y;
+        expose(x);
+        int res = expose(y);
+        if (parent(x) == 0)
+            throw new RuntimeException("error: x and y are not connected");
+        return res - 1;
+    }
+
+    void checkAggregates(int needed) {
+        if (aggregates < needed)
+            throw new RuntimeException("error: path aggregates are not maintained");
+    }
+
+    public long pathSum(int from, int to) {
+        checkAggregates(PATH_SUM);
+        makeRoot(from);
+        expose(to + 1);
+        return data[(to + 1) << 2 | 1];
+    }
+
+    public long pathMax(int from, int to) {
+        checkAggregates(PATH_SUM_MAX);
+        makeRoot(from);
+        expose(to + 1);
+        return data[(to + 1) << 2 | 2];
+    }
+
+    public void pathAdd(int from, int to, long delta) {
+        checkAggregates(PATH_SUM);
+        makeRoot(from);
+        expose(to + 1);
+        apply(to + 1, delta);
+    }
+
+    // Bulk operations rebuild the whole forest in O(n) from its parent array, which is cheaper than
+    // k single operations of O(log(n)) amortized each once the batch is large. Smaller batches are applied
+    // one by one, and a failing small batch stays partially applied. Large batches are checked first
+    // and leave the forest unchanged on failure.
+    boolean smallBatch(int k) {
+        return (long) k * 32 < n;
+    }
+
+    // unrooted forest: adds edges (x[i], y[i])
+    public void linkAll(int[] x, int[] y) {
+        checkRooted(false);
+        if (smallBatch(x.length)) {
+            for (int i = 0; i < x.length; i++) link(x[i], y[i]);
+            return;
+        }
+        int[] parent = parents();
+        // edge i of the new forest is (eu[i], ev[i]) and has arcs 2 * i and 2 * i + 1
+        int m = x.length;
+        int[] eu = Arrays.copyOf(x, m + n);
+        int[] ev = Arrays.copyOf(y, m + n);
+        for (int v = 0; v < n; v++) {
+            if (parent[v] != -1) {
+                eu[m] = v;
+                ev[m++] = parent[v];
+            }
+        }
+        int[] start = new int[n + 2];
+        for (int i = 0; i < m; i++) {
+            ++start[eu[i] + 2];
+            ++start[ev[i] + 2];
+        }
+        for (int v = 0; v <= n; v++) start[v + 1] += start[v];
+        int[] arcs = new int[2 * m];
+        for (int i = 0; i < m; i++) {
+            arcs[start[eu[i] + 1]++] = 2 * i;
+            arcs[start[ev[i] + 1]++] = 2 * i + 1;
+        }
+        // orient the new forest by bfs from every unvisited vertex, rejecting cycles
+        int[] q = new int[n];
+        int[] parentEdge = new int[n];
+        Arrays.fill(parent, -2);
+        for (int root = 0; root < n; root++) {
+            if (parent[root] != -2)
+                continue;
+            parent[root] = -1;
+            parentEdge[root] = -1;
+            q[0] = root;
+            for (int head = 0, tail = 1; head < tail; head++) {
+                int u = q[head];
+                for (int j = start[u]; j < start[u + 1]; j++) {
+                    int e = arcs[j] >> 1;
+                    if (e == parentEdge[u])
+                        continue;
+                    int v = (arcs[j] & 1) == 0 ? ev[e] : eu[e];
+                    if (parent[v] != -2)
+                        throw new RuntimeException("error: edges create a cycle");
+                    parent[v] = u;
+                    parentEdge[v] = e;
+                    q[tail++] = v;
+                }
+            }
+        }
+        rebuild(parent);
+    }
+
+    // unrooted forest: removes edges (x[i], y[i])
+    public void cutAll(int[] x, int[] y) {
+        checkRooted(false);
+        if (smallBatch(x.length)) {
+            for (int i = 0; i < x.length; i++) cut(x[i], y[i]);
+            return;
+        }
+        int[] parent = parents();
+        for (int i = 0; i < x.length; i++) {
+            if (parent[x[i]] == y[i])
+                parent[x[i]] = -1;
+            else if (parent[y[i]] == x[i])
+                parent[y[i]] = -1;
+            else
+                throw new RuntimeException("error: no edge (x,y)");
+        }
+        rebuild(parent);
+    }
+
+    // rooted forest: x[i] becomes a child of p[i]
+    public void linkToParentAll(int[] x, int[] p) {
+        checkRooted(true);
+        if (smallBatch(x.length)) {
+            for (int i = 0; i < x.length; i++) linkToParent(x[i], p[i]);
+            return;
+        }
+        int[] parent = parents();
+        for (int i = 0; i < x.length; i++) {
+            if (parent[x[i]] != -1)
+                throw new RuntimeException("error: x is not a root node");
+            parent[x[i]] = p[i];
+        }
+        if (!isForest(parent))
+            throw new RuntimeException("error: links create a cycle");
+        rebuild(parent);
+    }
+
+    // rooted forest: detaches every x[i] from its parent
+    public void cutFromParentAll(int[] x) {
+        checkRooted(true);
+        if (smallBatch(x.length)) {
+            for (int v : x) cutFromParent(v);
+            return;
+        }
+        int[] parent = parents();
+        for (int v : x) {
+            if (parent[v] == -1)
+                throw new RuntimeException("error: x is a root node");
+            parent[v] = -1;
+        }
+        rebuild(parent);
+    }
+
+    // parent of every vertex in the represented forest, -1 for roots. Pushes all pending reverts and adds,
+    // so that afterwards every value is exact.
+    int[] parents() {
+        int[] res = new int[n];
+        int[] stack = new int[n];
+        int[] path = new int[n];
+        for (int x = 1; x <= n; x++) {
+            if (!isRoot(x))
+                continue;
+            // in-order traversal lists the preferred path from its deepest vertex up
+            int size = 0;
+            int sp = 0;
+            for (int cur = x; cur != 0 || sp > 0;) {
+                if (cur != 0) {
+                    push(cur);
+                    stack[sp++] = cur;
+                    cur = left(cur);
+                } else {
+                    cur = stack[--sp];
+                    path[size++] = cur;
+                    cur = right(cur);
+                }
+            }
+            for (int i = 0; i + 1 < size; i++) res[path[i] - 1] = path[i + 1] - 1;
+            res[path[size - 1] - 1] = parent(x) - 1;
+        }
+        return res;
+    }
+
+    // every vertex becomes a single-vertex splay tree whose path-parent is its parent in the forest
+    void rebuild(int[] parent) {
+        for (int x = 1; x <= n; x++) {
+            int i = x << 2;
+            link[i] = 0;
+            link[i + 1] = 0;
+            link[i + 2] = parent[x - 1] + 1;
+            link[i + 3] = data != null ? 2 : 0;
+            if (data != null) {
+                data[i + 1] = data[i];
+                data[i + 2] = data[i];
+                data[i + 3] = 0;
+            }
+        }
+    }
+
+    static boolean isForest(int[] parent) {
+        // 1 - on the current walk to the root, 2 - known to reach a root
+        byte[] state = new byte[parent.length];
+        for (int v = 0; v < parent.length; v++) {
+            int u = v;
+            while (u != -1 && state[u] == 0) {
+                state[u] = 1;
+                u = parent[u];
+            }
+            if (u != -1 && state[u] == 1)
+                return false;
+            for (u = v; u != -1 && state[u] == 1; u = parent[u]) state[u] = 2;
+        }
+        return true;
+    }
+
+    // random test and comparison with the three Node-based classes
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1_000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            boolean[][] g = new boolean[n][n];
+            long[] val = new long[n];
+            LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, step % 2 == 0 ? PATH_SUM : PATH_SUM_MAX);
+            LinkCutTreeArrays c = new LinkCutTreeArrays(n, false, CONNECTIVITY);
+            for (int query = 0; query < 2_000; query++) {
+                int cmd = rnd.nextInt(10);
+                int u = rnd.nextInt(n);
+                int v = rnd.nextInt(n);
+                List<Integer> path = new ArrayList<>();
+                boolean connected = LinkCutTree.getPathFromAtoB(g, u, v, -1, path);
+                if (t.connected(u, v) != connected || c.connected(u, v) != connected)
+                    throw new RuntimeException();
+                if (cmd == 0) {
+                    if (g[u][v]) {
+                        t.cut(u, v);
+                        c.cut(u, v);
+                        g[u][v] = g[v][u] = false;
+                    }
+                } else if (cmd <= 2) {
+                    if (connected) {
+                        long s = 0;
+                        long mx = Long.MIN_VALUE;
+                        for (int i : path) {
+                            s += val[i];
+                            mx = Math.max(mx, val[i]);
+                        }
+                        if (t.pathSum(u, v) != s || (t.aggregates == PATH_SUM_MAX && t.pathMax(u, v) != mx))
+                            throw new RuntimeException();
+                    }
+                } else if (cmd <= 4) {
+                    if (connected) {
+                        int delta = rnd.nextInt(200) - 100;
+                        for (int i : path) val[i] += delta;
+                        t.pathAdd(u, v, delta);
+                    }
+                } else if (cmd == 5 && query % 50 == 0) {
+                    // bulk cut of a random subset of edges, then bulk link of a random forest on top
+                    List<int[]> cut = new ArrayList<>();
+                    for (int i = 0; i < n; i++)
+                        for (int j = i + 1; j < n; j++)
+                            if (g[i][j] && rnd.nextBoolean())
+                                cut.add(rnd.nextBoolean() ? new int[] {i, j} : new int[] {j, i});
+                    int[] x = cut.stream().mapToInt(e -> e[0]).toArray();
+                    int[] y = cut.stream().mapToInt(e -> e[1]).toArray();
+                    t.cutAll(x, y);
+                    c.cutAll(x, y);
+                    for (int[] e : cut) g[e[0]][e[1]] = g[e[1]][e[0]] = false;
+                    List<int[]> added = new ArrayList<>();
+                    int[] comp = new int[n];
+                    for (int i = 0; i < n; i++) comp[i] = i;
+                    for (int i = 0; i < n; i++)
+                        for (int j = 0; j < n; j++)
+                            if (g[i][j])
+                                relabel(comp, comp[i], comp[j]);
+                    for (int k = 0; k < n; k++) {
+                        int a = rnd.nextInt(n);
+                        int b = rnd.nextInt(n);
+                        if (comp[a] != comp[b]) {
+                            relabel(comp, comp[a], comp[b]);
+                            added.add(new int[] {a, b});
+                            g[a][b] = g[b][a] = true;
+                        }
+                    }
+                    x = added.stream().mapToInt(e -> e[0]).toArray();
+                    y = added.stream().mapToInt(e -> e[1]).toArray();
+                    t.linkAll(x, y);
+                    c.linkAll(x, y);
+                } else if (!connected) {
+                    t.link(u, v);
+                    c.link(u, v);
+                    g[u][v] = g[v][u] = true;
+                }
+            }
+        }
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            int[] p = new int[n];
+            Arrays.fill(p, -1);
+            LinkCutTreeArrays t = new LinkCutTreeArrays(n, true, CONNECTIVITY);
+            for (int query = 0; query < 2_000; query++) {
+                int cmd = rnd.nextInt(4);
+                int u = rnd.nextInt(n);
+                int v = rnd.nextInt(n);
+                boolean connected = LinkCutTreeLca.root(p, u) == LinkCutTreeLca.root(p, v);
+                if (cmd == 0 && p[u] != -1) {
+                    t.cutFromParent(u);
+                    p[u] = -1;
+                } else if (cmd == 1 && connected) {
+                    Set<Integer> ancestors = new HashSet<>();
+                    for (int cur = u; cur != -1; cur = p[cur]) ancestors.add(cur);
+                    int cur = v;
+                    while (!ancestors.contains(cur)) cur = p[cur];
+                    if (t.lca(u, v) != cur || t.findRoot(u) != LinkCutTreeLca.root(p, u))
+                        throw new RuntimeException();
+                } else if (cmd == 2 && p[u] == -1 && !connected) {
+                    t.linkToParent(u, v);
+                    p[u] = v;
+                } else if (cmd == 3 && query % 50 == 0) {
+                    int[] cut = rnd.ints(n, 0, n).distinct().filter(i -> p[i] != -1).toArray();
+                    t.cutFromParentAll(cut);
+                    for (int i : cut) p[i] = -1;
+                    int[] x = rnd.ints(n, 0, n).distinct().filter(i -> p[i] == -1).toArray();
+                    int[] parent = new int[x.length];
+                    int k = 0;
+                    for (int i : x) {
+                        int to = rnd.nextInt(n);
+                        if (LinkCutTreeLca.root(p, to) != i) {
+                            p[i] = to;
+                            x[k] = i;
+                            parent[k++] = to;
+                        }
+                    }
+                    t.linkToParentAll(Arrays.copyOf(x, k), Arrays.copyOf(parent, k));
+                }
+            }
+            try {
+                t.makeRoot(0);
+                throw new AssertionError();
+            } catch (RuntimeException e) {
+                // rooted forests cannot be re-rooted
+            }
+        }
+        System.out.println("Test passed");
+
+        // the same random link/cut/query sequences against LinkCutTree, LinkCutTreeConnectivity and LinkCutTreeLca.
+        // Here the engine is compiled for the mixed profile of all modes, benchmarks/structures/LinkCutTreeBenchmark
+        // runs every workload in its own JVM
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+        int ops = 2_000_000;
+        for (int round = 0; round < 3; round++) {
+            long[] hash = new long[3];
+            long[] time = new long[3];
+            LinkCutTreeLca.Node[] lcaNodes = new LinkCutTreeLca.Node[ops];
+            int[] lcaIds = new int[ops];
+            int[] lcaExpected = null;
+            for (int kind = 0; kind < 3; kind++) {
+                Random r = new Random(round);
+                LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, kind == 1 ? PATH_SUM : PATH_SUM_MAX);
+                LinkCutTree.Node[] nodes = new LinkCutTree.Node[n];
+                for (int i = 0; i < n; i++) nodes[i] = new LinkCutTree.Node(0);
+                int[] eu = new int[n];
+                int[] ev = new int[n];
+                int edges = 0;
+                long start = System.currentTimeMillis();
+                long h = 0;
+                for (int op = 0; op < ops; op++) {
+                    int cmd = r.nextInt(4);
+                    if (cmd == 0 && edges > 0) {
+                        int e = r.nextInt(edges);
+                        if (kind == 0)
+                            LinkCutTree.cut(nodes[eu[e]], nodes[ev[e]]);
+                        else
+                            t.cut(eu[e], ev[e]);
+                        --edges;
+                        eu[e] = eu[edges];
+                        ev[e] = ev[edges];
+                        continue;
+                    }
+                    int u = r.nextInt(n);
+                    int v = r.nextInt(n);
+                    boolean connected = kind == 0 ? LinkCutTree.connected(nodes[u], nodes[v]) : t.connected(u, v);
+                    if (!connected) {
+                        if (kind == 0)
+                            LinkCutTree.link(nodes[u], nodes[v]);
+                        else
+                            t.link(u, v);
+                        eu[edges] = u;
+                        ev[edges++] = v;
+                    } else if (cmd == 1) {
+                        if (kind == 0)
+                            LinkCutTree.modify(nodes[u], nodes[v], op & 15);
+                        else
+                            t.pathAdd(u, v, op & 15);
+                    } else {
+                        h = h * 31 + (kind == 0 ? LinkCutTree.query(nodes[u], nodes[v]) : t.pathSum(u, v));
+                    }
+                }
+                time[kind] = System.currentTimeMillis() - start;
+                hash[kind] = h;
+            }
+            System.out.println("path sums: LinkCutTree " + time[0] + " ms, arrays " + time[1]
+                + " ms, arrays with max " + time[2] + " ms");
+            if (hash[0] != hash[1] || hash[0] != hash[2])
+                throw new RuntimeException();
+
+            for (int kind = 0; kind < 2; kind++) {
+                Random r = new Random(round);
+                LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, CONNECTIVITY);
+                LinkCutTreeConnectivity.Node[] nodes = new LinkCutTreeConnectivity.Node[n];
+                for (int i = 0; i < n; i++) nodes[i] = new LinkCutTreeConnectivity.Node();
+                int[] eu = new int[n];
+                int[] ev = new int[n];
+                int edges = 0;
+                long start = System.currentTimeMillis();
+                long h = 0;
+                for (int op = 0; op < ops; op++) {
+                    if (r.nextInt(3) == 0 && edges > 0) {
+                        int e = r.nextInt(edges);
+                        if (kind == 0)
+                            LinkCutTreeConnectivity.cut(nodes[eu[e]], nodes[ev[e]]);
+                        else
+                            t.cut(eu[e], ev[e]);
+                        --edges;
+                        eu[e] = eu[edges];
+                        ev[e] = ev[edges];
+                        continue;
+                    }
+                    int u = r.nextInt(n);
+                    int v = r.nextInt(n);
+                    boolean connected =
+                        kind == 0 ? LinkCutTreeConnectivity.connected(nodes[u], nodes[v]) : t.connected(u, v);
+                    h = h * 31 + (connected ? 1 : 0);
+                    if (!connected) {
+                        if (kind == 0)
+                            LinkCutTreeConnectivity.link(nodes[u], nodes[v]);
+                        else
+                            t.link(u, v);
+                        eu[edges] = u;
+                        ev[edges++] = v;
+                    }
+                }
+                time[kind] = System.currentTimeMillis() - start;
+                hash[kind] = h;
+            }
+            System.out.println("connectivity: LinkCutTreeConnectivity " + time[0] + " ms, arrays " + time[1] + " ms");
+            if (hash[0] != hash[1])
+                throw new RuntimeException();
+
+            for (int kind = 0; kind < 2; kind++) {
+                Random r = new Random(round);
+                LinkCutTreeArrays t = new LinkCutTreeArrays(n, true, CONNECTIVITY);
+                LinkCutTreeLca.Node[] nodes = new LinkCutTreeLca.Node[n];
+                for (int i = 0; i < n; i++) nodes[i] = new LinkCutTreeLca.Node();
+                int[] parentOf = new int[n];
+                Arrays.fill(parentOf, -1);
+                int answers = 0;
+                long start = System.currentTimeMillis();
+                for (int op = 0; op < ops; op++) {
+                    int cmd = r.nextInt(3);
+                    int u = r.nextInt(n);
+                    if (cmd == 0) {
+                        if (parentOf[u] != -1) {
+                            if (kind == 0)
+                                LinkCutTreeLca.cut(nodes[u]);
+                            else
+                                t.cutFromParent(u);
+                            parentOf[u] = -1;
+                        }
+                        continue;
+                    }
+                    int v = r.nextInt(n);
+                    boolean connected = kind == 0
+                        ? LinkCutTreeLca.findRoot(nodes[u]) == LinkCutTreeLca.findRoot(nodes[v])
+                        : t.connected(u, v);
+                    if (cmd == 1 && connected) {
+                        if (kind == 0)
+                            lcaNodes[answers++] = LinkCutTreeLca.lca(nodes[u], nodes[v]);
+                        else
+                            lcaIds[answers++] = t.lca(u, v);
+                    } else if (cmd == 2 && !connected && parentOf[u] == -1) {
+                        if (kind == 0)
+                            LinkCutTreeLca.link(nodes[u], nodes[v]);
+                        else
+                            t.linkToParent(u, v);
+                        parentOf[u] = v;
+                    }
+                }
+                time[kind] = System.currentTimeMillis() - start;
+                if (kind == 0) {
+                    Map<LinkCutTreeLca.Node, Integer> id = new IdentityHashMap<>();
+                    for (int i = 0; i < n; i++) id.put(nodes[i], i);
+                    for (int i = 0; i < answers; i++) lcaIds[i] = id.get(lcaNodes[i]);
+                    lcaExpected = Arrays.copyOf(lcaIds, answers);
+                } else if (!Arrays.equals(lcaExpected, Arrays.copyOf(lcaIds, answers))) {
+                    throw new RuntimeException();
+                }
+            }
+            System.out.println("lca: LinkCutTreeLca " + time[0] + " ms, arrays " + time[1] + " ms");
+
+            // a random forest with n - 1 - n / 8 edges, linked and cut as a whole
+            Random r = new Random(round);
+            int[] x = new int[n - 1];
+            int[] y = new int[n - 1];
+            for (int i = 1; i < n; i++) {
+                x[i - 1] = i;
+                y[i - 1] = r.nextInt(i);
+            }
+            int m = n - 1 - n / 8;
+            int[] bx = Arrays.copyOf(x, m);
+            int[] by = Arrays.copyOf(y, m);
+            long[] bulkTime = new long[2];
+            for (int kind = 0; kind < 2; kind++) {
+                LinkCutTreeArrays t = new LinkCutTreeArrays(n, false, CONNECTIVITY);
+                long start = System.currentTimeMillis();
+                for (int rep = 0; rep < 5; rep++) {
+                    if (kind == 0) {
+                        for (int i = 0; i < m; i++) t.link(x[i], y[i]);
+                        for (int i = 0; i < m; i++) t.cut(x[i], y[i]);
+                    } else {
+                        t.linkAll(bx, by);
+                        t.cutAll(bx, by);
+                    }
+                }
+                bulkTime[kind] = System.currentTimeMillis() - start;
+            }
+            System.out.println("link and cut " + m + " edges, 5 times: one by one " + bulkTime[0]
+                + " ms, linkAll/cutAll " + bulkTime[1] + " ms");
+        }
+    }
+
+    static void relabel(int[] comp, int from, int to) {
+        for (int i = 0; i < comp.length; i++)
+            if (comp[i] == from)
+                comp[i] = to;
+    }
+}
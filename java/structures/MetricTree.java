@@ -1,6 +1,9 @@
 package structures;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
 
 // https://en.wikipedia.org/wiki/Metric_tree
 public class MetricTree {
@@ -8,27 +11,99 @@ public class MetricTree {
     int[] y;
 
     public MetricTree(int[] x, int[] y) {
+        this(x, y, false);
+    }
+
+    // parallel builds the tree on the common fork-join pool when it has more than one worker,
+    // points are reordered either way
+    public MetricTree(int[] x, int[] y, boolean parallel) {
         this.x = x;
         this.y = y;
-        build(0, x.length);
+        if (parallel && ForkJoinPool.getCommonPoolParallelism() > 1)
+            ForkJoinPool.commonPool().invoke(new Build(0, x.length, new int[x.length], new int[x.length]));
+        else
+            build(0, x.length, rnd);
     }
 
     static final Random rnd = new Random(1);
 
-    void build(int low, int high) {
+    void build(int low, int high, Random rnd) {
         if (high - low <= 2)
             return;
         swap(low + rnd.nextInt(high - low), low);
         int mid = (low + 1 + high) >>> 1;
-        nth_element(low + 1, high, mid);
+        nth_element(low + 1, high, mid, rnd);
+
+        build(low + 1, mid, rnd);
+        build(mid + 1, high, rnd);
+    }
+
+    class Build extends RecursiveAction {
+        final int low, high;
+        final int[] tmpX, tmpY;
+
+        Build(int low, int high, int[] tmpX, int[] tmpY) {
+            this.low = low;
+            this.high = high;
+            this.tmpX = tmpX;
+            this.tmpY = tmpY;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= ParallelNthElement.SEQUENTIAL_BUILD) {
+                build(low, high, ThreadLocalRandom.current());
+                return;
+            }
+            swap(low + ThreadLocalRandom.current().nextInt(high - low), low);
+            int mid = (low + 1 + high) >>> 1;
+            new Select(low, tmpX, tmpY).select(low + 1, high, mid);
+            invokeAll(new Build(low + 1, mid, tmpX, tmpY), new Build(mid + 1, high, tmpX, tmpY));
+        }
+    }
+
+    // orders by distance to the center
+    class Select extends ParallelNthElement {
+        final int center, cx, cy;
+        final int[] tmpX, tmpY;
+
+        Select(int center, int[] tmpX, int[] tmpY) {
+            this.center = center;
+            this.cx = x[center];
+            this.cy = y[center];
+            this.tmpX = tmpX;
+            this.tmpY = tmpY;
+        }
+
+        @Override
+        long key(int i) {
+            return dist2(cx, cy, x[i], y[i]);
+        }
+
+        @Override
+        void toTmp(int i, int j) {
+            tmpX[j] = x[i];
+            tmpY[j] = y[i];
+        }
+
+        @Override
+        void fromTmp(int from, int len) {
+            System.arraycopy(tmpX, from, x, from, len);
+            System.arraycopy(tmpY, from, y, from, len);
+        }
 
-        build(low + 1, mid);
-        build(mid + 1, high);
+        @Override
+        void nthElement(int low, int high, int n, Random rnd) {
+            nth_element(center, low, high, n, rnd);
+        }
+    }
+
+    void nth_element(int low, int high, int n, Random rnd) {
+        nth_element(low - 1, low, high, n, rnd);
     }
 
     // See http://www.cplusplus.com/reference/algorithm/nth_element
-    void nth_element(int low, int high, int n) {
-        int center = low - 1;
+    void nth_element(int center, int low, int high, int n, Random rnd) {
         while (true) {
             int k = partition(center, low, high, low + rnd.nextInt(high - low));
             if (n < k)
@@ -132,5 +207,28 @@ public class MetricTree {
             if (minDist != metricTree.bestDist || dist2(qx, qy, x[index], y[index]) != minDist)
                 throw new RuntimeException();
         }
+
+        // sequential against parallel build, with the same distances on random queries
+        int n = 1 << 22;
+        int[] x = rnd.ints(n, 0, 1 << 20).toArray();
+        int[] y = rnd.ints(n, 0, 1 << 20).toArray();
+        for (int round = 0; round < 3; round++) {
+            long time = System.currentTimeMillis();
+            MetricTree t1 = new MetricTree(x.clone(), y.clone());
+            long sequentialTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            MetricTree t2 = new MetricTree(x.clone(), y.clone(), true);
+            long parallelTime = System.currentTimeMillis() - time;
+            System.out.println("build: sequential " + sequentialTime + " ms, parallel " + parallelTime + " ms on "
+                + ForkJoinPool.commonPool().getParallelism() + " workers");
+            for (int q = 0; q < 1000; q++) {
+                int qx = rnd.nextInt(1 << 20);
+                int qy = rnd.nextInt(1 << 20);
+                t1.findNearestNeighbour(qx, qy);
+                t2.findNearestNeighbour(qx, qy);
+                if (t1.bestDist != t2.bestDist)
+                    throw new RuntimeException();
+            }
+        }
     }
 }
@@ -1,95 +1,16 @@
 package structures;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 // https://www.hackerearth.com/notes/mos-algorithm/
-// https://www.geeksforgeeks.org/mos-algorithm-query-square-root-decomposition-set-1-introduction/
+// https://codeforces.com/blog/entry/61203 (Hilbert curve order)
 // Solution of http://www.spoj.com/problems/DQUERY/en/
-/**
-The idea of MO’s algorithm is to pre-process all queries so that result of one query can be used in next query. Below are steps.
-
-Let a[0…n-1] be input array and q[0..m-1] be array of queries. 
-
-Sort all queries in a way that queries with L values from 0 to ?n – 1 are put together, then all queries from ?n to 2*?n – 1, and so on. All queries within a block are sorted in increasing order of R values.
-Process all queries one by one in a way that every query uses sum computed in the previous query.
-Let ‘sum’ be sum of previous query.
-Remove extra elements of previous query. For example if previous query is [0, 8] and current query is [3, 9], then we subtract a[0],a[1] and a[2] from sum
-Add new elements of current query. In the same example as above, we add a[9] to sum.
-*/
-
-class MO {
- 
-    // Prints sum of all query ranges. m is number of queries 
-    // n is size of array a[]. 
-    static void queryResults(int a[], int n, ArrayList<Query> q, int m){
-         
-        // Find block size 
-        int block = (int) Math.sqrt(n); 
-     
-        // Sort all queries so that queries of same blocks 
-        // are arranged together.
-        Collections.sort(q, new Comparator<Query>(){
-             
-            // Function used to sort all queries so that all queries  
-            // of the same block are arranged together and within a block, 
-            // queries are sorted in increasing order of R values. 
-            public int compare(Query x, Query y){
- 
-                // Different blocks, sort by block. 
-                if (x.L/block != y.L/block) 
-                    return (x.L < y.L ? -1 : 1); 
- 
-                // Same block, sort by R value 
-                return (x.R < y.R ? -1 : 1);
-            }
-        });
- 
-        // Initialize current L, current R and current sum 
-        int currL = 0, currR = 0; 
-        int currSum = 0; 
-     
-        // Traverse through all queries 
-        for (int i=0; i<m; i++) 
-        { 
-            // L and R values of current range
-            int L = q.get(i).L, R = q.get(i).R; 
- 
-            // Remove extra elements of previous range. For 
-            // example if previous range is [0, 3] and current 
-            // range is [2, 5], then a[0] and a[1] are subtracted 
-            while (currL < L) 
-            { 
-                currSum -= a[currL]; 
-                currL++; 
-            } 
- 
-            // Add Elements of current Range 
-            while (currL > L) 
-            { 
-                currSum += a[currL-1]; 
-                currL--; 
-            } 
-            while (currR <= R) 
-            { 
-                currSum += a[currR]; 
-                currR++; 
-            } 
- 
-            // Remove elements of previous range.  For example 
-            // when previous range is [0, 10] and current range 
-            // is [3, 8], then a[9] and a[10] are subtracted 
-            while (currR > R+1) 
-            { 
-                currSum -= a[currR-1]; 
-                currR--; 
-            } 
- 
-            // Print sum of current range 
-            System.out.println("Sum of [" + L +
-                           ", " + R + "] is "  + currSum); 
-        } 
-    }
-} 
+//
+// Offline range queries: the queries are visited in an order that keeps the window [L, R]
+// moving little, and the window is moved one element at a time with add/remove callbacks.
+// Queries sorted along a Hilbert curve over (l, r) move the pointers less than the classic
+// sqrt(n) block order, without its worst case when blocks hold few queries.
 public class MosAlgorithm {
     public static class Query {
         int index;
@@ -110,29 +31,231 @@ public class MosAlgorithm {
         return --cnt[a[i]] == 0 ? -1 : 0;
     }
 
+    // number of distinct values on [a, b] for each query, values must be in [0, 1_000_001]
     public static int[] processQueries(int[] a, Query[] queries) {
-        for (int i = 0; i < queries.length; i++) queries[i].index = i;
-        int sqrtn = (int) Math.sqrt(a.length);
-        Arrays.sort(queries, Comparator.<Query>comparingInt(q -> q.a / sqrtn).thenComparingInt(q -> q.b));
-        int[] cnt = new int[1000_002];
-        int[] res = new int[queries.length];
-        int L = 1;
-        int R = 0;
-        int cur = 0;
-        for (Query query : queries) {
-            while (L < query.a) cur += remove(a, cnt, L++);
-            while (L > query.a) cur += add(a, cnt, --L);
-            while (R < query.b) cur += add(a, cnt, ++R);
-            while (R > query.b) cur += remove(a, cnt, R--);
-            res[query.index] = cur;
+        int m = queries.length;
+        int[] l = new int[m];
+        int[] r = new int[m];
+        for (int i = 0; i < m; i++) {
+            queries[i].index = i;
+            l[i] = queries[i].a;
+            r[i] = queries[i].b;
         }
+        int[] cnt = new int[1000_002];
+        int[] res = new int[m];
+        int[] cur = new int[1];
+        process(hilbertOrder(a.length, l, r), l, r, i -> cur[0] += add(a, cnt, i), i -> cur[0] += remove(a, cnt, i),
+            q -> res[q] = cur[0]);
         return res;
     }
 
+    // Visits queries [l[q], r[q]] (inclusive) in the given order. add and remove get the index of the
+    // element that enters or leaves the window, answer gets the query whose window is ready.
+    // Returns the number of pointer moves.
+    public static long process(int[] order, int[] l, int[] r, IntConsumer add, IntConsumer remove, IntConsumer answer) {
+        int L = 0;
+        int R = -1;
+        long moves = 0;
+        for (int q : order) {
+            int a = l[q];
+            int b = r[q];
+            moves += Math.abs(L - a) + Math.abs(R - b);
+            // grow before shrinking, so that the window is never negative
+            while (L > a) add.accept(--L);
+            while (R < b) add.accept(++R);
+            while (L < a) remove.accept(L++);
+            while (R > b) remove.accept(R--);
+            answer.accept(q);
+        }
+        return moves;
+    }
+
+    // Mo's algorithm with point updates: query q sees the first t[q] updates, update k sets
+    // a[updatePos[k]] = updateValue[k]. add and remove read the current value from a, which is
+    // changed while the queries run and restored at the end. Returns the number of pointer moves.
+    public static long processWithUpdates(int[] a, int[] l, int[] r, int[] t, int[] updatePos, int[] updateValue,
+        IntConsumer add, IntConsumer remove, IntConsumer answer) {
+        int n = a.length;
+        int m = l.length;
+        int block = Math.max(1, (int) Math.cbrt((double) n * n));
+        long[] key = new long[m];
+        for (int q = 0; q < m; q++) {
+            long lb = l[q] / block;
+            long rb = r[q] / block;
+            // zig-zag on r and t, so that the pointers do not jump back at block boundaries
+            long rk = (lb & 1) == 0 ? rb : n / block - rb;
+            long tk = ((lb + rb) & 1) == 0 ? t[q] : updatePos.length - t[q];
+            key[q] = (lb * (n / block + 1) + rk) * (updatePos.length + 1) + tk;
+        }
+        int[] order = sortByKey(key);
+        int[] swapValue = updateValue.clone();
+        int L = 0;
+        int R = -1;
+        int T = 0;
+        long moves = 0;
+        for (int q : order) {
+            moves += Math.abs(L - l[q]) + Math.abs(R - r[q]) + Math.abs(T - t[q]);
+            while (L > l[q]) add.accept(--L);
+            while (R < r[q]) add.accept(++R);
+            while (L < l[q]) remove.accept(L++);
+            while (R > r[q]) remove.accept(R--);
+            while (T < t[q]) applyUpdate(a, updatePos[T], swapValue, T++, L, R, add, remove);
+            while (T > t[q]) applyUpdate(a, updatePos[--T], swapValue, T, L, R, add, remove);
+            answer.accept(q);
+        }
+        while (T > 0) applyUpdate(a, updatePos[--T], swapValue, T, n, -1, add, remove);
+        return moves;
+    }
+
+    // swapping the array value with the update value applies the update, and swapping again undoes it
+    static void applyUpdate(int[] a, int pos, int[] swapValue, int k, int L, int R, IntConsumer add, IntConsumer remove) {
+        boolean inside = L <= pos && pos <= R;
+        if (inside)
+            remove.accept(pos);
+        int v = a[pos];
+        a[pos] = swapValue[k];
+        swapValue[k] = v;
+        if (inside)
+            add.accept(pos);
+    }
+
+    // query order along a Hilbert curve over the points (l, r) of a grid of side n
+    public static int[] hilbertOrder(int n, int[] l, int[] r) {
+        int pow = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        long[] key = new long[l.length];
+        for (int q = 0; q < l.length; q++) key[q] = hilbert(l[q], r[q], pow);
+        return sortByKey(key);
+    }
+
+    // classic order: blocks of sqrt(n) by l, r ascending within a block
+    public static int[] blockOrder(int n, int[] l, int[] r) {
+        int block = Math.max(1, (int) Math.sqrt(n));
+        long[] key = new long[l.length];
+        for (int q = 0; q < l.length; q++) key[q] = (long) (l[q] / block) * n + r[q];
+        return sortByKey(key);
+    }
+
+    // https://en.wikipedia.org/wiki/Hilbert_curve: distance of (x, y) along the curve over [0, 2^pow)^2
+    static long hilbert(int x, int y, int pow) {
+        long d = 0;
+        int side = 1 << pow;
+        for (int s = side >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    // indices sorted by non-negative keys with one primitive sort: the index takes the low bits,
+    // and keys that do not fit the remaining bits lose their low bits, which only coarsens the order
+    static int[] sortByKey(long[] key) {
+        int m = key.length;
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, m - 1));
+        long max = 0;
+        for (long k : key) max |= k;
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(max) - (63 - indexBits));
+        long[] packed = new long[m];
+        for (int q = 0; q < m; q++) packed[q] = (key[q] >>> shift) << indexBits | q;
+        Arrays.sort(packed);
+        int[] order = new int[m];
+        long mask = (1L << indexBits) - 1;
+        for (int q = 0; q < m; q++) order[q] = (int) (packed[q] & mask);
+        return order;
+    }
+
     public static void main(String[] args) {
         int[] a = {1, 3, 3, 4};
         Query[] queries = {new Query(0, 3), new Query(1, 3), new Query(2, 3), new Query(3, 3)};
         int[] res = processQueries(a, queries);
         System.out.println(Arrays.toString(res));
+
+        // random test of range sums and of distinct counts with updates against brute force
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            int m = rnd.nextInt(50) + 1;
+            int[] b = rnd.ints(n, 0, 10).toArray();
+            int[] l = new int[m];
+            int[] r = new int[m];
+            int[] t = new int[m];
+            int updates = rnd.nextInt(20);
+            int[] updatePos = rnd.ints(updates, 0, n).toArray();
+            int[] updateValue = rnd.ints(updates, 0, 10).toArray();
+            for (int q = 0; q < m; q++) {
+                l[q] = rnd.nextInt(n);
+                r[q] = l[q] + rnd.nextInt(n - l[q]);
+                t[q] = rnd.nextInt(updates + 1);
+            }
+            long[] sum = new long[m];
+            long[] cur = new long[1];
+            int[] order = rnd.nextBoolean() ? hilbertOrder(n, l, r) : blockOrder(n, l, r);
+            process(order, l, r, i -> cur[0] += b[i], i -> cur[0] -= b[i], q -> sum[q] = cur[0]);
+            int[] distinct = new int[m];
+            int[] cnt = new int[10];
+            int[] kinds = new int[1];
+            int[] c = b.clone();
+            processWithUpdates(c, l, r, t, updatePos, updateValue, i -> {
+                if (cnt[c[i]]++ == 0)
+                    ++kinds[0];
+            }, i -> {
+                if (--cnt[c[i]] == 0)
+                    --kinds[0];
+            }, q -> distinct[q] = kinds[0]);
+            if (!Arrays.equals(b, c))
+                throw new RuntimeException();
+            for (int q = 0; q < m; q++) {
+                int[] d = b.clone();
+                for (int k = 0; k < t[q]; k++) d[updatePos[k]] = updateValue[k];
+                long s = 0;
+                for (int i = l[q]; i <= r[q]; i++) s += b[i];
+                if (sum[q] != s || distinct[q] != Arrays.stream(d, l[q], r[q] + 1).distinct().count())
+                    throw new RuntimeException();
+            }
+        }
+
+        // pointer moves and time: Hilbert order against block order for distinct counts
+        int n = 1 << 20;
+        int m = 1 << 20;
+        int[] b = rnd.ints(n, 0, 1 << 16).toArray();
+        int[] l = new int[m];
+        int[] r = new int[m];
+        for (int q = 0; q < m; q++) {
+            int x = rnd.nextInt(n);
+            int y = rnd.nextInt(n);
+            l[q] = Math.min(x, y);
+            r[q] = Math.max(x, y);
+        }
+        for (int round = 0; round < 2; round++) {
+            long[] hash = new long[2];
+            for (int kind = 0; kind < 2; kind++) {
+                long time = System.currentTimeMillis();
+                int[] order = kind == 0 ? blockOrder(n, l, r) : hilbertOrder(n, l, r);
+                int[] cnt = new int[1 << 16];
+                int[] kinds = new int[1];
+                long[] h = new long[1];
+                long moves = process(order, l, r, i -> {
+                    if (cnt[b[i]]++ == 0)
+                        ++kinds[0];
+                }, i -> {
+                    if (--cnt[b[i]] == 0)
+                        --kinds[0];
+                }, q -> h[0] += (long) q * kinds[0]);
+                hash[kind] = h[0];
+                System.out.println((kind == 0 ? "block order: " : "Hilbert order: ") + moves + " moves, "
+                    + (System.currentTimeMillis() - time) + " ms");
+            }
+            if (hash[0] != hash[1])
+                throw new RuntimeException();
+        }
     }
 }
@@ -0,0 +1,279 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// https://en.wikipedia.org/wiki/Pairing_heap with nodes in primitive arrays.
+// A heap is identified by its root node, -1 is the empty heap. Many heaps can share one arena.
+// meld, add and decreaseKey in O(1), removeMin and delete in O(log(n)) amortized.
+// Deleted nodes go to a free list and their ids are reused by later adds, so the arena
+// allocates nothing after warm-up, unlike MergeableHeap.
+public class PairingHeapArena {
+    int[] key;
+    int[] child;
+    int[] sibling;
+    // parent for a first child, left sibling otherwise, -1 for a root
+    int[] prev;
+    int nodes;
+    int free = -1;
+
+    public PairingHeapArena(int capacity) {
+        capacity = Math.max(capacity, 1);
+        key = new int[capacity];
+        child = new int[capacity];
+        sibling = new int[capacity];
+        prev = new int[capacity];
+    }
+
+    // creates a single-node heap, the returned node id is also the handle for decreaseKey and delete
+    public int newNode(int value) {
+        int node;
+        if (free != -1) {
+            node = free;
+            free = sibling[node];
+        } else {
+            if (nodes == key.length) {
+                int capacity = 2 * nodes;
+                key = Arrays.copyOf(key, capacity);
+                child = Arrays.copyOf(child, capacity);
+                sibling = Arrays.copyOf(sibling, capacity);
+                prev = Arrays.copyOf(prev, capacity);
+            }
+            node = nodes++;
+        }
+        key[node] = value;
+        child[node] = -1;
+        sibling[node] = -1;
+        prev[node] = -1;
+        return node;
+    }
+
+    public int value(int node) {
+        return key[node];
+    }
+
+    public int meld(int a, int b) {
+        if (a == -1)
+            return b;
+        if (b == -1)
+            return a;
+        return link(a, b);
+    }
+
+    public int add(int root, int value) {
+        return meld(root, newNode(value));
+    }
+
+    // returns the new root, the removed value is value(root) before the call
+    public int removeMin(int root) {
+        int res = combineSiblings(child[root]);
+        release(root);
+        return res;
+    }
+
+    // value must not be greater than the current value of node
+    public int decreaseKey(int root, int node, int value) {
+        key[node] = value;
+        if (node == root)
+            return root;
+        detach(node);
+        return link(root, node);
+    }
+
+    public int delete(int root, int node) {
+        if (node == root)
+            return removeMin(root);
+        detach(node);
+        int sub = combineSiblings(child[node]);
+        release(node);
+        return meld(root, sub);
+    }
+
+    // links two roots: the larger one becomes the first child of the smaller one
+    int link(int a, int b) {
+        if (key[b] < key[a]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int c = child[a];
+        sibling[b] = c;
+        if (c != -1)
+            prev[c] = b;
+        prev[b] = a;
+        child[a] = b;
+        sibling[a] = -1;
+        prev[a] = -1;
+        return a;
+    }
+
+    void detach(int node) {
+        int p = prev[node];
+        int s = sibling[node];
+        if (child[p] == node)
+            child[p] = s;
+        else
+            sibling[p] = s;
+        if (s != -1)
+            prev[s] = p;
+        sibling[node] = -1;
+        prev[node] = -1;
+    }
+
+    // standard two-pass pairing, iteratively: pairs are linked left to right and pushed on
+    // a stack threaded through sibling, then melded from the last pair back to the first
+    int combineSiblings(int first) {
+        int stack = -1;
+        for (int a = first; a != -1;) {
+            int b = sibling[a];
+            int next = b == -1 ? -1 : sibling[b];
+            int m = b == -1 ? a : link(a, b);
+            sibling[m] = stack;
+            stack = m;
+            a = next;
+        }
+        if (stack == -1)
+            return -1;
+        int res = stack;
+        stack = sibling[stack];
+        while (stack != -1) {
+            int next = sibling[stack];
+            res = link(stack, res);
+            stack = next;
+        }
+        prev[res] = -1;
+        sibling[res] = -1;
+        return res;
+    }
+
+    void release(int node) {
+        sibling[node] = free;
+        free = node;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        PairingHeapArena arena = new PairingHeapArena(10);
+        int h = -1;
+        h = arena.add(h, 3);
+        int one = arena.newNode(1);
+        h = arena.meld(h, one);
+        h = arena.add(h, 2);
+        h = arena.delete(h, one);
+        h = arena.add(h, 4);
+        while (h != -1) {
+            System.out.println(arena.value(h));
+            h = arena.removeMin(h);
+        }
+
+        // random test of several heaps in one arena against PriorityQueue
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int heaps = rnd.nextInt(5) + 1;
+            int[] root = new int[heaps];
+            Arrays.fill(root, -1);
+            PriorityQueue<Integer>[] q = new PriorityQueue[heaps];
+            for (int i = 0; i < heaps; i++) q[i] = new PriorityQueue<>();
+            // node id -> heap, -1 if deleted
+            int[] owner = new int[1000];
+            Arrays.fill(owner, -1);
+            PairingHeapArena a = new PairingHeapArena(1);
+            for (int op = 0; op < 200; op++) {
+                int i = rnd.nextInt(heaps);
+                int kind = rnd.nextInt(6);
+                if (kind <= 1) {
+                    int v = rnd.nextInt(100);
+                    int node = a.newNode(v);
+                    root[i] = a.meld(root[i], node);
+                    owner[node] = i;
+                    q[i].add(v);
+                } else if (kind == 2 && root[i] != -1) {
+                    if (a.value(root[i]) != q[i].poll())
+                        throw new RuntimeException();
+                    owner[root[i]] = -1;
+                    root[i] = a.removeMin(root[i]);
+                } else if (kind == 3) {
+                    int j = rnd.nextInt(heaps);
+                    if (i != j) {
+                        root[i] = a.meld(root[i], root[j]);
+                        root[j] = -1;
+                        q[i].addAll(q[j]);
+                        q[j].clear();
+                        for (int k = 0; k < a.nodes; k++)
+                            if (owner[k] == j)
+                                owner[k] = i;
+                    }
+                } else {
+                    if (a.nodes == 0)
+                        continue;
+                    int node = rnd.nextInt(a.nodes);
+                    if (owner[node] != i)
+                        continue;
+                    q[i].remove(a.value(node));
+                    if (kind == 4) {
+                        int v = a.value(node) - rnd.nextInt(50);
+                        root[i] = a.decreaseKey(root[i], node, v);
+                        q[i].add(v);
+                    } else {
+                        root[i] = a.delete(root[i], node);
+                        owner[node] = -1;
+                    }
+                }
+                if (root[i] != -1 && a.value(root[i]) != q[i].peek() || root[i] == -1 && !q[i].isEmpty())
+                    throw new RuntimeException();
+            }
+        }
+
+        // Kruskal-style clustering: each cluster keeps a heap of candidate weights,
+        // random pairs of clusters are merged and the merged cluster drops its lightest candidate
+        int n = 1 << 20;
+        int[] values = rnd.ints(4 * n, 0, 1 << 30).toArray();
+        int[] x = rnd.ints(4 * n, 0, n).toArray();
+        int[] y = rnd.ints(4 * n, 0, n).toArray();
+        for (int round = 0; round < 3; round++) {
+            long time = System.currentTimeMillis();
+            MergeableHeap.Heap[] heaps = new MergeableHeap.Heap[n];
+            for (int i = 0; i < 4 * n; i++) heaps[i >> 2] = MergeableHeap.add(heaps[i >> 2], values[i]);
+            int[] p = DisjointSets.createSets(n);
+            long h1 = 0;
+            for (int i = 0; i < 4 * n; i++) {
+                int u = DisjointSets.root(p, x[i]);
+                int v = DisjointSets.root(p, y[i]);
+                if (u == v)
+                    continue;
+                DisjointSets.unite(p, u, v);
+                int r = DisjointSets.root(p, u);
+                MergeableHeap.HeapAndResult hr = MergeableHeap.removeMin(MergeableHeap.merge(heaps[u], heaps[v]));
+                heaps[u] = heaps[v] = null;
+                heaps[r] = hr.heap;
+                h1 += hr.value;
+            }
+            long mergeableTime = System.currentTimeMillis() - time;
+
+            time = System.currentTimeMillis();
+            PairingHeapArena pool = new PairingHeapArena(4 * n);
+            int[] roots = new int[n];
+            Arrays.fill(roots, -1);
+            for (int i = 0; i < 4 * n; i++) roots[i >> 2] = pool.add(roots[i >> 2], values[i]);
+            p = DisjointSets.createSets(n);
+            long h2 = 0;
+            for (int i = 0; i < 4 * n; i++) {
+                int u = DisjointSets.root(p, x[i]);
+                int v = DisjointSets.root(p, y[i]);
+                if (u == v)
+                    continue;
+                DisjointSets.unite(p, u, v);
+                int r = DisjointSets.root(p, u);
+                int m = pool.meld(roots[u], roots[v]);
+                roots[u] = roots[v] = -1;
+                h2 += pool.value(m);
+                roots[r] = pool.removeMin(m);
+            }
+            long arenaTime = System.currentTimeMillis() - time;
+            System.out.println("MergeableHeap " + mergeableTime + " ms, PairingHeapArena " + arenaTime + " ms");
+            if (h1 != h2)
+                throw new RuntimeException();
+        }
+    }
+}
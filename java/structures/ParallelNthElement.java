@@ -0,0 +1,82 @@
+package structures;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+// nth_element for the parallel tree builds of KdTreeRectQuery, MetricTree and RTree. Large steps are three-way
+// partitions whose counting and scattering run over chunks in parallel through a scratch buffer, the rest is left
+// to the sequential nth_element of the tree.
+abstract class ParallelNthElement {
+    // subtrees smaller than this are built sequentially by the Build tasks of the trees
+    static final int SEQUENTIAL_BUILD = 1 << 14;
+    // ranges larger than this are split by a parallel partition
+    static final int PARALLEL_SELECT = 1 << 17;
+    static final int CHUNK = 1 << 14;
+
+    // key of the element at position i
+    abstract long key(int i);
+
+    // copies the element at position i to position j of the scratch buffer
+    abstract void toTmp(int i, int j);
+
+    // copies [from, from + len) of the scratch buffer back
+    abstract void fromTmp(int from, int len);
+
+    abstract void nthElement(int low, int high, int n, Random rnd);
+
+    void select(int low, int high, int n) {
+        Random rnd = ThreadLocalRandom.current();
+        int[] range = new int[2];
+        while (high - low > PARALLEL_SELECT) {
+            partition(low, high, key(low + rnd.nextInt(high - low)), range);
+            if (n < range[0])
+                high = range[0];
+            else if (n >= range[1])
+                low = range[1];
+            else
+                return;
+        }
+        nthElement(low, high, n, rnd);
+    }
+
+    // sets range to {lt, gt}: keys are less than separator on [low, lt), equal on [lt, gt)
+    // and greater on [gt, high)
+    void partition(int low, int high, long separator, int[] range) {
+        int chunks = (high - low + CHUNK - 1) / CHUNK;
+        int[] less = new int[chunks + 1];
+        int[] equal = new int[chunks + 1];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            for (int i = low + c * CHUNK, end = Math.min(high, i + CHUNK); i < end; i++) {
+                long key = key(i);
+                if (key < separator)
+                    ++less[c + 1];
+                else if (key == separator)
+                    ++equal[c + 1];
+            }
+        });
+        for (int c = 0; c < chunks; c++) {
+            less[c + 1] += less[c];
+            equal[c + 1] += equal[c];
+        }
+        int lt = low + less[chunks];
+        int gt = lt + equal[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = low + c * CHUNK;
+            int end = Math.min(high, from + CHUNK);
+            int l = low + less[c];
+            int e = lt + equal[c];
+            int g = gt + c * CHUNK - less[c] - equal[c];
+            for (int i = from; i < end; i++) {
+                long key = key(i);
+                toTmp(i, key < separator ? l++ : key == separator ? e++ : g++);
+            }
+        });
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = low + c * CHUNK;
+            fromTmp(from, Math.min(high, from + CHUNK) - from);
+        });
+        range[0] = lt;
+        range[1] = gt;
+    }
+}
@@ -0,0 +1,175 @@
+package structures;
+
+import java.util.Arrays;
+
+// Persistent sum tree with the same operations as PersistentTree, but nodes are indices
+// into growable int[] arrays instead of objects. Every set() creates a new version handle;
+// release() drops a version and compact() reclaims the nodes no live version can reach.
+public class PersistentTreeArena {
+    final int n;
+    int[] left;
+    int[] right;
+    int[] sum;
+    int size;
+    // roots[version] is the root node of the version, -1 for released versions
+    int[] roots;
+    int versions;
+
+    // creates version 0 with all values equal to 0
+    public PersistentTreeArena(int n) {
+        this.n = n;
+        int capacity = 2 * n;
+        left = new int[capacity];
+        right = new int[capacity];
+        sum = new int[capacity];
+        roots = new int[16];
+        roots[versions++] = build(0, n - 1);
+    }
+
+    int newNode(int l, int r, int s) {
+        if (size == left.length) {
+            int capacity = size + (size >> 1) + 1;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            sum = Arrays.copyOf(sum, capacity);
+        }
+        left[size] = l;
+        right[size] = r;
+        sum[size] = s;
+        return size++;
+    }
+
+    // children are always created before their parent, compact() relies on it
+    int build(int l, int r) {
+        if (l == r)
+            return newNode(-1, -1, 0);
+        int mid = (l + r) >> 1;
+        int a = build(l, mid);
+        int b = build(mid + 1, r);
+        return newNode(a, b, 0);
+    }
+
+    public int sum(int version, int from, int to) {
+        return sum(from, to, roots[version], 0, n - 1);
+    }
+
+    int sum(int from, int to, int root, int l, int r) {
+        if (from > r || l > to)
+            return 0;
+        if (from <= l && r <= to)
+            return sum[root];
+        int mid = (l + r) >> 1;
+        return sum(from, to, left[root], l, mid) + sum(from, to, right[root], mid + 1, r);
+    }
+
+    // returns the handle of a new version where pos is set to value
+    public int set(int version, int pos, int value) {
+        int root = set(pos, value, roots[version], 0, n - 1);
+        if (versions == roots.length)
+            roots = Arrays.copyOf(roots, versions * 2);
+        roots[versions] = root;
+        return versions++;
+    }
+
+    int set(int pos, int value, int root, int l, int r) {
+        if (l == r)
+            return newNode(-1, -1, value);
+        int mid = (l + r) >> 1;
+        if (pos <= mid) {
+            int a = set(pos, value, left[root], l, mid);
+            return newNode(a, right[root], sum[a] + sum[right[root]]);
+        } else {
+            int b = set(pos, value, right[root], mid + 1, r);
+            return newNode(left[root], b, sum[left[root]] + sum[b]);
+        }
+    }
+
+    public void release(int version) {
+        roots[version] = -1;
+    }
+
+    public int nodeCount() {
+        return size;
+    }
+
+    // Drops nodes unreachable from live versions and renumbers the rest in place, O(size).
+    // Version handles stay valid. Since children precede parents, one descending pass marks
+    // every reachable node and one ascending pass moves each node to its new index.
+    public void compact() {
+        int[] newIndex = new int[size];
+        Arrays.fill(newIndex, -1);
+        for (int v = 0; v < versions; v++)
+            if (roots[v] != -1)
+                newIndex[roots[v]] = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (newIndex[i] == 0 && left[i] != -1) {
+                newIndex[left[i]] = 0;
+                newIndex[right[i]] = 0;
+            }
+        }
+        int cnt = 0;
+        for (int i = 0; i < size; i++) {
+            if (newIndex[i] == -1)
+                continue;
+            newIndex[i] = cnt;
+            left[cnt] = left[i] == -1 ? -1 : newIndex[left[i]];
+            right[cnt] = right[i] == -1 ? -1 : newIndex[right[i]];
+            sum[cnt] = sum[i];
+            ++cnt;
+        }
+        size = cnt;
+        for (int v = 0; v < versions; v++)
+            if (roots[v] != -1)
+                roots[v] = newIndex[roots[v]];
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        int n = 10;
+        PersistentTreeArena t = new PersistentTreeArena(n);
+        int v1 = 0;
+        int v2 = t.set(v1, 0, 1);
+        int v3 = t.set(v2, 5, 2);
+        System.out.println(0 == t.sum(v1, 0, 9));
+        System.out.println(1 == t.sum(v2, 0, 9));
+        t.release(v2);
+        t.compact();
+        System.out.println(3 == t.sum(v3, 0, 9));
+        System.out.println(0 == t.sum(v1, 0, 9));
+
+        // 10^7 updates keeping the last 1000 versions alive, against PersistentTree
+        n = 1_000_000;
+        int updates = 10_000_000;
+        int window = 1000;
+        long seed = 1;
+        long time = System.currentTimeMillis();
+        PersistentTree.Node[] live = new PersistentTree.Node[window];
+        live[0] = PersistentTree.build(0, n - 1);
+        long h1 = 0;
+        for (int i = 1; i <= updates; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int pos = (int) ((seed >>> 33) % n);
+            live[i % window] = PersistentTree.set(pos, i, live[(i - 1) % window], 0, n - 1);
+            h1 += PersistentTree.sum(0, pos, live[i % window], 0, n - 1);
+        }
+        System.out.println("PersistentTree: " + (System.currentTimeMillis() - time) + " ms");
+
+        seed = 1;
+        time = System.currentTimeMillis();
+        t = new PersistentTreeArena(n);
+        int prev = 0;
+        long h2 = 0;
+        for (int i = 1; i <= updates; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int pos = (int) ((seed >>> 33) % n);
+            prev = t.set(prev, pos, i);
+            if (prev >= window)
+                t.release(prev - window);
+            if (t.nodeCount() > 8 * n)
+                t.compact();
+            h2 += t.sum(prev, 0, pos);
+        }
+        System.out.println("PersistentTreeArena: " + (System.currentTimeMillis() - time) + " ms");
+        System.out.println(h1 == h2);
+    }
+}
@@ -0,0 +1,339 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// https://en.wikipedia.org/wiki/Quadtree#Point-region_(PR)_quadtree with leaf buckets over the
+// same 2^30 x 2^30 space as QuadTree. A leaf holds up to B points and splits into four only
+// when it overflows, so clustered points need a few nodes per bucket instead of up to 30 nodes
+// per point. Nodes and buckets live in primitive arrays.
+// snapshot() encodes the points as a sorted array of Morton codes (a linear quadtree): every
+// quadrant is a contiguous range found by binary search, and count runs over it without nodes.
+public class QuadTreeBucketed {
+    static final int B = 32;
+    static final int SIDE = 1 << 30;
+
+    // first of the four children (bottom-left, bottom-right, top-left, top-right), -1 for leaves
+    int[] child = new int[16];
+    int[] bucket = new int[16];
+    int[] count = new int[16];
+    int nodes;
+    // bucket b keeps its points at [b * B, (b + 1) * B)
+    int[] bx = new int[16 * B];
+    int[] by = new int[16 * B];
+    int buckets;
+    int[] freeBuckets = new int[16];
+    int freeCount;
+    // nodes visited by the last count
+    long visits;
+
+    public QuadTreeBucketed() {
+        newNode();
+    }
+
+    int newNode() {
+        if (nodes == child.length) {
+            child = Arrays.copyOf(child, 2 * nodes);
+            bucket = Arrays.copyOf(bucket, 2 * nodes);
+            count = Arrays.copyOf(count, 2 * nodes);
+        }
+        child[nodes] = -1;
+        bucket[nodes] = -1;
+        count[nodes] = 0;
+        return nodes++;
+    }
+
+    int newBucket() {
+        if (freeCount > 0)
+            return freeBuckets[--freeCount];
+        if ((buckets + 1) * B > bx.length) {
+            bx = Arrays.copyOf(bx, 2 * bx.length);
+            by = Arrays.copyOf(by, 2 * by.length);
+        }
+        return buckets++;
+    }
+
+    // insert point (x,y), 0 <= x, y < 2^30
+    public void insert(int x, int y) {
+        int node = 0;
+        int ax = 0;
+        int ay = 0;
+        int size = SIDE;
+        while (true) {
+            int c = count[node]++;
+            if (child[node] == -1) {
+                // a unit cell keeps only its count: all its points are the cell itself
+                if (size == 1)
+                    return;
+                if (c < B) {
+                    if (bucket[node] == -1)
+                        bucket[node] = newBucket();
+                    bx[bucket[node] * B + c] = x;
+                    by[bucket[node] * B + c] = y;
+                    return;
+                }
+                split(node, ax, ay, size);
+            }
+            size >>= 1;
+            int q = (x >= ax + size ? 1 : 0) | (y >= ay + size ? 2 : 0);
+            node = child[node] + q;
+            ax += (q & 1) * size;
+            ay += (q >> 1) * size;
+        }
+    }
+
+    // moves the B points of a full leaf into four new children
+    void split(int node, int ax, int ay, int size) {
+        int first = newNode();
+        newNode();
+        newNode();
+        newNode();
+        child[node] = first;
+        int half = size >> 1;
+        int b = bucket[node];
+        for (int i = b * B; i < (b + 1) * B; i++) {
+            int q = (bx[i] >= ax + half ? 1 : 0) | (by[i] >= ay + half ? 2 : 0);
+            int c = first + q;
+            if (half == 1) {
+                ++count[c];
+                continue;
+            }
+            if (bucket[c] == -1)
+                bucket[c] = newBucket();
+            bx[bucket[c] * B + count[c]] = bx[i];
+            by[bucket[c] * B + count[c]] = by[i];
+            ++count[c];
+        }
+        if (freeCount == freeBuckets.length)
+            freeBuckets = Arrays.copyOf(freeBuckets, 2 * freeCount);
+        freeBuckets[freeCount++] = b;
+        bucket[node] = -1;
+    }
+
+    // number of points in [x1,x2] x [y1,y2]
+    public int count(int x1, int y1, int x2, int y2) {
+        visits = 0;
+        return count(0, 0, 0, SIDE, x1, y1, x2, y2);
+    }
+
+    int count(int node, int ax, int ay, int size, int x1, int y1, int x2, int y2) {
+        ++visits;
+        int bx2 = ax + size - 1;
+        int by2 = ay + size - 1;
+        if (count[node] == 0 || ax > x2 || x1 > bx2 || ay > y2 || y1 > by2)
+            return 0;
+        if (x1 <= ax && bx2 <= x2 && y1 <= ay && by2 <= y2)
+            return count[node];
+        if (child[node] == -1) {
+            int res = 0;
+            for (int i = bucket[node] * B, end = i + count[node]; i < end; i++)
+                if (x1 <= bx[i] && bx[i] <= x2 && y1 <= by[i] && by[i] <= y2)
+                    ++res;
+            return res;
+        }
+        int half = size >> 1;
+        int res = 0;
+        for (int q = 0; q < 4; q++)
+            res += count(child[node] + q, ax + (q & 1) * half, ay + (q >> 1) * half, half, x1, y1, x2, y2);
+        return res;
+    }
+
+    long memoryBytes() {
+        return 4L * (child.length + bucket.length + count.length + bx.length + by.length + freeBuckets.length);
+    }
+
+    public Snapshot snapshot() {
+        long[] codes = new long[count[0]];
+        int n = collect(0, 0, 0, SIDE, codes, 0);
+        Arrays.sort(codes, 0, n);
+        return new Snapshot(codes);
+    }
+
+    int collect(int node, int ax, int ay, int size, long[] codes, int n) {
+        if (child[node] == -1) {
+            if (size == 1) {
+                long code = morton(ax, ay);
+                for (int i = 0; i < count[node]; i++) codes[n++] = code;
+            } else {
+                for (int i = bucket[node] * B, end = i + count[node]; i < end; i++) codes[n++] = morton(bx[i], by[i]);
+            }
+            return n;
+        }
+        int half = size >> 1;
+        for (int q = 0; q < 4; q++) n = collect(child[node] + q, ax + (q & 1) * half, ay + (q >> 1) * half, half, codes, n);
+        return n;
+    }
+
+    // interleaves the bits of x (even positions) and y (odd positions)
+    static long morton(int x, int y) {
+        return spread(x) | spread(y) << 1;
+    }
+
+    static long spread(int v) {
+        long x = v & 0x3FFFFFFFL;
+        x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+        x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x << 2) & 0x3333333333333333L;
+        x = (x | x << 1) & 0x5555555555555555L;
+        return x;
+    }
+
+    static int compact(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | x >>> 1) & 0x3333333333333333L;
+        x = (x | x >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x >>> 4) & 0x00FF00FF00FF00FFL;
+        x = (x | x >>> 8) & 0x0000FFFF0000FFFFL;
+        x = (x | x >>> 16) & 0x00000000FFFFFFFFL;
+        return (int) x;
+    }
+
+    // read-only linear quadtree: points as sorted Morton codes, 8 bytes per point
+    public static class Snapshot {
+        final long[] codes;
+        long visits;
+
+        Snapshot(long[] codes) {
+            this.codes = codes;
+        }
+
+        // number of points in [x1,x2] x [y1,y2]
+        public int count(int x1, int y1, int x2, int y2) {
+            visits = 0;
+            return count(0, 0, SIDE, 0, codes.length, x1, y1, x2, y2);
+        }
+
+        // points of the quadrant are codes[lo, hi)
+        int count(int ax, int ay, int size, int lo, int hi, int x1, int y1, int x2, int y2) {
+            ++visits;
+            int bx2 = ax + size - 1;
+            int by2 = ay + size - 1;
+            if (lo == hi || ax > x2 || x1 > bx2 || ay > y2 || y1 > by2)
+                return 0;
+            if (x1 <= ax && bx2 <= x2 && y1 <= ay && by2 <= y2)
+                return hi - lo;
+            if (hi - lo <= B) {
+                int res = 0;
+                for (int i = lo; i < hi; i++) {
+                    int x = compact(codes[i]);
+                    int y = compact(codes[i] >>> 1);
+                    if (x1 <= x && x <= x2 && y1 <= y && y <= y2)
+                        ++res;
+                }
+                return res;
+            }
+            int half = size >> 1;
+            long quarter = (long) half * half;
+            long start = morton(ax, ay);
+            int res = 0;
+            for (int q = 0; q < 4; q++) {
+                int end = q == 3 ? hi : lowerBound(lo, hi, start + (q + 1) * quarter);
+                res += count(ax + (q & 1) * half, ay + (q >> 1) * half, half, lo, end, x1, y1, x2, y2);
+                lo = end;
+            }
+            return res;
+        }
+
+        int lowerBound(int lo, int hi, long key) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (codes[mid] < key)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        QuadTreeBucketed t = new QuadTreeBucketed();
+        t.insert(0, 0);
+        t.insert(1, 0);
+        t.insert(2, 0);
+        t.insert(3, 0);
+        System.out.println(4 == t.count(0, 0, 3, 0));
+        System.out.println(2 == t.snapshot().count(1, 0, 2, 5));
+
+        // random test against QuadTree, with duplicate points
+        Random rnd = new Random(1);
+        for (int step = 0; step < 200; step++) {
+            QuadTreeBucketed qb = new QuadTreeBucketed();
+            QuadTree q = new QuadTree();
+            int range = rnd.nextInt(1000) + 1;
+            int n = rnd.nextInt(500);
+            for (int i = 0; i < n; i++) {
+                int x = rnd.nextInt(range);
+                int y = rnd.nextInt(range);
+                qb.insert(x, y);
+                q.insert(x, y);
+            }
+            Snapshot s = qb.snapshot();
+            for (int k = 0; k < 100; k++) {
+                int x1 = rnd.nextInt(range);
+                int y1 = rnd.nextInt(range);
+                int x2 = x1 + rnd.nextInt(range);
+                int y2 = y1 + rnd.nextInt(range);
+                int expected = q.count(x1, y1, x2, y2);
+                if (qb.count(x1, y1, x2, y2) != expected || s.count(x1, y1, x2, y2) != expected)
+                    throw new RuntimeException();
+            }
+        }
+
+        // clustered points: memory per point, query time and visited nodes
+        int n = 1 << 20;
+        int[] x = new int[n];
+        int[] y = new int[n];
+        for (int i = 0; i < n; i++) {
+            int cluster = rnd.nextInt(100);
+            Random c = new Random(cluster);
+            x[i] = Math.max(0, Math.min(SIDE - 1, c.nextInt(SIDE) + (int) (rnd.nextGaussian() * 10_000)));
+            y[i] = Math.max(0, Math.min(SIDE - 1, c.nextInt(SIDE) + (int) (rnd.nextGaussian() * 10_000)));
+        }
+        int queries = 100_000;
+        int[][] rect = new int[queries][];
+        for (int k = 0; k < queries; k++) {
+            int i = rnd.nextInt(n);
+            rect[k] = new int[] {x[i] - 20_000, y[i] - 20_000, x[i] + 20_000, y[i] + 20_000};
+        }
+        System.gc();
+        long used = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        QuadTree q = new QuadTree();
+        for (int i = 0; i < n; i++) q.insert(x[i], y[i]);
+        System.gc();
+        long quadTreeBytes = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - used;
+        QuadTreeBucketed qb = new QuadTreeBucketed();
+        for (int i = 0; i < n; i++) qb.insert(x[i], y[i]);
+        Snapshot s = qb.snapshot();
+        System.out.printf("bytes per point: QuadTree %.1f, bucketed %.1f, snapshot %.1f%n", (double) quadTreeBytes / n,
+            (double) qb.memoryBytes() / n, 8.0);
+        for (int round = 0; round < 2; round++) {
+            long time = System.currentTimeMillis();
+            long h1 = 0;
+            for (int[] r : rect) h1 += q.count(r[0], r[1], r[2], r[3]);
+            long quadTreeTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h2 = 0;
+            long v2 = 0;
+            for (int[] r : rect) {
+                h2 += qb.count(r[0], r[1], r[2], r[3]);
+                v2 += qb.visits;
+            }
+            long bucketedTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h3 = 0;
+            long v3 = 0;
+            for (int[] r : rect) {
+                h3 += s.count(r[0], r[1], r[2], r[3]);
+                v3 += s.visits;
+            }
+            long snapshotTime = System.currentTimeMillis() - time;
+            System.out.println("count: QuadTree " + quadTreeTime + " ms, bucketed " + bucketedTime + " ms ("
+                + v2 / queries + " visits), snapshot " + snapshotTime + " ms (" + v3 / queries + " visits)");
+            if (h1 != h2 || h1 != h3)
+                throw new RuntimeException();
+        }
+    }
+}
@@ -3,27 +3,41 @@ package structures;
 import java.util.*;
 
 // https://cp-algorithms.com/data_structures/stack_queue_modification.html
+// Two stacks over int arrays. SlidingWindowAggregator handles other monoids and batches,
+// SlidingWindowMinMax is the monotonic deque variant for min, max and sum at once.
 public class QueueMin {
-    List<Integer> s1 = new ArrayList<>();
-    List<Integer> s2 = new ArrayList<>();
+    int[] s1 = new int[16];
+    int size1;
+    // s2 keeps the minimum of the elements below and including each position
+    int[] s2 = new int[16];
+    int size2;
     int min1 = Integer.MAX_VALUE;
 
     public int min() {
-        return Math.min(s2.isEmpty() ? Integer.MAX_VALUE : s2.get(s2.size() - 1), min1);
+        return Math.min(size2 == 0 ? Integer.MAX_VALUE : s2[size2 - 1], min1);
     }
 
     public void addLast(int x) {
-        s1.add(x);
+        if (size1 == s1.length)
+            s1 = Arrays.copyOf(s1, 2 * size1);
+        s1[size1++] = x;
         min1 = Math.min(min1, x);
     }
 
     public void removeFirst() {
-        while (!s1.isEmpty()) {
-            int x = s1.remove(s1.size() - 1);
-            s2.add(s2.isEmpty() ? x : Math.min(x, s2.get(s2.size() - 1)));
+        if (size1 + size2 == 0)
+            throw new RuntimeException("queue is empty");
+        if (size2 == 0) {
+            if (s2.length < size1)
+                s2 = new int[s1.length];
+            while (size1 > 0) {
+                int x = s1[--size1];
+                s2[size2] = size2 == 0 ? x : Math.min(x, s2[size2 - 1]);
+                ++size2;
+            }
+            min1 = Integer.MAX_VALUE;
         }
-        min1 = Integer.MAX_VALUE;
-        s2.remove(s2.size() - 1);
+        --size2;
     }
 
     // Usage example
@@ -1,6 +1,9 @@
 package structures;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
 
 // https://en.wikipedia.org/wiki/R-tree
 public class RTree {
@@ -19,6 +22,12 @@ public class RTree {
     final int[] minx, maxx, miny, maxy;
 
     public RTree(Segment[] segments) {
+        this(segments, false);
+    }
+
+    // parallel builds the same tree shape on the common fork-join pool when it has more than one worker,
+    // segments are reordered either way
+    public RTree(Segment[] segments, boolean parallel) {
         int n = segments.length;
         x1 = new int[n];
         y1 = new int[n];
@@ -28,39 +37,110 @@ public class RTree {
         maxx = new int[n];
         miny = new int[n];
         maxy = new int[n];
-        Arrays.fill(minx, Integer.MAX_VALUE);
-        Arrays.fill(maxx, Integer.MIN_VALUE);
-        Arrays.fill(miny, Integer.MAX_VALUE);
-        Arrays.fill(maxy, Integer.MIN_VALUE);
-        build(0, n, true, segments);
+        if (parallel && ForkJoinPool.getCommonPoolParallelism() > 1)
+            ForkJoinPool.commonPool().invoke(new Build(0, n, true, segments, new Segment[n]));
+        else
+            build(0, n, true, segments, rnd);
     }
 
-    void build(int low, int high, boolean divX, Segment[] segments) {
+    void build(int low, int high, boolean divX, Segment[] segments, Random rnd) {
         if (low >= high)
             return;
         int mid = (low + high) >>> 1;
-        nth_element(segments, low, high, mid, divX);
-
-        x1[mid] = segments[mid].x1;
-        y1[mid] = segments[mid].y1;
-        x2[mid] = segments[mid].x2;
-        y2[mid] = segments[mid].y2;
-
-        for (int i = low; i < high; i++) {
-            minx[mid] = Math.min(minx[mid], Math.min(segments[i].x1, segments[i].x2));
-            miny[mid] = Math.min(miny[mid], Math.min(segments[i].y1, segments[i].y2));
-            maxx[mid] = Math.max(maxx[mid], Math.max(segments[i].x1, segments[i].x2));
-            maxy[mid] = Math.max(maxy[mid], Math.max(segments[i].y1, segments[i].y2));
+        nth_element(segments, low, high, mid, divX, rnd);
+        build(low, mid, !divX, segments, rnd);
+        build(mid + 1, high, !divX, segments, rnd);
+        setNode(low, mid, high, segments[mid]);
+    }
+
+    // the bounding box is merged from the children, which are already built
+    void setNode(int low, int mid, int high, Segment s) {
+        x1[mid] = s.x1;
+        y1[mid] = s.y1;
+        x2[mid] = s.x2;
+        y2[mid] = s.y2;
+        minx[mid] = Math.min(s.x1, s.x2);
+        miny[mid] = Math.min(s.y1, s.y2);
+        maxx[mid] = Math.max(s.x1, s.x2);
+        maxy[mid] = Math.max(s.y1, s.y2);
+        if (low < mid)
+            mergeBox(mid, (low + mid) >>> 1);
+        if (mid + 1 < high)
+            mergeBox(mid, (mid + 1 + high) >>> 1);
+    }
+
+    void mergeBox(int node, int child) {
+        minx[node] = Math.min(minx[node], minx[child]);
+        miny[node] = Math.min(miny[node], miny[child]);
+        maxx[node] = Math.max(maxx[node], maxx[child]);
+        maxy[node] = Math.max(maxy[node], maxy[child]);
+    }
+
+    class Build extends RecursiveAction {
+        final int low, high;
+        final boolean divX;
+        final Segment[] segments, tmp;
+
+        Build(int low, int high, boolean divX, Segment[] segments, Segment[] tmp) {
+            this.low = low;
+            this.high = high;
+            this.divX = divX;
+            this.segments = segments;
+            this.tmp = tmp;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= ParallelNthElement.SEQUENTIAL_BUILD) {
+                build(low, high, divX, segments, ThreadLocalRandom.current());
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            new Select(segments, tmp, divX).select(low, high, mid);
+            invokeAll(new Build(low, mid, !divX, segments, tmp), new Build(mid + 1, high, !divX, segments, tmp));
+            setNode(low, mid, high, segments[mid]);
+        }
+    }
+
+    static int key(Segment s, boolean divX) {
+        return divX ? s.x1 + s.x2 : s.y1 + s.y2;
+    }
+
+    static class Select extends ParallelNthElement {
+        final Segment[] a, tmp;
+        final boolean divX;
+
+        Select(Segment[] a, Segment[] tmp, boolean divX) {
+            this.a = a;
+            this.tmp = tmp;
+            this.divX = divX;
+        }
+
+        @Override
+        long key(int i) {
+            return RTree.key(a[i], divX);
+        }
+
+        @Override
+        void toTmp(int i, int j) {
+            tmp[j] = a[i];
         }
 
-        build(low, mid, !divX, segments);
-        build(mid + 1, high, !divX, segments);
+        @Override
+        void fromTmp(int from, int len) {
+            System.arraycopy(tmp, from, a, from, len);
+        }
+
+        @Override
+        void nthElement(int low, int high, int n, Random rnd) {
+            nth_element(a, low, high, n, divX, rnd);
+        }
     }
 
     static final Random rnd = new Random(1);
 
     // See: http://www.cplusplus.com/reference/algorithm/nth_element
-    static void nth_element(Segment[] a, int low, int high, int n, boolean divX) {
+    static void nth_element(Segment[] a, int low, int high, int n, boolean divX, Random rnd) {
         while (true) {
             int k = partition(a, low, high, low + rnd.nextInt(high - low), divX);
             if (n < k)
@@ -183,5 +263,32 @@ public class RTree {
                 || !(Math.abs(pointToSegmentSquaredDistance(qx, qy, s.x1, s.y1, s.x2, s.y2) - minDist) < 1e-9))
                 throw new RuntimeException();
         }
+
+        // sequential against parallel build, with the same answers on random queries
+        int n = 1 << 21;
+        Segment[] segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            int x1 = rnd.nextInt(1 << 20);
+            int y1 = rnd.nextInt(1 << 20);
+            segments[i] = new Segment(x1, y1, x1 + rnd.nextInt(100), y1 + rnd.nextInt(100));
+        }
+        for (int round = 0; round < 3; round++) {
+            long time = System.currentTimeMillis();
+            RTree t1 = new RTree(segments.clone());
+            long sequentialTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            RTree t2 = new RTree(segments.clone(), true);
+            long parallelTime = System.currentTimeMillis() - time;
+            System.out.println("build: sequential " + sequentialTime + " ms, parallel " + parallelTime + " ms on "
+                + ForkJoinPool.commonPool().getParallelism() + " workers");
+            for (int q = 0; q < 1000; q++) {
+                int qx = rnd.nextInt(1 << 20);
+                int qy = rnd.nextInt(1 << 20);
+                t1.findNearestNeighbour(qx, qy);
+                t2.findNearestNeighbour(qx, qy);
+                if (t1.bestDist != t2.bestDist)
+                    throw new RuntimeException();
+            }
+        }
     }
 }
@@ -0,0 +1,427 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// https://en.wikipedia.org/wiki/R-tree of segments with Sort-Tile-Recursive bulk loading,
+// inserts with node splits, window queries and nearest neighbour queries.
+// Nodes are immutable: an insert copies the nodes on its path and publishes the new root
+// through a volatile field (copy-on-write), so readers never block and always see a
+// consistent snapshot. Writers are serialized among themselves.
+// https://doi.org/10.1109/ICDE.1997.582015 (STR)
+public class RTreeConcurrent {
+    static final int M = 16;
+
+    // Leaves keep the segment endpoints in (ax, ay) - (bx, by), internal nodes keep
+    // the bounding boxes of their children with ax <= bx and ay <= by
+    static final class Node {
+        final int size;
+        final int[] ax, ay, bx, by;
+        final Node[] child;
+        final int[] id;
+
+        Node(int size, int[] ax, int[] ay, int[] bx, int[] by, Node[] child, int[] id) {
+            this.size = size;
+            this.ax = ax;
+            this.ay = ay;
+            this.bx = bx;
+            this.by = by;
+            this.child = child;
+            this.id = id;
+        }
+
+        boolean leaf() {
+            return child == null;
+        }
+
+        int minx(int i) {
+            return Math.min(ax[i], bx[i]);
+        }
+
+        int miny(int i) {
+            return Math.min(ay[i], by[i]);
+        }
+
+        int maxx(int i) {
+            return Math.max(ax[i], bx[i]);
+        }
+
+        int maxy(int i) {
+            return Math.max(ay[i], by[i]);
+        }
+    }
+
+    volatile Node root;
+    int segments;
+
+    // bulk loads segments, the id of segments[i] is i
+    public RTreeConcurrent(RTree.Segment[] segments) {
+        int n = segments.length;
+        this.segments = n;
+        int[] ax = new int[n];
+        int[] ay = new int[n];
+        int[] bx = new int[n];
+        int[] by = new int[n];
+        for (int i = 0; i < n; i++) {
+            ax[i] = segments[i].x1;
+            ay[i] = segments[i].y1;
+            bx[i] = segments[i].x2;
+            by[i] = segments[i].y2;
+        }
+        Node[] level = pack(n, ax, ay, bx, by, null);
+        while (level.length > 1) {
+            int m = level.length;
+            int[] cx1 = new int[m];
+            int[] cy1 = new int[m];
+            int[] cx2 = new int[m];
+            int[] cy2 = new int[m];
+            for (int i = 0; i < m; i++) {
+                Node v = level[i];
+                cx1[i] = minx(v);
+                cy1[i] = miny(v);
+                cx2[i] = maxx(v);
+                cy2[i] = maxy(v);
+            }
+            level = pack(m, cx1, cy1, cx2, cy2, level);
+        }
+        root = level.length == 0 ? new Node(0, new int[0], new int[0], new int[0], new int[0], null, new int[0]) : level[0];
+    }
+
+    // Sort-Tile-Recursive packing of n entries into nodes of M: sort by x center,
+    // cut into sqrt(n / M) vertical slices, sort each slice by y center and cut into nodes.
+    // children == null packs segments into leaves.
+    static Node[] pack(int n, int[] ax, int[] ay, int[] bx, int[] by, Node[] children) {
+        int nodes = (n + M - 1) / M;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * M;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        sortByCenter(order, 0, n, ax, bx);
+        for (int from = 0; from < n; from += sliceSize) sortByCenter(order, from, Math.min(n, from + sliceSize), ay, by);
+        Node[] res = new Node[nodes];
+        for (int k = 0; k < nodes; k++) {
+            int from = k * M;
+            int size = Math.min(M, n - from);
+            int[] nax = new int[size];
+            int[] nay = new int[size];
+            int[] nbx = new int[size];
+            int[] nby = new int[size];
+            Node[] child = children == null ? null : new Node[size];
+            int[] id = children == null ? new int[size] : null;
+            for (int j = 0; j < size; j++) {
+                int e = order[from + j];
+                nax[j] = ax[e];
+                nay[j] = ay[e];
+                nbx[j] = bx[e];
+                nby[j] = by[e];
+                if (children == null)
+                    id[j] = e;
+                else
+                    child[j] = children[e];
+            }
+            res[k] = new Node(size, nax, nay, nbx, nby, child, id);
+        }
+        return res;
+    }
+
+    // sorts order[from, to) by a + b of the entries with one primitive sort, entries must be below 2^30
+    static void sortByCenter(int[] order, int from, int to, int[] a, int[] b) {
+        long[] packed = new long[to - from];
+        for (int i = from; i < to; i++) {
+            int e = order[i];
+            long center = (long) a[e] + b[e] + (1L << 32);
+            packed[i - from] = center << 30 | e;
+        }
+        Arrays.sort(packed);
+        for (int i = from; i < to; i++) order[i] = (int) (packed[i - from] & ((1 << 30) - 1));
+    }
+
+    static int minx(Node v) {
+        int res = Integer.MAX_VALUE;
+        for (int i = 0; i < v.size; i++) res = Math.min(res, v.minx(i));
+        return res;
+    }
+
+    static int miny(Node v) {
+        int res = Integer.MAX_VALUE;
+        for (int i = 0; i < v.size; i++) res = Math.min(res, v.miny(i));
+        return res;
+    }
+
+    static int maxx(Node v) {
+        int res = Integer.MIN_VALUE;
+        for (int i = 0; i < v.size; i++) res = Math.max(res, v.maxx(i));
+        return res;
+    }
+
+    static int maxy(Node v) {
+        int res = Integer.MIN_VALUE;
+        for (int i = 0; i < v.size; i++) res = Math.max(res, v.maxy(i));
+        return res;
+    }
+
+    // returns the id of the inserted segment
+    public synchronized int insert(int x1, int y1, int x2, int y2) {
+        int id = segments++;
+        Node[] res = insert(root, x1, y1, x2, y2, id);
+        if (res.length == 1) {
+            root = res[0];
+        } else {
+            root = new Node(2, new int[] {minx(res[0]), minx(res[1])}, new int[] {miny(res[0]), miny(res[1])},
+                new int[] {maxx(res[0]), maxx(res[1])}, new int[] {maxy(res[0]), maxy(res[1])}, res, null);
+        }
+        return id;
+    }
+
+    // returns the copy of node with the segment, or two nodes if it had to split
+    Node[] insert(Node node, int x1, int y1, int x2, int y2, int id) {
+        int size = node.size;
+        int[] ax = Arrays.copyOf(node.ax, size + 1);
+        int[] ay = Arrays.copyOf(node.ay, size + 1);
+        int[] bx = Arrays.copyOf(node.bx, size + 1);
+        int[] by = Arrays.copyOf(node.by, size + 1);
+        if (node.leaf()) {
+            int[] ids = Arrays.copyOf(node.id, size + 1);
+            ax[size] = x1;
+            ay[size] = y1;
+            bx[size] = x2;
+            by[size] = y2;
+            ids[size] = id;
+            return split(size + 1, ax, ay, bx, by, null, ids);
+        }
+        Node[] child = Arrays.copyOf(node.child, size + 1);
+        int c = chooseSubtree(node, Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+        Node[] sub = insert(node.child[c], x1, y1, x2, y2, id);
+        setChild(ax, ay, bx, by, child, c, sub[0]);
+        if (sub.length == 1)
+            return new Node[] {new Node(size, ax, ay, bx, by, child, null)};
+        setChild(ax, ay, bx, by, child, size, sub[1]);
+        return split(size + 1, ax, ay, bx, by, child, null);
+    }
+
+    static void setChild(int[] ax, int[] ay, int[] bx, int[] by, Node[] child, int i, Node v) {
+        child[i] = v;
+        ax[i] = minx(v);
+        ay[i] = miny(v);
+        bx[i] = maxx(v);
+        by[i] = maxy(v);
+    }
+
+    // child whose box grows least, ties broken by the smaller area
+    static int chooseSubtree(Node node, int x1, int y1, int x2, int y2) {
+        int best = 0;
+        long bestGrowth = Long.MAX_VALUE;
+        long bestArea = Long.MAX_VALUE;
+        for (int i = 0; i < node.size; i++) {
+            long area = (long) (node.bx[i] - node.ax[i]) * (node.by[i] - node.ay[i]);
+            long grown = (long) (Math.max(node.bx[i], x2) - Math.min(node.ax[i], x1))
+                * (Math.max(node.by[i], y2) - Math.min(node.ay[i], y1));
+            long growth = grown - area;
+            if (growth < bestGrowth || growth == bestGrowth && area < bestArea) {
+                best = i;
+                bestGrowth = growth;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    // a node with more than M entries is cut in halves along the axis where the centers spread most
+    static Node[] split(int size, int[] ax, int[] ay, int[] bx, int[] by, Node[] child, int[] id) {
+        if (size <= M)
+            return new Node[] {new Node(size, ax, ay, bx, by, child, id)};
+        long minX = Long.MAX_VALUE, maxX = Long.MIN_VALUE, minY = Long.MAX_VALUE, maxY = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, (long) ax[i] + bx[i]);
+            maxX = Math.max(maxX, (long) ax[i] + bx[i]);
+            minY = Math.min(minY, (long) ay[i] + by[i]);
+            maxY = Math.max(maxY, (long) ay[i] + by[i]);
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        if (maxX - minX >= maxY - minY)
+            sortByCenter(order, 0, size, ax, bx);
+        else
+            sortByCenter(order, 0, size, ay, by);
+        Node[] res = new Node[2];
+        for (int half = 0; half < 2; half++) {
+            int from = half == 0 ? 0 : size / 2;
+            int to = half == 0 ? size / 2 : size;
+            int n = to - from;
+            int[] nax = new int[n];
+            int[] nay = new int[n];
+            int[] nbx = new int[n];
+            int[] nby = new int[n];
+            Node[] nchild = child == null ? null : new Node[n];
+            int[] nid = child == null ? new int[n] : null;
+            for (int j = 0; j < n; j++) {
+                int e = order[from + j];
+                nax[j] = ax[e];
+                nay[j] = ay[e];
+                nbx[j] = bx[e];
+                nby[j] = by[e];
+                if (child == null)
+                    nid[j] = id[e];
+                else
+                    nchild[j] = child[e];
+            }
+            res[half] = new Node(n, nax, nay, nbx, nby, nchild, nid);
+        }
+        return res;
+    }
+
+    // Writes ids of segments whose bounding boxes intersect [x1,x2] x [y1,y2] to out, as many as fit,
+    // and returns how many there are
+    public int query(int x1, int y1, int x2, int y2, int[] out) {
+        return query(root, x1, y1, x2, y2, out, 0);
+    }
+
+    static int query(Node node, int x1, int y1, int x2, int y2, int[] out, int cnt) {
+        for (int i = 0; i < node.size; i++) {
+            if (node.minx(i) > x2 || x1 > node.maxx(i) || node.miny(i) > y2 || y1 > node.maxy(i))
+                continue;
+            if (node.leaf()) {
+                if (cnt < out.length)
+                    out[cnt] = node.id[i];
+                ++cnt;
+            } else {
+                cnt = query(node.child[i], x1, y1, x2, y2, out, cnt);
+            }
+        }
+        return cnt;
+    }
+
+    // id of the nearest segment, -1 if the tree is empty
+    public int findNearestNeighbour(int x, int y) {
+        double[] best = {Double.POSITIVE_INFINITY, -1};
+        findNearestNeighbour(root, x, y, best);
+        return (int) best[1];
+    }
+
+    static void findNearestNeighbour(Node node, int x, int y, double[] best) {
+        if (node.leaf()) {
+            for (int i = 0; i < node.size; i++) {
+                double d = RTree.pointToSegmentSquaredDistance(x, y, node.ax[i], node.ay[i], node.bx[i], node.by[i]);
+                if (d < best[0]) {
+                    best[0] = d;
+                    best[1] = node.id[i];
+                }
+            }
+            return;
+        }
+        // children closest to the point first, by insertion sort of at most M boxes
+        double[] dist = new double[node.size];
+        int[] order = new int[node.size];
+        for (int i = 0; i < node.size; i++) {
+            double dx = RTree.getDist(x, node.ax[i], node.bx[i]);
+            double dy = RTree.getDist(y, node.ay[i], node.by[i]);
+            double d = dx * dx + dy * dy;
+            int j = i;
+            for (; j > 0 && dist[j - 1] > d; j--) {
+                dist[j] = dist[j - 1];
+                order[j] = order[j - 1];
+            }
+            dist[j] = d;
+            order[j] = i;
+        }
+        for (int j = 0; j < node.size && dist[j] < best[0]; j++) findNearestNeighbour(node.child[order[j]], x, y, best);
+    }
+
+    // random test and reader/writer throughput
+    public static void main(String[] args) throws InterruptedException {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 300; step++) {
+            int n = rnd.nextInt(100);
+            int inserts = rnd.nextInt(300);
+            int[][] s = new int[n + inserts][];
+            RTree.Segment[] segments = new RTree.Segment[n];
+            for (int i = 0; i < n + inserts; i++) {
+                int x1 = rnd.nextInt(1000);
+                int y1 = rnd.nextInt(1000);
+                s[i] = new int[] {x1, y1, x1 + rnd.nextInt(50) - 25, y1 + rnd.nextInt(50) - 25};
+                if (i < n)
+                    segments[i] = new RTree.Segment(s[i][0], s[i][1], s[i][2], s[i][3]);
+            }
+            RTreeConcurrent t = new RTreeConcurrent(segments);
+            for (int i = n; i < n + inserts; i++)
+                if (t.insert(s[i][0], s[i][1], s[i][2], s[i][3]) != i)
+                    throw new RuntimeException();
+            int[] out = new int[n + inserts];
+            for (int q = 0; q < 20; q++) {
+                int qx = rnd.nextInt(1000);
+                int qy = rnd.nextInt(1000);
+                int x2 = qx + rnd.nextInt(200);
+                int y2 = qy + rnd.nextInt(200);
+                int expected = 0;
+                double minDist = Double.POSITIVE_INFINITY;
+                for (int[] v : s) {
+                    if (Math.min(v[0], v[2]) <= x2 && qx <= Math.max(v[0], v[2]) && Math.min(v[1], v[3]) <= y2
+                        && qy <= Math.max(v[1], v[3]))
+                        ++expected;
+                    minDist = Math.min(minDist, RTree.pointToSegmentSquaredDistance(qx, qy, v[0], v[1], v[2], v[3]));
+                }
+                if (t.query(qx, qy, x2, y2, out) != expected)
+                    throw new RuntimeException();
+                int nearest = t.findNearestNeighbour(qx, qy);
+                if (nearest == -1 ? s.length != 0
+                                  : RTree.pointToSegmentSquaredDistance(
+                                        qx, qy, s[nearest][0], s[nearest][1], s[nearest][2], s[nearest][3])
+                        != minDist)
+                    throw new RuntimeException();
+            }
+        }
+
+        // one writer keeps inserting while readers run window and nearest queries
+        int n = 1 << 20;
+        RTree.Segment[] segments = new RTree.Segment[n];
+        for (int i = 0; i < n; i++) {
+            int x1 = rnd.nextInt(1 << 24);
+            int y1 = rnd.nextInt(1 << 24);
+            segments[i] = new RTree.Segment(x1, y1, x1 + rnd.nextInt(1000), y1 + rnd.nextInt(1000));
+        }
+        long time = System.currentTimeMillis();
+        RTreeConcurrent t = new RTreeConcurrent(segments);
+        System.out.println("STR bulk load of " + n + " segments: " + (System.currentTimeMillis() - time) + " ms");
+        int maxReaders = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        for (int readers = 1; readers <= maxReaders; readers *= 2) {
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong reads = new AtomicLong();
+            long[] writes = new long[1];
+            Thread writer = new Thread(() -> {
+                Random r = new Random(2);
+                while (!stop.get()) {
+                    int x1 = r.nextInt(1 << 24);
+                    int y1 = r.nextInt(1 << 24);
+                    t.insert(x1, y1, x1 + r.nextInt(1000), y1 + r.nextInt(1000));
+                    ++writes[0];
+                }
+            });
+            Thread[] workers = new Thread[readers];
+            for (int k = 0; k < readers; k++) {
+                int seed = k + 3;
+                workers[k] = new Thread(() -> {
+                    Random r = new Random(seed);
+                    int[] out = new int[256];
+                    long cnt = 0;
+                    while (!stop.get()) {
+                        int x = r.nextInt(1 << 24);
+                        int y = r.nextInt(1 << 24);
+                        t.query(x, y, x + 50_000, y + 50_000, out);
+                        t.findNearestNeighbour(x, y);
+                        cnt += 2;
+                    }
+                    reads.addAndGet(cnt);
+                });
+            }
+            writer.start();
+            for (Thread w : workers) w.start();
+            Thread.sleep(2000);
+            stop.set(true);
+            writer.join();
+            for (Thread w : workers) w.join();
+            System.out.println(readers + " readers: " + reads.get() / 2 + " reads/s, " + writes[0] / 2 + " inserts/s");
+        }
+    }
+}
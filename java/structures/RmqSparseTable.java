@@ -13,11 +13,11 @@ void Build_SparseTable (vector<int>& vec, vector<vector<int>>& sparse_table) {
 
     for (int c = 1; c <= cols; c++) {
         int range = (1 << c);
-        /* For  c    Range     c-1  Previous Range
-                1   2^1 = 2     0      2^0 = 1
-                2   2^2 = 4     1      2^1 = 2
-                3   2^3 = 8     2      2^2 = 4
-                ...         */
+        // For  c    Range     c-1  Previous Range
+        //      1   2^1 = 2     0      2^0 = 1
+        //      2   2^2 = 4     1      2^1 = 2
+        //      3   2^3 = 8     2      2^2 = 4
+        //      ...
         for (int r = 0; r + range <= rows; r++) {
             // Values in the current column are derived from the
             // values in the previous column.
@@ -78,7 +78,7 @@ public class RmqSparseTable {
         for (int i = 1; i < rmq.length; i++) {
             rmq[i] = new int[n - (1 << i) + 1];
             for (int j = 0; j < rmq[i].length; j++) {
-                rmq[i][j] = Math.min(rmq[i - 1][j];
+                rmq[i][j] = Math.min(rmq[i - 1][j],
                 rmq[i - 1][j + (1 << (i - 1))]);
             }
         }
@@ -0,0 +1,96 @@
+package structures;
+
+import java.util.Random;
+
+// Range minimum query in O(1) with O(n) memory. The sparse table is built only over minima
+// of blocks of 32 elements, and queries inside a window of up to 32 elements are answered
+// with a per-position bitmask of the monotonic stack.
+// https://cp-algorithms.com/data_structures/sparse-table.html
+public class RmqSparseTableBlocks {
+    final int[] a;
+    // bit k of mask[i] is set if a[i - k] is on the monotonic stack of the window ending at i
+    final int[] mask;
+    final RmqSparseTable blocks;
+
+    public RmqSparseTableBlocks(int[] a) {
+        int n = a.length;
+        this.a = a.clone();
+        mask = new int[n];
+        int cur = 0;
+        for (int i = 0; i < n; i++) {
+            cur <<= 1;
+            while (cur != 0 && this.a[i - Integer.numberOfTrailingZeros(cur)] >= this.a[i]) cur &= cur - 1;
+            mask[i] = cur |= 1;
+        }
+        int[] blockMin = new int[(n + 31) >> 5];
+        for (int b = 0; b < blockMin.length; b++) blockMin[b] = small(b << 5, Math.min(n, (b + 1) << 5) - 1);
+        blocks = new RmqSparseTable(blockMin);
+    }
+
+    // min on [i, j] with j - i < 32
+    int small(int i, int j) {
+        int m = j - i == 31 ? mask[j] : mask[j] & ((1 << (j - i + 1)) - 1);
+        return a[j - (31 - Integer.numberOfLeadingZeros(m))];
+    }
+
+    public int min(int i, int j) {
+        if (j - i < 32)
+            return small(i, j);
+        int res = Math.min(small(i, i + 31), small(j - 31, j));
+        int lb = (i + 31) >> 5;
+        int rb = ((j + 1) >> 5) - 1;
+        if (lb <= rb)
+            res = Math.min(res, blocks.min(lb, rb));
+        return res;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        RmqSparseTableBlocks st = new RmqSparseTableBlocks(new int[] {1, 5, -2, 3});
+        System.out.println(1 == st.min(0, 0));
+        System.out.println(-2 == st.min(1, 2));
+        System.out.println(-2 == st.min(0, 3));
+
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(200) + 1;
+            int[] a = rnd.ints(n, 0, 50).toArray();
+            RmqSparseTableBlocks t = new RmqSparseTableBlocks(a);
+            for (int i = 0; i < n; i++) {
+                int mn = Integer.MAX_VALUE;
+                for (int j = i; j < n; j++) {
+                    mn = Math.min(mn, a[j]);
+                    if (t.min(i, j) != mn)
+                        throw new RuntimeException();
+                }
+            }
+        }
+
+        // queries against RmqSparseTable at L1, L2, L3 and DRAM sized inputs
+        int queries = 10_000_000;
+        for (int n : new int[] {1 << 10, 1 << 14, 1 << 19, 1 << 23}) {
+            int[] a = rnd.ints(n).toArray();
+            int[] l = new int[queries];
+            int[] r = new int[queries];
+            for (int k = 0; k < queries; k++) {
+                int x = rnd.nextInt(n);
+                int y = rnd.nextInt(n);
+                l[k] = Math.min(x, y);
+                r[k] = Math.max(x, y);
+            }
+            RmqSparseTable t1 = new RmqSparseTable(a);
+            RmqSparseTableBlocks t2 = new RmqSparseTableBlocks(a);
+            long time = System.currentTimeMillis();
+            long h1 = 0;
+            for (int k = 0; k < queries; k++) h1 += t1.min(l[k], r[k]);
+            long sparseTableTime = System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
+            long h2 = 0;
+            for (int k = 0; k < queries; k++) h2 += t2.min(l[k], r[k]);
+            long blocksTime = System.currentTimeMillis() - time;
+            System.out.println("n = " + n + ": RmqSparseTable " + sparseTableTime + " ms, blocks " + blocksTime + " ms");
+            if (h1 != h2)
+                throw new RuntimeException();
+        }
+    }
+}
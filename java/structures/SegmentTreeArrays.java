@@ -0,0 +1,278 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+// Same layout as SegmentTree, but nodes are stored in parallel long[] arrays and
+// the aggregate is pluggable, so get/modify/findFirst allocate nothing
+public class SegmentTreeArrays {
+    // Associative combine with lazy tags: apply(combine(a, b), t) == combine(apply(a, t), apply(b, t))
+    public interface Monoid {
+        long identity();
+
+        long combine(long a, long b);
+
+        // value of a segment of length len after tag was applied to it
+        long apply(long value, long tag, int len);
+
+        // tag that is equivalent to applying older first and then newer
+        long composeTags(long older, long newer);
+
+        long noTag();
+    }
+
+    public static final Monoid SUM_ADD = new Monoid() {
+        public long identity() {
+            return 0;
+        }
+
+        public long combine(long a, long b) {
+            return a + b;
+        }
+
+        public long apply(long value, long tag, int len) {
+            return value + tag * len;
+        }
+
+        public long composeTags(long older, long newer) {
+            return older + newer;
+        }
+
+        public long noTag() {
+            return 0;
+        }
+    };
+
+    public static final Monoid MAX_ADD = new Monoid() {
+        public long identity() {
+            return Long.MIN_VALUE;
+        }
+
+        public long combine(long a, long b) {
+            return Math.max(a, b);
+        }
+
+        public long apply(long value, long tag, int len) {
+            return value + tag;
+        }
+
+        public long composeTags(long older, long newer) {
+            return older + newer;
+        }
+
+        public long noTag() {
+            return 0;
+        }
+    };
+
+    public static final Monoid MIN_ADD = new Monoid() {
+        public long identity() {
+            return Long.MAX_VALUE;
+        }
+
+        public long combine(long a, long b) {
+            return Math.min(a, b);
+        }
+
+        public long apply(long value, long tag, int len) {
+            return value + tag;
+        }
+
+        public long composeTags(long older, long newer) {
+            return older + newer;
+        }
+
+        public long noTag() {
+            return 0;
+        }
+    };
+
+    final Monoid monoid;
+    final long noTag;
+    int n;
+    long[] value;
+    long[] tag;
+
+    public SegmentTreeArrays(int n, Monoid m) {
+        this(new long[n], m);
+    }
+
+    public SegmentTreeArrays(long[] v, Monoid m) {
+        this.monoid = m;
+        noTag = m.noTag();
+        n = v.length;
+        value = new long[2 * n - 1];
+        tag = new long[2 * n - 1];
+        Arrays.fill(tag, noTag);
+        build(0, 0, n - 1, v);
+    }
+
+    void build(int x, int l, int r, long[] v) {
+        if (l == r) {
+            value[x] = v[l];
+            return;
+        }
+        int m = (l + r) >> 1;
+        int y = x + ((m - l + 1) << 1);
+        build(x + 1, l, m, v);
+        build(y, m + 1, r, v);
+        value[x] = monoid.combine(value[x + 1], value[y]);
+    }
+
+    void apply(int x, int l, int r, long t) {
+        value[x] = monoid.apply(value[x], t, r - l + 1);
+        tag[x] = monoid.composeTags(tag[x], t);
+    }
+
+    void push(int x, int l, int r) {
+        if (tag[x] != noTag) {
+            int m = (l + r) >> 1;
+            int y = x + ((m - l + 1) << 1);
+            apply(x + 1, l, m, tag[x]);
+            apply(y, m + 1, r, tag[x]);
+            tag[x] = noTag;
+        }
+    }
+
+    public long get(int ll, int rr) {
+        return get(ll, rr, 0, 0, n - 1);
+    }
+
+    long get(int ll, int rr, int x, int l, int r) {
+        if (ll <= l && r <= rr) {
+            return value[x];
+        }
+        push(x, l, r);
+        int m = (l + r) >> 1;
+        int y = x + ((m - l + 1) << 1);
+        if (rr <= m)
+            return get(ll, rr, x + 1, l, m);
+        if (ll > m)
+            return get(ll, rr, y, m + 1, r);
+        return monoid.combine(get(ll, rr, x + 1, l, m), get(ll, rr, y, m + 1, r));
+    }
+
+    public void modify(int ll, int rr, long t) {
+        modify(ll, rr, t, 0, 0, n - 1);
+    }
+
+    void modify(int ll, int rr, long t, int x, int l, int r) {
+        if (ll <= l && r <= rr) {
+            apply(x, l, r, t);
+            return;
+        }
+        push(x, l, r);
+        int m = (l + r) >> 1;
+        int y = x + ((m - l + 1) << 1);
+        if (ll <= m)
+            modify(ll, rr, t, x + 1, l, m);
+        if (rr > m)
+            modify(ll, rr, t, y, m + 1, r);
+        value[x] = monoid.combine(value[x + 1], value[y]);
+    }
+
+    // calls all FALSE elements to the left of the sought position exactly once
+    public int findFirst(int ll, int rr, LongPredicate f) {
+        return findFirst(ll, rr, f, 0, 0, n - 1);
+    }
+
+    int findFirst(int ll, int rr, LongPredicate f, int x, int l, int r) {
+        if (ll <= l && r <= rr && !f.test(value[x])) {
+            return -1;
+        }
+        if (l == r) {
+            return l;
+        }
+        push(x, l, r);
+        int m = (l + r) >> 1;
+        int y = x + ((m - l + 1) << 1);
+        int res = -1;
+        if (ll <= m)
+            res = findFirst(ll, rr, f, x + 1, l, m);
+        if (rr > m && res == -1)
+            res = findFirst(ll, rr, f, y, m + 1, r);
+        return res;
+    }
+
+    long sumSoFar;
+
+    // Returns min(p | p<=rr && sum[ll..p]>=sum). If no such p exists, returns -1
+    // Tree must be built with SUM_ADD. Same descent as findFirst, without a capturing lambda
+    public int sumLowerBound(int ll, int rr, long sum) {
+        sumSoFar = 0;
+        return sumLowerBound(ll, rr, sum, 0, 0, n - 1);
+    }
+
+    int sumLowerBound(int ll, int rr, long sum, int x, int l, int r) {
+        if (ll <= l && r <= rr) {
+            if (sumSoFar + value[x] < sum) {
+                sumSoFar += value[x];
+                return -1;
+            }
+        }
+        if (l == r) {
+            return l;
+        }
+        push(x, l, r);
+        int m = (l + r) >> 1;
+        int y = x + ((m - l + 1) << 1);
+        int res = -1;
+        if (ll <= m)
+            res = sumLowerBound(ll, rr, sum, x + 1, l, m);
+        if (rr > m && res == -1)
+            res = sumLowerBound(ll, rr, sum, y, m + 1, r);
+        return res;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        SegmentTreeArrays mx = new SegmentTreeArrays(10, MAX_ADD);
+        SegmentTreeArrays sum = new SegmentTreeArrays(10, SUM_ADD);
+        mx.modify(1, 2, 10);
+        mx.modify(2, 3, 20);
+        sum.modify(1, 2, 10);
+        sum.modify(2, 3, 20);
+        System.out.println(30 == mx.get(1, 3));
+        System.out.println(60 == sum.get(1, 3));
+        System.out.println(2 == mx.findFirst(0, 9, v -> v >= 30));
+
+        SegmentTreeArrays tt = new SegmentTreeArrays(new long[] {2, 1, 10, 20}, SUM_ADD);
+        System.out.println(2 == tt.sumLowerBound(0, tt.n - 1, 12));
+        System.out.println(-1 == tt.sumLowerBound(0, tt.n - 1, 34));
+
+        // range add / range sum over a few million elements against SegmentTree
+        int n = 1 << 21;
+        int ops = 2_000_000;
+        Random rnd = new Random(1);
+        int[] ql = new int[ops];
+        int[] qr = new int[ops];
+        for (int i = 0; i < ops; i++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            ql[i] = Math.min(a, b);
+            qr[i] = Math.max(a, b);
+        }
+        long time = System.currentTimeMillis();
+        SegmentTree t1 = new SegmentTree(n);
+        long h1 = 0;
+        for (int i = 0; i < ops; i++) {
+            if ((i & 1) == 0)
+                t1.modify(ql[i], qr[i], i);
+            else
+                h1 += t1.get(ql[i], qr[i]).sum;
+        }
+        System.out.println("SegmentTree: " + (System.currentTimeMillis() - time) + " ms");
+        time = System.currentTimeMillis();
+        SegmentTreeArrays t2 = new SegmentTreeArrays(n, SUM_ADD);
+        long h2 = 0;
+        for (int i = 0; i < ops; i++) {
+            if ((i & 1) == 0)
+                t2.modify(ql[i], qr[i], i);
+            else
+                h2 += t2.get(ql[i], qr[i]);
+        }
+        System.out.println("SegmentTreeArrays: " + (System.currentTimeMillis() - time) + " ms");
+        System.out.println(h1 == h2);
+    }
+}
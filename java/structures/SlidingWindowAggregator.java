@@ -0,0 +1,195 @@
+package structures;
+
+import java.util.*;
+import java.util.function.LongBinaryOperator;
+
+// Sliding window aggregate for any monoid (associative op with identity, not necessarily commutative).
+// Two stacks in one ring buffer: the front part [head, boundary) keeps suffix aggregates, the back part
+// [boundary, tail) keeps only the aggregate of all its elements. When the front part runs out,
+// the back part becomes the front part in one pass. addLast, evict and query are O(1) amortized
+// and do not allocate once the buffer is large enough for the window.
+// https://cs.brown.edu/people/pvalduri/papers/swag-debs17.pdf
+public class SlidingWindowAggregator {
+    final LongBinaryOperator op;
+    final long identity;
+    long[] values = new long[16];
+    long[] suffix = new long[16];
+    // positions are counted from the first event, position p is stored at p & mask
+    int mask = 15;
+    long head;
+    long boundary;
+    long tail;
+    long back;
+
+    public SlidingWindowAggregator(LongBinaryOperator op, long identity) {
+        this.op = op;
+        this.identity = identity;
+        back = identity;
+    }
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public void addLast(long x) {
+        if (tail - head == values.length)
+            grow();
+        values[(int) tail++ & mask] = x;
+        back = op.applyAsLong(back, x);
+    }
+
+    public void addAll(int[] a) {
+        for (int x : a) addLast(x);
+    }
+
+    // removes the k oldest elements
+    public void evict(int k) {
+        if (k > tail - head)
+            throw new RuntimeException("window has only " + (tail - head) + " elements");
+        while (k > 0) {
+            if (head == boundary)
+                flip();
+            int d = (int) Math.min(k, boundary - head);
+            head += d;
+            k -= d;
+        }
+    }
+
+    // op over the window from the oldest element to the newest
+    public long query() {
+        return head < boundary ? op.applyAsLong(suffix[(int) head & mask], back) : back;
+    }
+
+    void flip() {
+        long a = identity;
+        for (long p = tail - 1; p >= head; p--) {
+            int i = (int) p & mask;
+            a = op.applyAsLong(values[i], a);
+            suffix[i] = a;
+        }
+        boundary = tail;
+        back = identity;
+    }
+
+    void grow() {
+        long[] v = new long[2 * values.length];
+        long[] s = new long[2 * values.length];
+        int newMask = v.length - 1;
+        for (long p = head; p < tail; p++) {
+            v[(int) p & newMask] = values[(int) p & mask];
+            s[(int) p & newMask] = suffix[(int) p & mask];
+        }
+        values = v;
+        suffix = s;
+        mask = newMask;
+    }
+
+    // random test and throughput against QueueMin and SlidingWindowMinMax
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            // 2x2 matrix product modulo 97 packed in a long, which is not commutative
+            LongBinaryOperator matMul = (x, y) -> {
+                long a = x >> 48;
+                long b = x >> 32 & 0xFFFF;
+                long c = x >> 16 & 0xFFFF;
+                long d = x & 0xFFFF;
+                long e = y >> 48;
+                long f = y >> 32 & 0xFFFF;
+                long g = y >> 16 & 0xFFFF;
+                long h = y & 0xFFFF;
+                return (a * e + b * g) % 97 << 48 | (a * f + b * h) % 97 << 32 | (c * e + d * g) % 97 << 16
+                    | (c * f + d * h) % 97;
+            };
+            long one = 1L << 48 | 1;
+            SlidingWindowAggregator sum = new SlidingWindowAggregator(Long::sum, 0);
+            SlidingWindowAggregator mat = new SlidingWindowAggregator(matMul, one);
+            SlidingWindowMinMax minMax = new SlidingWindowMinMax();
+            SlidingWindowMinMax minOnly = new SlidingWindowMinMax(SlidingWindowMinMax.MIN);
+            SlidingWindowMinMax maxOnly = new SlidingWindowMinMax(SlidingWindowMinMax.MAX);
+            QueueMin queueMin = new QueueMin();
+            ArrayDeque<Long> window = new ArrayDeque<>();
+            for (int q = 0; q < 200; q++) {
+                if (rnd.nextBoolean()) {
+                    int[] a = rnd.ints(rnd.nextInt(5), 0, 97).toArray();
+                    sum.addAll(a);
+                    minMax.addAll(a);
+                    minOnly.addAll(a);
+                    maxOnly.addAll(a);
+                    for (int x : a) {
+                        long m = (long) x << 48 | (long) (x * 7 % 97) << 32 | (long) (x * 3 % 97) << 16 | 1;
+                        mat.addLast(m);
+                        queueMin.addLast(x);
+                        window.addLast((long) x);
+                    }
+                } else {
+                    int k = rnd.nextInt(window.size() + 1);
+                    sum.evict(k);
+                    mat.evict(k);
+                    minMax.evict(k);
+                    minOnly.evict(k);
+                    maxOnly.evict(k);
+                    for (int i = 0; i < k; i++) {
+                        window.removeFirst();
+                        queueMin.removeFirst();
+                    }
+                }
+                long s = 0;
+                long mn = Long.MAX_VALUE;
+                long mx = Long.MIN_VALUE;
+                long m = one;
+                for (long x : window) {
+                    s += x;
+                    mn = Math.min(mn, x);
+                    mx = Math.max(mx, x);
+                    m = matMul.applyAsLong(m, x << 48 | (x * 7 % 97) << 32 | (x * 3 % 97) << 16 | 1);
+                }
+                if (sum.query() != s || mat.query() != m || minMax.sum() != s || sum.size() != window.size())
+                    throw new RuntimeException();
+                if (!window.isEmpty()
+                    && (minMax.min() != mn || minMax.max() != mx || queueMin.min() != mn || minOnly.min() != mn
+                        || maxOnly.max() != mx))
+                    throw new RuntimeException();
+            }
+        }
+        System.out.println("Test passed");
+
+        int n = 20_000_000;
+        int w = 1000;
+        int[] a = rnd.ints(n, 0, 1_000_000).toArray();
+        for (int round = 0; round < 2; round++) {
+            long time = System.currentTimeMillis();
+            QueueMin queueMin = new QueueMin();
+            long h1 = 0;
+            for (int i = 0; i < n; i++) {
+                queueMin.addLast(a[i]);
+                if (i >= w)
+                    queueMin.removeFirst();
+                h1 += queueMin.min();
+            }
+            System.out.println("QueueMin: " + (System.currentTimeMillis() - time) + " ms");
+            time = System.currentTimeMillis();
+            SlidingWindowAggregator agg = new SlidingWindowAggregator(Math::min, Long.MAX_VALUE);
+            long h2 = 0;
+            for (int i = 0; i < n; i++) {
+                agg.addLast(a[i]);
+                if (i >= w)
+                    agg.evict(1);
+                h2 += agg.query();
+            }
+            System.out.println("SlidingWindowAggregator(min): " + (System.currentTimeMillis() - time) + " ms");
+            time = System.currentTimeMillis();
+            SlidingWindowMinMax minMax = new SlidingWindowMinMax(SlidingWindowMinMax.MIN);
+            long h3 = 0;
+            for (int i = 0; i < n; i++) {
+                minMax.addLast(a[i]);
+                if (i >= w)
+                    minMax.evict(1);
+                h3 += minMax.min();
+            }
+            System.out.println("SlidingWindowMinMax(MIN): " + (System.currentTimeMillis() - time) + " ms");
+            if (h1 != h2 || h1 != h3)
+                throw new RuntimeException();
+        }
+    }
+}
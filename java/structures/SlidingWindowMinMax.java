@@ -0,0 +1,175 @@
+package structures;
+
+// Sliding window min, max and sum with monotonic deques.
+// The min deque keeps positions with increasing values, the max deque positions with decreasing values,
+// so the answer is always at the front. Each deque stores its values next to the positions.
+// Each of min, max and sum is maintained only when requested in the constructor.
+// addLast and evict are O(1) amortized (evict(k) is O(k) with sum), nothing is allocated once the buffers
+// are large enough for the window. Positions are ints that may wrap around, windows must hold less than 2^31.
+// On random data the deque loop mispredicts about once per element, so this is not the fast choice for one
+// aggregate: for the min alone QueueMin and SlidingWindowAggregator are faster. It is faster than
+// three aggregators when min, max and sum are all needed.
+// https://cp-algorithms.com/data_structures/stack_queue_modification.html
+public class SlidingWindowMinMax {
+    // what is maintained, any combination
+    public static final int MIN = 1;
+    public static final int MAX = 2;
+    public static final int SUM = 4;
+
+    final int aggregates;
+    // window values, kept only for the sum; position p is stored at p & mask of every buffer
+    long[] values;
+    // positions in the deques and their values next to them, so the pop loop needs no dependent load
+    int[] minDeque;
+    long[] minValue;
+    int[] maxDeque;
+    long[] maxValue;
+    int mask = 15;
+    int head;
+    int tail;
+    int minHead;
+    int minTail;
+    int maxHead;
+    int maxTail;
+    long sum;
+
+    // min, max and sum
+    public SlidingWindowMinMax() {
+        this(MIN | MAX | SUM);
+    }
+
+    public SlidingWindowMinMax(int aggregates) {
+        this.aggregates = aggregates;
+        if ((aggregates & MIN) != 0) {
+            minDeque = new int[16];
+            minValue = new long[16];
+        }
+        if ((aggregates & MAX) != 0) {
+            maxDeque = new int[16];
+            maxValue = new long[16];
+        }
+        if ((aggregates & SUM) != 0)
+            values = new long[16];
+    }
+
+    public int size() {
+        return tail - head;
+    }
+
+    public void addLast(long x) {
+        if (tail - head == mask + 1)
+            grow();
+        int m = mask;
+        if (minDeque != null) {
+            long[] v = minValue;
+            int t = minTail;
+            while (t != minHead && v[(t - 1) & m] >= x) --t;
+            minDeque[t & m] = tail;
+            v[t & m] = x;
+            minTail = t + 1;
+        }
+        if (maxDeque != null) {
+            long[] v = maxValue;
+            int t = maxTail;
+            while (t != maxHead && v[(t - 1) & m] <= x) --t;
+            maxDeque[t & m] = tail;
+            v[t & m] = x;
+            maxTail = t + 1;
+        }
+        if (values != null) {
+            values[tail & m] = x;
+            sum += x;
+        }
+        ++tail;
+    }
+
+    public void addAll(int[] a) {
+        for (int x : a) addLast(x);
+    }
+
+    // removes the k oldest elements
+    public void evict(int k) {
+        if (k > tail - head)
+            throw new RuntimeException("window has only " + (tail - head) + " elements");
+        if (values != null)
+            for (int i = 0; i < k; i++) sum -= values[head++ & mask];
+        else
+            head += k;
+        if (minDeque != null)
+            while (minHead != minTail && minDeque[minHead & mask] - head < 0) ++minHead;
+        if (maxDeque != null)
+            while (maxHead != maxTail && maxDeque[maxHead & mask] - head < 0) ++maxHead;
+    }
+
+    public long min() {
+        check(MIN);
+        return minValue[minHead & mask];
+    }
+
+    public long max() {
+        check(MAX);
+        return maxValue[maxHead & mask];
+    }
+
+    public long sum() {
+        if ((aggregates & SUM) == 0)
+            throw new RuntimeException("sum is not maintained");
+        return sum;
+    }
+
+    void check(int needed) {
+        if ((aggregates & needed) == 0)
+            throw new RuntimeException((needed == MIN ? "min" : "max") + " is not maintained");
+        if (head == tail)
+            throw new RuntimeException("window is empty");
+    }
+
+    void grow() {
+        int newMask = 2 * mask + 1;
+        if (values != null)
+            values = copy(values, head, tail, newMask, mask);
+        if (minDeque != null) {
+            minDeque = copy(minDeque, minHead, minTail, newMask, mask);
+            minValue = copy(minValue, minHead, minTail, newMask, mask);
+        }
+        if (maxDeque != null) {
+            maxDeque = copy(maxDeque, maxHead, maxTail, newMask, mask);
+            maxValue = copy(maxValue, maxHead, maxTail, newMask, mask);
+        }
+        mask = newMask;
+    }
+
+    static int[] copy(int[] a, int from, int to, int newMask, int mask) {
+        int[] res = new int[newMask + 1];
+        for (int p = from; p != to; p++) res[p & newMask] = a[p & mask];
+        return res;
+    }
+
+    static long[] copy(long[] a, int from, int to, int newMask, int mask) {
+        long[] res = new long[newMask + 1];
+        for (int p = from; p != to; p++) res[p & newMask] = a[p & mask];
+        return res;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        SlidingWindowMinMax w = new SlidingWindowMinMax();
+        w.addAll(new int[] {3, 1, 4, 1, 5});
+        System.out.println(1 == w.min() && 5 == w.max() && 14 == w.sum());
+        w.evict(4);
+        System.out.println(5 == w.min() && 5 == w.max());
+
+        // positions wrap around int
+        SlidingWindowMinMax m = new SlidingWindowMinMax(MIN);
+        m.head = m.tail = m.minHead = m.minTail = Integer.MAX_VALUE - 100;
+        for (int i = 0; i < 1000; i++) {
+            m.addLast(i % 7);
+            if (m.size() > 5)
+                m.evict(1);
+            long mn = Long.MAX_VALUE;
+            for (int j = Math.max(0, i - 4); j <= i; j++) mn = Math.min(mn, j % 7);
+            if (m.min() != mn)
+                throw new RuntimeException();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package structures;
+
+import java.util.*;
+
+// Implicit treap with the operations of TreapIndexed, stored in primitive arrays.
+// Node 0 is the empty tree, removed nodes go to a free list, split and merge are iterative
+// and return their results in fields, so steady-state operations allocate nothing.
+// https://cp-algorithms.com/data_structures/treap.html
+public class TreapIndexedPool {
+    // node t occupies node[4t..4t+3] = left, right, size, prio and
+    // data[4t..4t+3] = nodeValue, mx, sum, add, so a visit touches two cache lines
+    int[] node;
+    long[] data;
+    int nodes = 1;
+    int free;
+    int seed = 0x2545F491;
+    int root;
+
+    // results of split
+    int splitLeft;
+    int splitRight;
+
+    int[] stack = new int[64];
+
+    public TreapIndexedPool(int capacity) {
+        capacity = Math.max(capacity + 1, 2);
+        node = new int[4 * capacity];
+        data = new long[4 * capacity];
+        data[1] = Long.MIN_VALUE;
+    }
+
+    int left(int t) {
+        return node[t << 2];
+    }
+
+    int right(int t) {
+        return node[t << 2 | 1];
+    }
+
+    int size(int t) {
+        return node[t << 2 | 2];
+    }
+
+    void setLeft(int t, int v) {
+        node[t << 2] = v;
+    }
+
+    void setRight(int t, int v) {
+        node[t << 2 | 1] = v;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    int newNode(long value) {
+        int t = free;
+        if (t != 0) {
+            free = left(t);
+        } else {
+            if (4 * nodes == node.length) {
+                node = Arrays.copyOf(node, 8 * nodes);
+                data = Arrays.copyOf(data, 8 * nodes);
+            }
+            t = nodes++;
+        }
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        int i = t << 2;
+        node[i] = 0;
+        node[i | 1] = 0;
+        node[i | 2] = 1;
+        node[i | 3] = seed;
+        data[i] = value;
+        data[i | 1] = value;
+        data[i | 2] = value;
+        data[i | 3] = 0;
+        return t;
+    }
+
+    void apply(int t, long v) {
+        if (t == 0)
+            return;
+        int i = t << 2;
+        data[i] += v;
+        data[i | 1] += v;
+        data[i | 2] += v * node[i | 2];
+        data[i | 3] += v;
+    }
+
+    void push(int t) {
+        int i = t << 2;
+        long add = data[i | 3];
+        if (add != 0) {
+            apply(node[i], add);
+            apply(node[i | 1], add);
+            data[i | 3] = 0;
+        }
+    }
+
+    void pull(int t) {
+        int i = t << 2;
+        int l = node[i] << 2;
+        int r = node[i | 1] << 2;
+        data[i | 1] = Math.max(data[i], Math.max(data[l | 1], data[r | 1]));
+        data[i | 2] = data[i] + data[l | 2] + data[r | 2];
+        node[i | 2] = 1 + node[l | 2] + node[r | 2];
+    }
+
+    int[] stack(int sp) {
+        if (sp == stack.length)
+            stack = Arrays.copyOf(stack, sp * 2);
+        return stack;
+    }
+
+    // splits t into the first k elements (splitLeft) and the rest (splitRight)
+    void split(int t, int k) {
+        int l = 0, r = 0;
+        int lTail = 0, rTail = 0;
+        int sp = 0;
+        while (t != 0) {
+            push(t);
+            stack(sp)[sp++] = t;
+            if (size(left(t)) >= k) {
+                if (rTail == 0)
+                    r = t;
+                else
+                    setLeft(rTail, t);
+                rTail = t;
+                t = left(t);
+            } else {
+                k -= size(left(t)) + 1;
+                if (lTail == 0)
+                    l = t;
+                else
+                    setRight(lTail, t);
+                lTail = t;
+                t = right(t);
+            }
+        }
+        if (lTail != 0)
+            setRight(lTail, 0);
+        if (rTail != 0)
+            setLeft(rTail, 0);
+        // every node hangs below the nodes visited before it
+        while (sp > 0) pull(stack[--sp]);
+        splitLeft = l;
+        splitRight = r;
+    }
+
+    int merge(int a, int b) {
+        int res = 0;
+        int tail = 0;
+        boolean tailRight = false;
+        int sp = 0;
+        while (a != 0 && b != 0) {
+            int t = node[a << 2 | 3] > node[b << 2 | 3] ? a : b;
+            if (tail == 0)
+                res = t;
+            else if (tailRight)
+                setRight(tail, t);
+            else
+                setLeft(tail, t);
+            push(t);
+            // the rest of the other tree is merged into the right subtree of a or the left subtree of b
+            if (t == a) {
+                a = right(a);
+                tailRight = true;
+            } else {
+                b = left(b);
+                tailRight = false;
+            }
+            tail = t;
+            stack(sp)[sp++] = t;
+        }
+        int rest = a != 0 ? a : b;
+        if (tail == 0)
+            res = rest;
+        else if (tailRight)
+            setRight(tail, rest);
+        else
+            setLeft(tail, rest);
+        while (sp > 0) pull(stack[--sp]);
+        return res;
+    }
+
+    public void insert(int index, long value) {
+        split(root, index);
+        int r = splitRight;
+        root = merge(merge(splitLeft, newNode(value)), r);
+    }
+
+    public void remove(int index) {
+        split(root, index);
+        int l = splitLeft;
+        split(splitRight, 1);
+        int removed = splitLeft;
+        setLeft(removed, free);
+        free = removed;
+        root = merge(l, splitRight);
+    }
+
+    public void modify(int ll, int rr, long delta) {
+        split(root, rr + 1);
+        int r = splitRight;
+        split(splitLeft, ll);
+        apply(splitRight, delta);
+        root = merge(merge(splitLeft, splitRight), r);
+    }
+
+    // Queries only read the tree: tags of the ancestors are summed on the way down
+    // instead of being pushed, so a query is one or two root-to-leaf walks without writes
+
+    // sum of the first k elements
+    long prefixSum(int k) {
+        long res = 0;
+        long acc = 0;
+        for (int t = root; t != 0 && k > 0; ) {
+            int i = t << 2;
+            int l = node[i];
+            long childAcc = acc + data[i | 3];
+            if (k <= size(l)) {
+                t = l;
+            } else {
+                res += data[l << 2 | 2] + childAcc * size(l) + data[i] + acc;
+                k -= size(l) + 1;
+                t = node[i | 1];
+            }
+            acc = childAcc;
+        }
+        return res;
+    }
+
+    public long sum(int ll, int rr) {
+        return prefixSum(rr + 1) - prefixSum(ll);
+    }
+
+    public long max(int ll, int rr) {
+        int t = root;
+        long acc = 0;
+        // descend to the topmost node inside [ll, rr]
+        while (true) {
+            int pos = size(left(t));
+            if (rr < pos) {
+                acc += data[t << 2 | 3];
+                t = left(t);
+            } else if (ll > pos) {
+                acc += data[t << 2 | 3];
+                ll -= pos + 1;
+                rr -= pos + 1;
+                t = right(t);
+            } else {
+                break;
+            }
+        }
+        int pos = size(left(t));
+        long childAcc = acc + data[t << 2 | 3];
+        long res = data[t << 2] + acc;
+        // suffix [ll..] of the left subtree
+        acc = childAcc;
+        for (int u = left(t), k = ll; u != 0; ) {
+            int i = u << 2;
+            long ca = acc + data[i | 3];
+            if (k <= size(node[i])) {
+                res = Math.max(res, data[i] + acc);
+                if (node[i | 1] != 0)
+                    res = Math.max(res, data[node[i | 1] << 2 | 1] + ca);
+                u = node[i];
+            } else {
+                k -= size(node[i]) + 1;
+                u = node[i | 1];
+            }
+            acc = ca;
+        }
+        // prefix [..rr] of the right subtree
+        acc = childAcc;
+        for (int u = right(t), k = rr - pos - 1; u != 0 && k >= 0; ) {
+            int i = u << 2;
+            long ca = acc + data[i | 3];
+            if (k >= size(node[i])) {
+                res = Math.max(res, data[i] + acc);
+                if (node[i] != 0)
+                    res = Math.max(res, data[node[i] << 2 | 1] + ca);
+                k -= size(node[i]) + 1;
+                u = node[i | 1];
+            } else {
+                u = node[i];
+            }
+            acc = ca;
+        }
+        return res;
+    }
+
+    public interface NodePredicate {
+        // aggregates of a subtree, or of a single element with size == 1
+        boolean test(long sum, long mx, int size);
+    }
+
+    // calls all FALSE elements to the left of the sought position exactly once
+    public int findFirst(int ll, int rr, NodePredicate f) {
+        split(root, rr + 1);
+        int r = splitRight;
+        split(splitLeft, ll);
+        int l = splitLeft;
+        int m = splitRight;
+        int res = descend(m, ll, f);
+        root = merge(merge(l, m), r);
+        return res;
+    }
+
+    // the same order of tests as the recursion in TreapIndexed.findFirst, with an explicit stack
+    // of (node, offset) tasks; a negated node stands for the single element of that node
+    int descend(int t, int offset, NodePredicate f) {
+        if (t == 0)
+            return -1;
+        int sp = 0;
+        stack(sp)[sp++] = t;
+        stack(sp)[sp++] = offset;
+        while (sp > 0) {
+            offset = stack[--sp];
+            t = stack[--sp];
+            if (t < 0) {
+                t = -t;
+                if (f.test(data[t << 2], data[t << 2], 1))
+                    return offset;
+                continue;
+            }
+            if (!f.test(data[t << 2 | 2], data[t << 2 | 1], size(t)))
+                continue;
+            if (size(t) == 1)
+                return offset;
+            push(t);
+            int m = size(left(t));
+            if (right(t) != 0) {
+                stack(sp)[sp++] = right(t);
+                stack(sp)[sp++] = offset + m + 1;
+            }
+            stack(sp)[sp++] = -t;
+            stack(sp)[sp++] = offset + m;
+            if (left(t) != 0) {
+                stack(sp)[sp++] = left(t);
+                stack(sp)[sp++] = offset;
+            }
+        }
+        return -1;
+    }
+
+    final SumLowerBound sumLowerBound = new SumLowerBound();
+
+    static class SumLowerBound implements NodePredicate {
+        long sumSoFar;
+        long sum;
+
+        public boolean test(long nodeSum, long mx, int size) {
+            if (sumSoFar + nodeSum >= sum)
+                return true;
+            sumSoFar += nodeSum;
+            return false;
+        }
+    }
+
+    // Returns min(p | p<=rr && sum[ll..p]>=sum). If no such p exists, returns -1
+    public int sumLowerBound(int ll, int rr, long sum) {
+        sumLowerBound.sumSoFar = 0;
+        sumLowerBound.sum = sum;
+        return findFirst(ll, rr, sumLowerBound);
+    }
+
+    // Random test
+    public static void main(String[] args) {
+        TreapIndexedPool treap = new TreapIndexedPool(16);
+        List<Integer> list = new ArrayList<>();
+        Random rnd = new Random(1);
+        for (int step = 0; step < 100000; step++) {
+            int cmd = rnd.nextInt(7);
+            if (cmd < 2 && list.size() < 100) {
+                int pos = rnd.nextInt(list.size() + 1);
+                int value = rnd.nextInt(100);
+                list.add(pos, value);
+                treap.insert(pos, value);
+            } else if (cmd < 3 && list.size() > 0) {
+                int pos = rnd.nextInt(list.size());
+                list.remove(pos);
+                treap.remove(pos);
+            } else if (cmd < 4 && list.size() > 0) {
+                int b = rnd.nextInt(list.size());
+                int a = rnd.nextInt(b + 1);
+                long mx = list.get(a);
+                long sum = 0;
+                for (int i = a; i <= b; i++) {
+                    mx = Math.max(mx, list.get(i));
+                    sum += list.get(i);
+                }
+                if (mx != treap.max(a, b) || sum != treap.sum(a, b))
+                    throw new RuntimeException();
+            } else if (cmd < 5 && list.size() > 0) {
+                int b = rnd.nextInt(list.size());
+                int a = rnd.nextInt(b + 1);
+                int delta = rnd.nextInt(100) - 50;
+                for (int i = a; i <= b; i++) list.set(i, list.get(i) + delta);
+                treap.modify(a, b, delta);
+            } else if (cmd < 6 && list.size() > 0) {
+                int b = rnd.nextInt(list.size());
+                int a = rnd.nextInt(b + 1);
+                long target = rnd.nextInt(200);
+                int expected = -1;
+                long s = 0;
+                boolean nonNegative = true;
+                for (int i = a; i <= b; i++) {
+                    nonNegative &= list.get(i) >= 0;
+                    s += list.get(i);
+                    if (s >= target && expected == -1)
+                        expected = i;
+                }
+                // prefix sums are monotone only for non-negative values
+                if (nonNegative && treap.sumLowerBound(a, b, target) != expected)
+                    throw new RuntimeException();
+            } else {
+                for (int i = 0; i < list.size(); i++) {
+                    if (list.get(i) != treap.sum(i, i))
+                        throw new RuntimeException();
+                }
+            }
+            if (treap.size() != list.size())
+                throw new RuntimeException();
+        }
+        System.out.println("Test passed");
+
+        treap = new TreapIndexedPool(4);
+        for (long v : new long[] {2, 1, 10, 20}) treap.insert(treap.size(), v);
+        System.out.println(2 == treap.sumLowerBound(0, treap.size() - 1, 12));
+    }
+}
@@ -1,5 +1,6 @@
 package structures;
 
+// Segment tree over x with a treap over y in every node, supports updates. Tree2dStatic is faster for static points
 public class Tree2d {
     Treap.Node[] t;
 
@@ -0,0 +1,169 @@
+package structures;
+
+import java.util.*;
+
+// Static 2d range sum over weighted points: merge sort tree over the points sorted by x, where every
+// level keeps the y-sorted order of its blocks. Only the top level is binary searched, lower levels
+// get their positions by fractional cascading through counts of elements coming from the left child.
+// Build is O(n*log(n)), query is O(log(n)) without allocation. Tree2d supports updates.
+public class Tree2dStatic {
+    final int n;
+    final int levels;
+    // x coordinates in sorted order
+    final int[] xs;
+    // y coordinates of the top level in sorted order
+    final int[] ys;
+    // sum[k * (n + 1) + i] = sum of weights at positions [0, i) of level k
+    final long[] sum;
+    // fromLeft[k * (n + 1) + i] = number of positions in [0, i) of level k that came from a left child
+    final int[] fromLeft;
+
+    public Tree2dStatic(int[] x, int[] y, long[] w) {
+        n = x.length;
+        levels = 33 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        // level 0 is the order by x
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) order[i] = (long) x[i] << 32 | i;
+        Arrays.sort(order);
+        xs = new int[n];
+        int[] curY = new int[n];
+        long[] curW = new long[n];
+        for (int i = 0; i < n; i++) {
+            int j = (int) order[i];
+            xs[i] = x[j];
+            curY[i] = y[j];
+            curW[i] = w[j];
+        }
+        sum = new long[levels * (n + 1)];
+        fromLeft = new int[levels * (n + 1)];
+        int[] nextY = new int[n];
+        long[] nextW = new long[n];
+        for (int k = 0; ; k++) {
+            int base = k * (n + 1);
+            for (int i = 0; i < n; i++) sum[base + i + 1] = sum[base + i] + curW[i];
+            if (k == levels - 1)
+                break;
+            // merge pairs of blocks of size 2^k into level k + 1
+            int nb = base + n + 1;
+            int half = 1 << k;
+            for (int s = 0; s < n; s += 2 * half) {
+                int i = s;
+                int mid = Math.min(s + half, n);
+                int j = mid;
+                int end = Math.min(s + 2 * half, n);
+                for (int p = s; p < end; p++) {
+                    boolean left = j == end || i < mid && curY[i] <= curY[j];
+                    int from = left ? i++ : j++;
+                    nextY[p] = curY[from];
+                    nextW[p] = curW[from];
+                    fromLeft[nb + p + 1] = fromLeft[nb + p] + (left ? 1 : 0);
+                }
+            }
+            int[] ty = curY;
+            curY = nextY;
+            nextY = ty;
+            long[] tw = curW;
+            curW = nextW;
+            nextW = tw;
+        }
+        ys = curY;
+    }
+
+    // sum of weights of points in [x1, x2] x [y1, y2]
+    public long query(int x1, int x2, int y1, int y2) {
+        if (x1 > x2 || y1 > y2)
+            return 0;
+        int lo = lowerBound(xs, x1);
+        int hi = lowerBound(xs, x2 + 1L);
+        if (lo >= hi)
+            return 0;
+        return query(levels - 1, 0, lowerBound(ys, y1), lowerBound(ys, y2 + 1L), lo, hi);
+    }
+
+    // block [s, s + 2^k) of level k, where positions [a, b) hold y in the query range
+    long query(int k, int s, int a, int b, int lo, int hi) {
+        int end = Math.min(s + (1 << k), n);
+        if (a == b || hi <= s || end <= lo)
+            return 0;
+        int base = k * (n + 1);
+        if (lo <= s && end <= hi)
+            return sum[base + b] - sum[base + a];
+        int half = 1 << (k - 1);
+        int la = fromLeft[base + a] - fromLeft[base + s];
+        int lb = fromLeft[base + b] - fromLeft[base + s];
+        return query(k - 1, s, s + la, s + lb, lo, hi)
+            + query(k - 1, s + half, s + half + a - s - la, s + half + b - s - lb, lo, hi);
+    }
+
+    static int lowerBound(int[] a, long key) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // random test and comparison with Tree2d
+    public static void main(String[] args) {
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(100);
+            int range = rnd.nextInt(20) + 1;
+            int[] x = rnd.ints(n, 0, range).toArray();
+            int[] y = rnd.ints(n, -range, range).toArray();
+            long[] w = rnd.longs(n, -100, 100).toArray();
+            Tree2dStatic t = new Tree2dStatic(x, y, w);
+            for (int q = 0; q < 100; q++) {
+                int x1 = rnd.nextInt(range + 2) - 1;
+                int x2 = rnd.nextInt(range + 2) - 1;
+                int y1 = rnd.nextInt(2 * range + 2) - range - 1;
+                int y2 = rnd.nextInt(2 * range + 2) - range - 1;
+                long s = 0;
+                for (int i = 0; i < n; i++)
+                    if (x1 <= x[i] && x[i] <= x2 && y1 <= y[i] && y[i] <= y2)
+                        s += w[i];
+                if (t.query(x1, x2, y1, y2) != s)
+                    throw new RuntimeException();
+            }
+        }
+        System.out.println("Test passed");
+
+        int n = 1 << 16;
+        int[] x = rnd.ints(n, 0, n).toArray();
+        int[] y = rnd.ints(n, 0, n).toArray();
+        long[] w = rnd.longs(n, 0, 100).toArray();
+        Tree2d dynamic = new Tree2d(n);
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < n; i++) dynamic.insert(x[i], y[i], (int) w[i]);
+        System.out.println("Tree2d build: " + (System.currentTimeMillis() - time) + " ms");
+        time = System.currentTimeMillis();
+        Tree2dStatic stat = new Tree2dStatic(x, y, w);
+        System.out.println("Tree2dStatic build: " + (System.currentTimeMillis() - time) + " ms");
+        int queries = 1 << 16;
+        int[][] rect = new int[queries][];
+        for (int q = 0; q < queries; q++) {
+            int a = rnd.nextInt(n);
+            int b = rnd.nextInt(n);
+            int c = rnd.nextInt(n);
+            int d = rnd.nextInt(n);
+            rect[q] = new int[] {Math.min(a, b), Math.max(a, b), Math.min(c, d), Math.max(c, d)};
+        }
+        for (int round = 0; round < 2; round++) {
+            time = System.currentTimeMillis();
+            long s1 = 0;
+            for (int[] r : rect) s1 += dynamic.query(r[0], r[1], r[2], r[3]);
+            System.out.println("Tree2d queries: " + (System.currentTimeMillis() - time) + " ms");
+            time = System.currentTimeMillis();
+            long s2 = 0;
+            for (int[] r : rect) s2 += stat.query(r[0], r[1], r[2], r[3]);
+            System.out.println("Tree2dStatic queries: " + (System.currentTimeMillis() - time) + " ms");
+            if (s1 != s2)
+                throw new RuntimeException();
+        }
+    }
+}
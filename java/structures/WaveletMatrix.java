@@ -0,0 +1,199 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Wavelet matrix: one rank bitvector per bit of the values, from the highest bit down.
+// At every level the elements with bit 0 are stably moved in front of the elements with bit 1.
+// Same queries as WaveletTree with about 1.5 * log(sigma) bits per element instead of
+// pointer nodes with int[] prefix counts.
+// https://users.dcc.uchile.cl/~gnavarro/ps/spire12.4.pdf
+public class WaveletMatrix {
+    final int n;
+    final int levels;
+    // levels are stored from the highest bit: bits[0] is for bit levels - 1
+    final long[][] bits;
+    // zerosBefore[level][w] = number of zero bits in words [0, w)
+    final int[][] zerosBefore;
+    // number of zeros at each level
+    final int[] zeros;
+
+    // elements per parallel chunk, a multiple of 64 so that chunks never share a word
+    static final int CHUNK = 1 << 16;
+
+    // values must be non-negative
+    public WaveletMatrix(int[] a) {
+        n = a.length;
+        int max = 0;
+        for (int v : a) max |= v;
+        levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+        int words = (n >> 6) + 1;
+        bits = new long[levels][words];
+        zerosBefore = new int[levels][words + 1];
+        zeros = new int[levels];
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        int[] chunkZeros = new int[chunks];
+        int[] cur = a.clone();
+        int[] next = new int[n];
+        for (int level = 0; level < levels; level++) {
+            int bit = levels - 1 - level;
+            long[] b = bits[level];
+            int[] c = cur;
+            // each chunk sets its bits and counts its zeros
+            IntStream.range(0, chunks).parallel().forEach(k -> {
+                int cnt = 0;
+                for (int i = k * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) {
+                    if ((c[i] >>> bit & 1) != 0)
+                        b[i >> 6] |= 1L << i;
+                    else
+                        ++cnt;
+                }
+                chunkZeros[k] = cnt;
+            });
+            int[] zerosFrom = new int[chunks + 1];
+            for (int k = 0; k < chunks; k++) zerosFrom[k + 1] = zerosFrom[k] + chunkZeros[k];
+            int z = zerosFrom[chunks];
+            zeros[level] = z;
+            int[] nx = next;
+            // stable partition: each chunk knows where its zeros and ones start
+            IntStream.range(0, chunks).parallel().forEach(k -> {
+                int zeroPos = zerosFrom[k];
+                int onePos = z + k * CHUNK - zerosFrom[k];
+                for (int i = k * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) {
+                    if ((c[i] >>> bit & 1) != 0)
+                        nx[onePos++] = c[i];
+                    else
+                        nx[zeroPos++] = c[i];
+                }
+            });
+            int[] zb = zerosBefore[level];
+            for (int w = 0; w < words; w++) {
+                int valid = Math.min(64, Math.max(0, n - (w << 6)));
+                zb[w + 1] = zb[w] + valid - Long.bitCount(b[w]);
+            }
+            next = cur;
+            cur = nx;
+        }
+    }
+
+    // number of zeros in positions [0, i) of the level
+    int rank0(int level, int i) {
+        long word = bits[level][i >> 6] & ((1L << i) - 1);
+        return zerosBefore[level][i >> 6] + (i & 63) - Long.bitCount(word);
+    }
+
+    // kth smallest element in [from, to], 1-based as in WaveletTree
+    public int kth(int from, int to, int k) {
+        int l = from - 1;
+        int r = to;
+        --k;
+        int res = 0;
+        for (int level = 0; level < levels; level++) {
+            int l0 = rank0(level, l);
+            int r0 = rank0(level, r);
+            if (k < r0 - l0) {
+                l = l0;
+                r = r0;
+            } else {
+                k -= r0 - l0;
+                res |= 1 << (levels - 1 - level);
+                l = zeros[level] + l - l0;
+                r = zeros[level] + r - r0;
+            }
+        }
+        return res;
+    }
+
+    // number of elements in [from, to] less than or equal to k, 1-based as in WaveletTree
+    public int countLessOrEq(int from, int to, int k) {
+        if (k < 0)
+            return 0;
+        if (levels < 31 && k >= 1 << levels)
+            return to - from + 1;
+        int l = from - 1;
+        int r = to;
+        int res = 0;
+        for (int level = 0; level < levels; level++) {
+            int l0 = rank0(level, l);
+            int r0 = rank0(level, r);
+            if ((k >>> (levels - 1 - level) & 1) != 0) {
+                res += r0 - l0;
+                l = zeros[level] + l - l0;
+                r = zeros[level] + r - r0;
+            } else {
+                l = l0;
+                r = r0;
+            }
+        }
+        return res + r - l;
+    }
+
+    // number of elements in [from, to] equal to k, 1-based as in WaveletTree
+    public int countEq(int from, int to, int k) {
+        if (k < 0 || levels < 31 && k >= 1 << levels)
+            return 0;
+        int l = from - 1;
+        int r = to;
+        for (int level = 0; level < levels && l < r; level++) {
+            int l0 = rank0(level, l);
+            int r0 = rank0(level, r);
+            if ((k >>> (levels - 1 - level) & 1) != 0) {
+                l = zeros[level] + l - l0;
+                r = zeros[level] + r - r0;
+            } else {
+                l = l0;
+                r = r0;
+            }
+        }
+        return r - l;
+    }
+
+    long memoryBytes() {
+        long words = 0;
+        for (int level = 0; level < levels; level++) words += bits[level].length * 8L + zerosBefore[level].length * 4L;
+        return words + zeros.length * 4L;
+    }
+
+    // Usage example
+    public static void main(String[] args) {
+        int[] a = {5, 1, 2, 1, 1};
+        WaveletMatrix t = new WaveletMatrix(a);
+        System.out.println(3 == t.countEq(1, 5, 1));
+        System.out.println(2 == t.kth(1, 5, 4));
+        System.out.println(4 == t.countLessOrEq(1, 5, 2));
+
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(100) + 1;
+            int[] b = rnd.ints(n, 0, rnd.nextInt(1000) + 1).toArray();
+            WaveletMatrix w = new WaveletMatrix(b);
+            for (int q = 0; q < 100; q++) {
+                int from = rnd.nextInt(n) + 1;
+                int to = from + rnd.nextInt(n - from + 1);
+                int k = rnd.nextInt(1100) - 50;
+                int[] s = Arrays.copyOfRange(b, from - 1, to);
+                Arrays.sort(s);
+                int less = 0;
+                int eq = 0;
+                for (int v : s) {
+                    if (v <= k)
+                        ++less;
+                    if (v == k)
+                        ++eq;
+                }
+                int kk = rnd.nextInt(s.length) + 1;
+                if (w.kth(from, to, kk) != s[kk - 1] || w.countLessOrEq(from, to, k) != less || w.countEq(from, to, k) != eq)
+                    throw new RuntimeException();
+            }
+        }
+
+        // build time and memory, n = 10^8 needs about -Xmx3g
+        int n = 1 << 22;
+        int[] c = rnd.ints(n, 0, 1 << 20).toArray();
+        long time = System.currentTimeMillis();
+        WaveletMatrix w = new WaveletMatrix(c);
+        System.out.println("build: " + (System.currentTimeMillis() - time) + " ms, " + (double) w.memoryBytes() / n
+            + " bytes per element, WaveletTree keeps " + 4 * w.levels + " bytes per element in prefix counts");
+    }
+}
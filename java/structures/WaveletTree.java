@@ -1,6 +1,7 @@
 package structures;
 
 import java.util.Arrays;
+import java.util.Random;
 import java.util.function.Predicate;
 
 public class WaveletTree {
@@ -84,7 +85,7 @@ public class WaveletTree {
         }
         System.arraycopy(b1, 0, a, from, cnt1);
         System.arraycopy(b2, 0, a, from + cnt1, cnt2);
-        return cnt1;
+        return from + cnt1;
     }
 
     // Usage example
@@ -92,5 +93,25 @@ public class WaveletTree {
         int[] a = {5, 1, 2, 1, 1};
         Node t = WaveletTree.createTree(a);
         System.out.println(t.countEq(1, 5, 1));
+
+        // random test against sorting the range
+        Random rnd = new Random(1);
+        for (int step = 0; step < 1000; step++) {
+            int n = rnd.nextInt(50) + 1;
+            int[] b = rnd.ints(n, 0, rnd.nextInt(100) + 1).toArray();
+            Node w = createTree(b.clone());
+            int u = rnd.nextInt(n) + 1;
+            int v = rnd.nextInt(n) + 1;
+            int from = Math.min(u, v);
+            int to = Math.max(u, v);
+            int[] s = Arrays.copyOfRange(b, from - 1, to);
+            Arrays.sort(s);
+            int k = rnd.nextInt(to - from + 1) + 1;
+            int x = rnd.nextInt(100);
+            if (w.kth(from, to, k) != s[k - 1]
+                || w.countLessOrEq(from, to, x) != Arrays.stream(s).filter(y -> y <= x).count()
+                || w.countEq(from, to, x) != Arrays.stream(s).filter(y -> y == x).count())
+                throw new RuntimeException();
+        }
     }
 }
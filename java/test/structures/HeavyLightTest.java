@@ -3,6 +3,7 @@ package test.structures;
 import java.util.*;
 import java.util.stream.Stream;
 import structures.HeavyLight;
+import structures.SegmentTree;
 
 public class HeavyLightTest {
     // Random test
@@ -31,6 +32,12 @@ public class HeavyLightTest {
                         throw new RuntimeException();
                 }
             }
+            int[] qa = rnd.ints(100, 0, n).toArray();
+            int[] qb = rnd.ints(100, 0, n).toArray();
+            SegmentTree.Node[] all = hl.getAll(qa, qb);
+            for (int q = 0; q < qa.length; q++)
+                if (all[q].sum != hl.get(qa[q], qb[q]).sum)
+                    throw new RuntimeException();
         }
 
         for (int step = 0; step < 1000; step++) {